@@ -0,0 +1,15 @@
+package model;
+
+import java.util.List;
+
+// Common interface for move-finding AIs so the engine, server and tools can swap strategies
+@FunctionalInterface
+public interface AIStrategy {
+    // returns the column and rotation count to use for the piece, or null when no placement fits
+    TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece);
+
+    // same, given the upcoming pieces in order; strategies that plan ahead override this
+    default TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece, List<TetrisShape.ShapeType> preview) {
+        return findBestMove(board, piece);
+    }
+}
@@ -2,6 +2,10 @@ package model;
 
 // Evaluates board states for AI decision making using height, holes, lines cleared and bumpiness
 public class BoardEvaluator {
+    private static final int HEIGHT_WEIGHT = -4;
+    private static final int LINES_WEIGHT = 3;
+    private static final int HOLES_WEIGHT = -5;
+    private static final int BUMPINESS_WEIGHT = -2;
     
     public int evaluateBoard(String[][] board) {
         int heightScore = getHeight(board);
@@ -9,7 +13,164 @@ public class BoardEvaluator {
         int linesCleared = getClearedLines(board);
         int bumpinessScore = getBumpiness(board);
         
-        return (-4 * heightScore) + (3 * linesCleared) - (5 * holesScore) - (2 * bumpinessScore);
+        return score(heightScore, linesCleared, holesScore, bumpinessScore);
+    }
+
+    // same score as evaluateBoard(String[][]) computed from the board's row bitmasks, no copy needed
+    public int evaluateBoard(GameBoard board) {
+        int width = board.getBoardWidth();
+        int height = board.getBoardHeight();
+        long fullRow = width == Long.SIZE ? -1L : (1L << width) - 1;
+        int[] columnHeights = new int[width];
+
+        int maxHeight = 0;
+        int holes = 0;
+        int linesCleared = 0;
+        long covered = 0L; // columns with a block somewhere above the current row
+
+        for (int row = 0; row < height; row++) {
+            long mask = board.getRowMask(row);
+            if (mask == fullRow) {
+                linesCleared++;
+            }
+            holes += Long.bitCount(~mask & covered & fullRow);
+
+            // columns whose top block is in this row
+            for (long tops = mask & ~covered; tops != 0; tops &= tops - 1) {
+                columnHeights[Long.numberOfTrailingZeros(tops)] = height - row;
+            }
+            if (maxHeight == 0 && mask != 0) {
+                maxHeight = height - row;
+            }
+            covered |= mask;
+        }
+
+        int bumpiness = 0;
+        for (int col = 0; col < width - 1; col++) {
+            bumpiness += Math.abs(columnHeights[col] - columnHeights[col + 1]);
+        }
+        return score(maxHeight, linesCleared, holes, bumpiness);
+    }
+
+    // cached per-column features of a board, lets a placement's score be derived from its parent's
+    public static final class Features {
+        private final int boardHeight;
+        private final int[] columnTops;  // row of the highest filled cell, boardHeight when empty
+        private final int[] columnHoles; // empty cells below the column top
+        private int maxHeight;
+        private int holes;
+        private int bumpiness;
+        private int fullRows;
+
+        private Features(int boardWidth, int boardHeight) {
+            this.boardHeight = boardHeight;
+            this.columnTops = new int[boardWidth];
+            this.columnHoles = new int[boardWidth];
+        }
+
+        public int score() {
+            return BoardEvaluator.score(maxHeight, fullRows, holes, bumpiness);
+        }
+
+        private int columnHeight(int col) {
+            return boardHeight - columnTops[col];
+        }
+    }
+
+    // full feature pass over the board, O(height) row mask operations
+    public Features computeFeatures(GameBoard board) {
+        int width = board.getBoardWidth();
+        int height = board.getBoardHeight();
+        long fullRow = width == Long.SIZE ? -1L : (1L << width) - 1;
+        Features features = new Features(width, height);
+        board.fillColumnTops(features.columnTops);
+
+        long covered = 0L;
+        for (int row = 0; row < height; row++) {
+            long mask = board.getRowMask(row);
+            if (mask == fullRow) {
+                features.fullRows++;
+            }
+            for (long holes = ~mask & covered & fullRow; holes != 0; holes &= holes - 1) {
+                features.columnHoles[Long.numberOfTrailingZeros(holes)]++;
+            }
+            covered |= mask;
+        }
+
+        for (int col = 0; col < width; col++) {
+            features.holes += features.columnHoles[col];
+            features.maxHeight = Math.max(features.maxHeight, features.columnHeight(col));
+            if (col > 0) {
+                features.bumpiness += Math.abs(features.columnHeight(col) - features.columnHeight(col - 1));
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Delta evaluation of a placement.
+     * Scores the board reached from a parent (whose features are given) by the makeMove just applied
+     * to it, recomputing only the columns the piece touched and their neighbours' bumpiness terms.
+     * Falls back to a full evaluation when the move cleared lines or sticks out above the board.
+     * Always equals evaluateBoard(board).
+     */
+    public int evaluatePlacement(GameBoard board, Features parent, PieceOrientation piece, int x, int y, long undo) {
+        if (GameBoard.getRowsCleared(undo) > 0 || y < 0) {
+            return evaluateBoard(board);
+        }
+
+        int maxHeight = parent.maxHeight;
+        int holes = parent.holes;
+        int bumpiness = parent.bumpiness;
+        int lastCol = x + piece.getWidth() - 1;
+
+        for (int col = x; col <= lastCol; col++) {
+            int top = columnTopAfter(parent, piece, x, y, col);
+            maxHeight = Math.max(maxHeight, parent.boardHeight - top);
+            holes += columnHolesAfter(parent, piece, x, y, col, top) - parent.columnHoles[col];
+        }
+
+        // bumpiness pairs that involve a touched column, from (x - 1, x) to (lastCol, lastCol + 1)
+        int width = parent.columnTops.length;
+        for (int col = Math.max(x, 1); col <= Math.min(lastCol + 1, width - 1); col++) {
+            int before = Math.abs(parent.columnHeight(col) - parent.columnHeight(col - 1));
+            int after = Math.abs(columnTopAfter(parent, piece, x, y, col - 1) - columnTopAfter(parent, piece, x, y, col));
+            bumpiness += after - before;
+        }
+
+        return score(maxHeight, parent.fullRows, holes, bumpiness);
+    }
+
+    // column top once the piece's cells in that column are added
+    private static int columnTopAfter(Features parent, PieceOrientation piece, int x, int y, int col) {
+        int top = parent.columnTops[col];
+        int pieceCol = col - x;
+        if (pieceCol < 0 || pieceCol >= piece.getWidth()) {
+            return top;
+        }
+        for (int row = 0; row < piece.getHeight(); row++) {
+            if ((piece.getRowMask(row) & (1L << pieceCol)) != 0) {
+                return Math.min(top, y + row); // first filled piece row from the top
+            }
+        }
+        return top;
+    }
+
+    // piece cells under the old top fill holes, empty cells between the new and old top become holes
+    private static int columnHolesAfter(Features parent, PieceOrientation piece, int x, int y, int col, int newTop) {
+        int oldTop = parent.columnTops[col];
+        int holes = parent.columnHoles[col] + (oldTop - newTop);
+        long bit = 1L << (col - x);
+        for (int row = 0; row < piece.getHeight(); row++) {
+            if ((piece.getRowMask(row) & bit) != 0) {
+                holes--; // either filled a hole below oldTop or is one of the new cells above it
+            }
+        }
+        return holes;
+    }
+
+    private static int score(int height, int linesCleared, int holes, int bumpiness) {
+        return (HEIGHT_WEIGHT * height) + (LINES_WEIGHT * linesCleared) + (HOLES_WEIGHT * holes) + (BUMPINESS_WEIGHT * bumpiness);
     }
     
     private int getHeight(String[][] board) {
@@ -1,18 +1,53 @@
 package model;
 import util.AudioManager;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
 // Manages the Tetris game board and collision detection with configurable dimensions
 public class GameBoard {
     private final int boardWidth;
     private final int boardHeight;
     private String[][] board;
+    private final long[] rowMasks; // occupancy bitmask per row, bit n set when column n is filled
+
+    // undo word layout for makeMove/unmakeMove: piece footprint in a 5x5 box, biased x and y, cleared row count
+    private static final int MAX_PIECE_SIZE = 5;
+    private static final int FOOTPRINT_BITS = MAX_PIECE_SIZE * MAX_PIECE_SIZE;
+    private static final int COORD_BITS = 12;
+    private static final int COORD_BIAS = 1 << (COORD_BITS - 1);
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+    private static final int X_SHIFT = FOOTPRINT_BITS;
+    private static final int Y_SHIFT = X_SHIFT + COORD_BITS;
+    private static final int CLEARED_SHIFT = Y_SHIFT + COORD_BITS;
+
+    // rows removed by makeMove, kept so unmakeMove can put the very same arrays back (LIFO)
+    private int[] removedRowIndices = new int[16];
+    private String[][] removedRows = new String[16][];
+    private int removedCount = 0;
+    private final ArrayDeque<String[]> spareRows = new ArrayDeque<>();
 
     public GameBoard(int width, int height) {
+        if (width > Long.SIZE) {
+            throw new IllegalArgumentException("Board width must not exceed " + Long.SIZE + " columns");
+        }
         this.boardWidth = width;
         this.boardHeight = height;
         board = new String[boardHeight][boardWidth];
+        rowMasks = new long[boardHeight];
         clearBoard();
     }
 
+    // independent copy of the cells, used to give each search thread its own board
+    public GameBoard copy() {
+        GameBoard copy = new GameBoard(boardWidth, boardHeight);
+        for (int row = 0; row < boardHeight; row++) {
+            System.arraycopy(board[row], 0, copy.board[row], 0, boardWidth);
+        }
+        System.arraycopy(rowMasks, 0, copy.rowMasks, 0, boardHeight);
+        return copy;
+    }
+
     public int getBoardWidth() {
         return boardWidth;
     }
@@ -27,6 +62,7 @@ public class GameBoard {
                 row[col] = null;
             }
         }
+        Arrays.fill(rowMasks, 0L);
     }
 
     // sets board state directly from String array (for server use)
@@ -36,11 +72,35 @@ public class GameBoard {
             for (int row = 0; row < cells.length && row < boardHeight; row++) {
                 for (int col = 0; col < cells[row].length && col < boardWidth; col++) {
                     board[row][col] = cells[row][col];
+                    if (cells[row][col] != null) {
+                        rowMasks[row] |= 1L << col;
+                    }
                 }
             }
         }
     }
 
+    // replaces a whole row from an occupancy mask, every filled cell gets the same color
+    public void setRowMask(int row, long mask, String color) {
+        mask &= fullRowMask();
+        for (int col = 0; col < boardWidth; col++) {
+            board[row][col] = (mask & (1L << col)) != 0 ? color : null;
+        }
+        rowMasks[row] = mask;
+    }
+
+    // replaces a whole row, colors must hold one entry per column (null for empty cells)
+    public void setRow(int row, String[] colors) {
+        System.arraycopy(colors, 0, board[row], 0, boardWidth);
+        long mask = 0L;
+        for (int col = 0; col < boardWidth; col++) {
+            if (colors[col] != null) {
+                mask |= 1L << col;
+            }
+        }
+        rowMasks[row] = mask;
+    }
+
     public boolean isValidPosition(TetrisShape shape, int newX, int newY) {
         for (int row = 0; row < shape.getHeight(); row++) {
             for (int col = 0; col < shape.getWidth(); col++) {
@@ -73,12 +133,148 @@ public class GameBoard {
                     if (boardX >= 0 && boardX < boardWidth &&
                             boardY >= 0 && boardY < boardHeight) {
                         board[boardY][boardX] = shape.getColor();
+                        rowMasks[boardY] |= 1L << boardX;
                     }
                 }
             }
         }
     }
 
+    /**
+     * Make/unmake support for search.
+     * Places the piece at (x, y) and clears any rows it completes.
+     * Returns a compact undo word; passing it to unmakeMove reverts the board exactly, cleared rows included.
+     * Moves must be unmade in reverse order. Unlike placePiece/clearFullRows this plays no sounds and
+     * allocates nothing once the spare row pool is warm. Cells that are already filled (a top-out
+     * placement overlapping the stack) are left untouched so the move still unmakes cleanly.
+     */
+    public long makeMove(TetrisShape piece, int x, int y) {
+        if (piece.getWidth() > MAX_PIECE_SIZE || piece.getHeight() > MAX_PIECE_SIZE) {
+            throw new IllegalArgumentException("Pieces larger than " + MAX_PIECE_SIZE + " cells per side are not supported");
+        }
+
+        long footprint = 0L;
+        String color = piece.getColor();
+        for (int row = 0; row < piece.getHeight(); row++) {
+            for (int col = 0; col < piece.getWidth(); col++) {
+                int boardX = x + col;
+                int boardY = y + row;
+                if (piece.isCellFilled(row, col) && boardX >= 0 && boardX < boardWidth
+                        && boardY >= 0 && boardY < boardHeight && board[boardY][boardX] == null) {
+                    board[boardY][boardX] = color;
+                    rowMasks[boardY] |= 1L << boardX;
+                    footprint |= 1L << (row * MAX_PIECE_SIZE + col);
+                }
+            }
+        }
+        return clearRowsAndEncode(footprint, x, y, piece.getHeight());
+    }
+
+    // same as makeMove(TetrisShape, ...) driven by a precomputed orientation's row masks
+    public long makeMove(PieceOrientation piece, int x, int y) {
+        if (piece.getWidth() > MAX_PIECE_SIZE || piece.getHeight() > MAX_PIECE_SIZE) {
+            throw new IllegalArgumentException("Pieces larger than " + MAX_PIECE_SIZE + " cells per side are not supported");
+        }
+
+        long footprint = 0L;
+        String color = piece.getColor();
+        for (int row = 0; row < piece.getHeight(); row++) {
+            int boardY = y + row;
+            if (boardY < 0 || boardY >= boardHeight) {
+                continue;
+            }
+            for (long bits = piece.getRowMask(row); bits != 0; bits &= bits - 1) {
+                int col = Long.numberOfTrailingZeros(bits);
+                int boardX = x + col;
+                if (boardX >= 0 && boardX < boardWidth && board[boardY][boardX] == null) {
+                    board[boardY][boardX] = color;
+                    rowMasks[boardY] |= 1L << boardX;
+                    footprint |= 1L << (row * MAX_PIECE_SIZE + col);
+                }
+            }
+        }
+        return clearRowsAndEncode(footprint, x, y, piece.getHeight());
+    }
+
+    private long clearRowsAndEncode(long footprint, int x, int y, int pieceHeight) {
+        // only rows the piece touched can have become full, top to bottom keeps lower indices valid
+        long fullRow = fullRowMask();
+        int cleared = 0;
+        for (int row = Math.max(y, 0); row < Math.min(y + pieceHeight, boardHeight); row++) {
+            if (rowMasks[row] == fullRow) {
+                removeRow(row);
+                cleared++;
+            }
+        }
+
+        return footprint
+                | ((long) (x + COORD_BIAS) & COORD_MASK) << X_SHIFT
+                | ((long) (y + COORD_BIAS) & COORD_MASK) << Y_SHIFT
+                | (long) cleared << CLEARED_SHIFT;
+    }
+
+    // reverts the most recent makeMove that has not been unmade yet
+    public void unmakeMove(long undo) {
+        int cleared = (int) (undo >>> CLEARED_SHIFT);
+        for (int i = 0; i < cleared; i++) {
+            restoreRow();
+        }
+
+        int x = (int) ((undo >>> X_SHIFT) & COORD_MASK) - COORD_BIAS;
+        int y = (int) ((undo >>> Y_SHIFT) & COORD_MASK) - COORD_BIAS;
+        for (long bits = undo & ((1L << FOOTPRINT_BITS) - 1); bits != 0; bits &= bits - 1) {
+            int cell = Long.numberOfTrailingZeros(bits);
+            int boardX = x + cell % MAX_PIECE_SIZE;
+            int boardY = y + cell / MAX_PIECE_SIZE;
+            board[boardY][boardX] = null;
+            rowMasks[boardY] &= ~(1L << boardX);
+        }
+    }
+
+    // number of rows cleared by the move an undo word belongs to
+    public static int getRowsCleared(long undo) {
+        return (int) (undo >>> CLEARED_SHIFT);
+    }
+
+    // moves a full row out of the board by shifting row references, the array is kept for restoreRow
+    private void removeRow(int row) {
+        if (removedCount == removedRows.length) {
+            removedRows = Arrays.copyOf(removedRows, removedCount * 2);
+            removedRowIndices = Arrays.copyOf(removedRowIndices, removedCount * 2);
+        }
+        removedRows[removedCount] = board[row];
+        removedRowIndices[removedCount] = row;
+        removedCount++;
+
+        for (int y = row; y > 0; y--) {
+            board[y] = board[y - 1];
+            rowMasks[y] = rowMasks[y - 1];
+        }
+        String[] spare = spareRows.poll();
+        board[0] = spare != null ? spare : new String[boardWidth];
+        rowMasks[0] = 0L;
+    }
+
+    private void restoreRow() {
+        removedCount--;
+        int row = removedRowIndices[removedCount];
+        String[] restored = removedRows[removedCount];
+        removedRows[removedCount] = null;
+
+        // the top row is empty again at this point, return it to the pool
+        spareRows.push(board[0]);
+        for (int y = 0; y < row; y++) {
+            board[y] = board[y + 1];
+            rowMasks[y] = rowMasks[y + 1];
+        }
+        board[row] = restored;
+        rowMasks[row] = fullRowMask();
+    }
+
+    private long fullRowMask() {
+        return boardWidth == Long.SIZE ? -1L : (1L << boardWidth) - 1;
+    }
+
     public String getCellColor(int row, int col) {
         if (row >= 0 && row < boardHeight && col >= 0 && col < boardWidth) {
             return board[row][col];
@@ -86,6 +282,24 @@ public class GameBoard {
         return null;
     }
 
+    // row index of the highest filled cell per column (boardHeight for empty columns), used for landing rows
+    public void fillColumnTops(int[] tops) {
+        Arrays.fill(tops, 0, boardWidth, boardHeight);
+        long fullRow = fullRowMask();
+        long seen = 0L;
+        for (int row = 0; row < boardHeight && seen != fullRow; row++) {
+            for (long bits = rowMasks[row] & ~seen; bits != 0; bits &= bits - 1) {
+                tops[Long.numberOfTrailingZeros(bits)] = row;
+            }
+            seen |= rowMasks[row];
+        }
+    }
+
+    // occupancy of a row as a bitmask, bit n is set when column n is filled
+    public long getRowMask(int row) {
+        return rowMasks[row];
+    }
+
     /**
      * Line-clearing logic
      * Scans the game board for any full lines (rows where every cell is filled).
@@ -114,12 +328,14 @@ public class GameBoard {
                 // shift all rows above down by one
                 for (int y = row; y > 0; y--) {
                     System.arraycopy(board[y - 1], 0, board[y], 0, boardWidth);
+                    rowMasks[y] = rowMasks[y - 1];
                 }
 
                 // clear top row
                 for (int col = 0; col < boardWidth; col++) {
                     board[0][col] = null;
                 }
+                rowMasks[0] = 0L;
 
                 // stay on the same row to re-check it after the shift
             } else {
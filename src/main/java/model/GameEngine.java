@@ -1,17 +1,18 @@
 package model;
 
 import java.io.*;
-import java.net.*;
+import java.util.List;
 import java.util.Random;
-import com.google.gson.Gson;
 
 import util.AudioManager;
+import util.SeededRandom;
 
 // Controls the game logic and piece movement
 public class GameEngine {
     private GameBoard board;
     private TetrisShape currentShape;
     private TetrisShape.ShapeType nextShapeType;
+    private PieceSet pieceSet = PieceSet.standard();
     private Random random;
     private boolean gameRunning;
     private long lastDropTime = 0;
@@ -23,7 +24,7 @@ public class GameEngine {
     
     // AI related fields
     private boolean aiEnabled = false;
-    private TetrisAI tetrisAI;
+    private AIStrategy tetrisAI;
     private TetrisAI.Move pendingAIMove = null;
     private int aiRotationsCompleted = 0;
     
@@ -31,13 +32,24 @@ public class GameEngine {
     private boolean externalPlayerMode = false;
     private OpMove pendingExternalMove = null;
     private int externalRotationsCompleted = 0;
-    private Gson gson;
+    private static final ServerConnectionPool SERVER_CONNECTIONS = new ServerConnectionPool("localhost", 3000);
 
     private int currentScore = 0;
     private int initialLevel = 1;   // default start level
     private int currentLevel = 1;   // increments as needed
     private int linesErased = 0;    // total cleared lines tracker
 
+    // binary snapshot format, bump the version whenever the layout changes
+    private static final int SNAPSHOT_MAGIC = 0x54474553; // "TGES"
+    // 2 added the piece set with types as indices into it, 3 stores types by name since the current and next
+    // piece may still come from the set in use before setPieceSet
+    private static final byte SNAPSHOT_VERSION = 3;
+    private static final int NO_TYPE = 0xFF;
+
+    // rewind history, one snapshot per locked piece
+    private static final int TIMELINE_CAPACITY = 5000;
+    private final GameTimeline timeline = new GameTimeline(TIMELINE_CAPACITY);
+
     public int getInitialLevel() {
         return initialLevel;
     }
@@ -81,7 +93,7 @@ public class GameEngine {
     }
 
     public GameEngine() {
-        this(new Random(),
+        this(new SeededRandom(),
              ui.configscreen.GameConfig.getInstance().getFieldWidth(),
              ui.configscreen.GameConfig.getInstance().getFieldHeight());
     }
@@ -91,7 +103,6 @@ public class GameEngine {
         random = sharedRandom;
         gameRunning = false;
         tetrisAI = new TetrisAI();
-        gson = new Gson();
         aiEnabled = false;
         externalPlayerMode = false;
     }
@@ -102,11 +113,24 @@ public class GameEngine {
         random = sharedRandom;
         gameRunning = false;
         tetrisAI = new TetrisAI();
-        gson = new Gson();
         aiEnabled = isAIPlayer;
         externalPlayerMode = isExternalPlayer;
     }
     
+    // pieces to spawn from, takes effect with the next spawned piece
+    public void setPieceSet(PieceSet pieceSet) {
+        this.pieceSet = pieceSet;
+    }
+
+    public PieceSet getPieceSet() {
+        return pieceSet;
+    }
+
+    // replaces the AI used when this engine plays by itself, e.g. new PerfectClearAI()
+    public void setAIStrategy(AIStrategy strategy) {
+        this.tetrisAI = strategy;
+    }
+
     public void startGame() {
         gameRunning = true;
         board.clearBoard();
@@ -120,6 +144,9 @@ public class GameEngine {
         linesErased = 0;
 
         spawnNewShape();
+
+        timeline.clear();
+        recordTimeline(0);
     }
     
     public void stopGame() {
@@ -155,17 +182,20 @@ public class GameEngine {
         
         if (nextShapeType == null) {
             // first shape
-            TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
-            shapeType = types[random.nextInt(types.length)];
+            shapeType = pieceSet.random(random);
         } else {
             // use the next shape
             shapeType = nextShapeType;
         }
         
         // generate new next shape
-        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
-        nextShapeType = types[random.nextInt(types.length)];
-        
+        nextShapeType = pieceSet.random(random);
+
+        spawnShape(shapeType);
+    }
+
+    // places a new current shape of the given type at the spawn position
+    private void spawnShape(TetrisShape.ShapeType shapeType) {
         // create shape centered horizontally, start above the game area for proper spawning
         int startX = (board.getBoardWidth() - TetrisShape.getWidthForType(shapeType)) / 2; // center horizontally
         int startY = -1; // start above the visible game area to allow proper entry
@@ -179,7 +209,8 @@ public class GameEngine {
         
         // calculate AI move for new shape if AI is enabled
         if (aiEnabled && currentShape != null) {
-            pendingAIMove = tetrisAI.findBestMove(board, currentShape);
+            List<TetrisShape.ShapeType> preview = nextShapeType != null ? List.of(nextShapeType) : List.of();
+            pendingAIMove = tetrisAI.findBestMove(board, currentShape, preview);
             aiRotationsCompleted = 0; // reset rotation counter for new shape
         }
         
@@ -211,10 +242,63 @@ public class GameEngine {
             }
 
             spawnNewShape();
+            recordTimeline(rowsCleared);
             return false;
         }
     }
 
+    // plays a move at once: rotations, sideways moves, then a hard drop through movePieceDown
+    // for headless tools, the UI path spreads the same steps over frames; returns whether the game is still running
+    public boolean playMove(TetrisAI.Move move) {
+        if (currentShape == null || !gameRunning) {
+            return false;
+        }
+        for (int i = 0; i < move.rotations(); i++) {
+            executeCommand(GameCommand.rotate());
+        }
+        while (currentShape.getX() < move.column() && executeCommand(GameCommand.moveRight())) {
+            // shift until the column is reached or blocked
+        }
+        while (currentShape.getX() > move.column() && executeCommand(GameCommand.moveLeft())) {
+            // shift until the column is reached or blocked
+        }
+        while (movePieceDown()) {
+            // fall until the piece locks
+        }
+        return gameRunning;
+    }
+
+    public GameTimeline getTimeline() {
+        return timeline;
+    }
+
+    // restores the board, counters and piece sequence captured at a timeline snapshot, later history is discarded
+    public void rewindTo(int index) {
+        GameTimeline.Snapshot snapshot = timeline.get(index);
+        timeline.restore(index, board);
+        timeline.truncateAfter(index);
+
+        currentScore = snapshot.getScore();
+        currentLevel = snapshot.getLevel();
+        linesErased = snapshot.getLinesErased();
+        nextShapeType = snapshot.getNextType();
+        if (snapshot.getRandomState() != GameTimeline.NO_RANDOM_STATE && random instanceof SeededRandom seededRandom) {
+            seededRandom.setState(snapshot.getRandomState());
+        }
+        gameRunning = true;
+        lastDropTime = System.nanoTime();
+
+        if (snapshot.getCurrentType() != null) {
+            spawnShape(snapshot.getCurrentType());
+        }
+    }
+
+    private void recordTimeline(int rowsCleared) {
+        timeline.record(board, rowsCleared, currentScore, currentLevel, linesErased,
+                currentShape != null ? currentShape.getType() : null, nextShapeType,
+                random instanceof SeededRandom seededRandom ? seededRandom.getState() : GameTimeline.NO_RANDOM_STATE);
+    }
+
     private int calculatePointsForRows(int rowsCleared) {
         // Standard Tetris scoring rules
         return switch (rowsCleared) {
@@ -274,15 +358,12 @@ public class GameEngine {
             return true;
         }
         
-        // wall kick attempts - try moving left or right if rotation fails
-        if (tryRotation(-1, 0) || tryRotation(1, 0)) {
-            AudioManager.getInstance().playSoundEffect(AudioManager.SOUND_MOVE_ROTATE);
-            return true;
-        }
-        
-        // additional wall kick for I-piece (try moving 2 positions)
-        if (currentShape.getType() == TetrisShape.ShapeType.I) {
-            if (tryRotation(-2, 0) || tryRotation(2, 0)) {
+        // wall kick attempts - try moving left or right if rotation fails, long pieces (I, I5) up to half
+        // their length so they can turn next to a wall
+        PieceOrientation spawn = currentShape.getType().getOrientation(0);
+        int maxKick = Math.max(1, Math.max(spawn.getWidth(), spawn.getHeight()) / 2);
+        for (int kick = 1; kick <= maxKick; kick++) {
+            if (tryRotation(-kick, 0) || tryRotation(kick, 0)) {
                 AudioManager.getInstance().playSoundEffect(AudioManager.SOUND_MOVE_ROTATE);
                 return true;
             }
@@ -296,12 +377,12 @@ public class GameEngine {
         int newY = currentShape.getY() + deltaY;
         
         // test rotation without creating new objects
-        boolean[][] rotatedPattern = currentShape.getRotatedPattern();
+        PieceOrientation rotated = currentShape.getRotatedOrientation();
         
-        // check if rotated pattern fits at new position
-        for (int row = 0; row < rotatedPattern.length; row++) {
-            for (int col = 0; col < rotatedPattern[0].length; col++) {
-                if (rotatedPattern[row][col]) {
+        // check if rotated orientation fits at new position
+        for (int row = 0; row < rotated.getHeight(); row++) {
+            for (int col = 0; col < rotated.getWidth(); col++) {
+                if (rotated.isCellFilled(row, col)) {
                     int boardX = newX + col;
                     int boardY = newY + row;
                     
@@ -438,69 +519,212 @@ public class GameEngine {
     }
     
     
-    // requests optimal move from external TetrisServer - fails fast, no blocking
-    private OpMove requestMoveFromServer() {
-        try {
-            PureGame pureGame = createPureGameFromCurrentState();
-            
-            try (Socket socket = new Socket("localhost", 3000);
-                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-                
-                String requestJson = gson.toJson(pureGame);
-                out.println(requestJson);
-                
-                String responseJson = in.readLine();
-                if (responseJson != null) {
-                    return gson.fromJson(responseJson, OpMove.class);
+    // serialises the complete engine state (board, pieces, RNG, counters, timing, pending moves)
+    // into a compact versioned binary form; the rewind timeline is history, not state, and is not included
+    public byte[] snapshot() {
+        if (!(random instanceof SeededRandom seededRandom)) {
+            throw new IllegalStateException("Snapshots require the engine to use a SeededRandom");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + board.getBoardHeight() * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeByte(SNAPSHOT_VERSION);
+            out.writeUTF(pieceSet.getName());
+
+            // board: packed occupancy bits per row, then one color code per filled cell
+            int width = board.getBoardWidth();
+            int height = board.getBoardHeight();
+            int bytesPerRow = (width + 7) / 8;
+            out.writeByte(width);
+            out.writeByte(height);
+            for (int row = 0; row < height; row++) {
+                long mask = board.getRowMask(row);
+                for (int i = 0; i < bytesPerRow; i++) {
+                    out.writeByte((int) (mask >>> (i * 8)));
                 }
             }
+            for (int row = 0; row < height; row++) {
+                for (long bits = board.getRowMask(row); bits != 0; bits &= bits - 1) {
+                    writeColor(out, board.getCellColor(row, Long.numberOfTrailingZeros(bits)));
+                }
+            }
+
+            // pieces
+            out.writeBoolean(currentShape != null);
+            if (currentShape != null) {
+                out.writeUTF(currentShape.getType().name());
+                out.writeByte(currentShape.getRotation());
+                out.writeShort(currentShape.getX());
+                out.writeShort(currentShape.getY());
+            }
+            out.writeBoolean(nextShapeType != null);
+            if (nextShapeType != null) {
+                out.writeUTF(nextShapeType.name());
+            }
+            out.writeLong(seededRandom.getState());
+
+            // counters and flags
+            out.writeInt(currentScore);
+            out.writeInt(initialLevel);
+            out.writeInt(currentLevel);
+            out.writeInt(linesErased);
+            out.writeBoolean(gameRunning);
+            out.writeBoolean(fastDropEnabled);
+            out.writeBoolean(aiEnabled);
+            out.writeBoolean(externalPlayerMode);
+
+            // timing is stored relative to now so a restored engine keeps its drop phase
+            out.writeLong(System.nanoTime() - lastDropTime);
+            out.writeDouble(smoothY);
+
+            // moves still being executed by the AI or external player
+            out.writeBoolean(pendingAIMove != null);
+            if (pendingAIMove != null) {
+                out.writeByte(pendingAIMove.column());
+                out.writeByte(pendingAIMove.rotations());
+            }
+            out.writeByte(aiRotationsCompleted);
+            out.writeBoolean(pendingExternalMove != null);
+            if (pendingExternalMove != null) {
+                out.writeByte(pendingExternalMove.opX());
+                out.writeByte(pendingExternalMove.opRotate());
+            }
+            out.writeByte(externalRotationsCompleted);
         } catch (IOException e) {
-            // server connection failed - UI handles reconnection
+            throw new UncheckedIOException(e); // not reachable with an in-memory stream
         }
-        
-        return new OpMove(0, 0); // default safe move
+        return bytes.toByteArray();
     }
-    
-    
-    // creates PureGame object from current game state
-    private PureGame createPureGameFromCurrentState() {
-        // get current board state as String[][]
-        String[][] cells = new String[board.getBoardHeight()][board.getBoardWidth()];
-        for (int row = 0; row < board.getBoardHeight(); row++) {
-            for (int col = 0; col < board.getBoardWidth(); col++) {
-                cells[row][col] = board.getCellColor(row, col);
+
+    // replaces the engine state with a snapshot taken by snapshot(), the board is resized if needed
+    public void restore(byte[] snapshot) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalArgumentException("Not a game engine snapshot");
             }
-        }
-        
-        // get current shape pattern
-        boolean[][] currentShapePattern = null;
-        if (currentShape != null) {
-            currentShapePattern = new boolean[currentShape.getHeight()][currentShape.getWidth()];
-            for (int row = 0; row < currentShape.getHeight(); row++) {
-                for (int col = 0; col < currentShape.getWidth(); col++) {
-                    currentShapePattern[row][col] = currentShape.isCellFilled(row, col);
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+            }
+            PieceSet snapshotPieces = version == 1 ? PieceSet.standard() : PieceSet.byName(in.readUTF());
+
+            int width = in.readUnsignedByte();
+            int height = in.readUnsignedByte();
+            int bytesPerRow = (width + 7) / 8;
+            long[] masks = new long[height];
+            for (int row = 0; row < height; row++) {
+                for (int i = 0; i < bytesPerRow; i++) {
+                    masks[row] |= (long) in.readUnsignedByte() << (i * 8);
                 }
             }
-        }
-        
-        // get next shape pattern
-        boolean[][] nextShapePattern = null;
-        TetrisShape nextShape = getNextShape();
-        if (nextShape != null) {
-            nextShapePattern = new boolean[nextShape.getHeight()][nextShape.getWidth()];
-            for (int row = 0; row < nextShape.getHeight(); row++) {
-                for (int col = 0; col < nextShape.getWidth(); col++) {
-                    nextShapePattern[row][col] = nextShape.isCellFilled(row, col);
+            String[][] cells = new String[height][width];
+            for (int row = 0; row < height; row++) {
+                for (long bits = masks[row]; bits != 0; bits &= bits - 1) {
+                    cells[row][Long.numberOfTrailingZeros(bits)] = readColor(in);
+                }
+            }
+            if (board.getBoardWidth() != width || board.getBoardHeight() != height) {
+                board = new GameBoard(width, height);
+            }
+            board.setBoardState(cells);
+
+            pieceSet = snapshotPieces;
+            currentShape = null;
+            if (in.readBoolean()) {
+                TetrisShape.ShapeType type = readType(in, version);
+                int rotation = in.readUnsignedByte();
+                currentShape = new TetrisShape(type, in.readShort(), in.readShort());
+                for (int i = 0; i < rotation; i++) {
+                    currentShape.rotate();
                 }
             }
+            if (version < 3) {
+                int nextType = in.readUnsignedByte();
+                nextShapeType = nextType == NO_TYPE ? null : pieceSet.get(nextType);
+            } else {
+                nextShapeType = in.readBoolean() ? readType(in, version) : null;
+            }
+
+            long randomState = in.readLong();
+            if (!(random instanceof SeededRandom)) {
+                random = new SeededRandom();
+            }
+            ((SeededRandom) random).setState(randomState);
+
+            currentScore = in.readInt();
+            initialLevel = in.readInt();
+            currentLevel = in.readInt();
+            linesErased = in.readInt();
+            gameRunning = in.readBoolean();
+            fastDropEnabled = in.readBoolean();
+            aiEnabled = in.readBoolean();
+            externalPlayerMode = in.readBoolean();
+
+            lastDropTime = System.nanoTime() - in.readLong();
+            smoothY = in.readDouble();
+
+            pendingAIMove = in.readBoolean() ? new TetrisAI.Move(in.readByte(), in.readUnsignedByte()) : null;
+            aiRotationsCompleted = in.readUnsignedByte();
+            pendingExternalMove = in.readBoolean() ? new OpMove(in.readByte(), in.readUnsignedByte()) : null;
+            externalRotationsCompleted = in.readUnsignedByte();
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt game engine snapshot", e);
+        }
+    }
+
+    // a piece type by name from version 3 on, before that an index into the snapshot's piece set
+    private TetrisShape.ShapeType readType(DataInputStream in, int version) throws IOException {
+        return version < 3 ? pieceSet.get(in.readUnsignedByte()) : PieceSet.pieceNamed(in.readUTF());
+    }
+
+    // independent copy of this engine, continuing with the same piece sequence
+    public GameEngine fork() {
+        GameEngine copy = new GameEngine(new SeededRandom(), board.getBoardWidth(), board.getBoardHeight(),
+                aiEnabled, externalPlayerMode);
+        copy.restore(snapshot());
+        return copy;
+    }
+
+    // colors of the standard pieces are stored as their type ordinal, anything else as a string
+    private static void writeColor(DataOutputStream out, String color) throws IOException {
+        for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+            if (TetrisShape.getColorForType(type).equals(color)) {
+                out.writeByte(type.ordinal());
+                return;
+            }
+        }
+        out.writeByte(NO_TYPE);
+        out.writeUTF(color);
+    }
+
+    private static String readColor(DataInputStream in) throws IOException {
+        int code = in.readUnsignedByte();
+        if (code == NO_TYPE) {
+            return in.readUTF();
+        }
+        return TetrisShape.getColorForType(TetrisShape.ShapeType.values()[code]);
+    }
+
+    // requests optimal move from external TetrisServer - fails fast, no blocking
+    private OpMove requestMoveFromServer() {
+        try {
+            // connections are kept open between pieces and shared by every engine in this JVM
+            String responseJson = SERVER_CONNECTIONS.exchange(createRequestFromCurrentState());
+            OpMove move = MoveRequestCodec.OP_MOVE.fromJson(responseJson);
+            if (move != null && !move.isBusy()) {
+                return move;
+            }
+        } catch (IOException e) {
+            // server connection failed - UI handles reconnection
         }
         
-        int shapeX = currentShape != null ? currentShape.getX() : 0;
-        int shapeY = currentShape != null ? currentShape.getY() : 0;
-        String shapeType = currentShape != null ? currentShape.getType().name() : "T";
-        
-        return new PureGame(board.getBoardWidth(), board.getBoardHeight(),
-                           cells, currentShapePattern, nextShapePattern, shapeX, shapeY, shapeType);
+        return new OpMove(0, 0); // default safe move
+    }
+    
+    
+    // PureGame JSON for the current game state, streamed from the board without building a PureGame
+    private String createRequestFromCurrentState() {
+        return MoveRequestCodec.writeRequest(board, currentShape, getNextShape());
     }
 }
@@ -0,0 +1,194 @@
+package model;
+
+import java.util.Arrays;
+
+// Bounded history of board states captured after each lock, used to rewind and step through a game
+// Rows are immutable and shared between snapshots, so a snapshot only costs one reference per row
+public class GameTimeline {
+    public static final long NO_RANDOM_STATE = -1L; // the engine's generator does not expose its state
+
+    // immutable board row, shared by every snapshot in which it appears unchanged
+    public static final class Row {
+        static final Row EMPTY = new Row(0L, null);
+
+        private final long mask;
+        private final String[] colors; // null for the empty row
+
+        private Row(long mask, String[] colors) {
+            this.mask = mask;
+            this.colors = colors;
+        }
+
+        public long getMask() {
+            return mask;
+        }
+
+        public String getCellColor(int col) {
+            return colors == null ? null : colors[col];
+        }
+
+        // true when this row holds exactly the contents of the given board row
+        private boolean matches(GameBoard board, int row) {
+            if (mask != board.getRowMask(row)) {
+                return false;
+            }
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                int col = Long.numberOfTrailingZeros(bits);
+                if (!colors[col].equals(board.getCellColor(row, col))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // board rows plus the game counters and piece generator state at the moment the snapshot was taken
+    public static final class Snapshot {
+        private final Row[] rows;
+        private final int score;
+        private final int level;
+        private final int linesErased;
+        private final TetrisShape.ShapeType currentType;
+        private final TetrisShape.ShapeType nextType;
+        private final long randomState;
+
+        private Snapshot(Row[] rows, int score, int level, int linesErased,
+                         TetrisShape.ShapeType currentType, TetrisShape.ShapeType nextType, long randomState) {
+            this.rows = rows;
+            this.score = score;
+            this.level = level;
+            this.linesErased = linesErased;
+            this.currentType = currentType;
+            this.nextType = nextType;
+            this.randomState = randomState;
+        }
+
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        public Row getRow(int row) {
+            return rows[row];
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getLinesErased() {
+            return linesErased;
+        }
+
+        public TetrisShape.ShapeType getCurrentType() {
+            return currentType;
+        }
+
+        public TetrisShape.ShapeType getNextType() {
+            return nextType;
+        }
+
+        // SeededRandom state after the next piece was drawn, or NO_RANDOM_STATE
+        public long getRandomState() {
+            return randomState;
+        }
+    }
+
+    private final Snapshot[] snapshots; // ring buffer, oldest entries are overwritten when full
+    private int start = 0;
+    private int size = 0;
+
+    public GameTimeline(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Timeline capacity must be positive");
+        }
+        snapshots = new Snapshot[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return snapshots.length;
+    }
+
+    public void clear() {
+        Arrays.fill(snapshots, null);
+        start = 0;
+        size = 0;
+    }
+
+    // index 0 is the oldest snapshot still kept
+    public Snapshot get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("snapshot " + index + " of " + size);
+        }
+        return snapshots[(start + index) % snapshots.length];
+    }
+
+    // captures the board after a lock, linesCleared tells how far unchanged rows moved down
+    public void record(GameBoard board, int linesCleared, int score, int level, int linesErased,
+                       TetrisShape.ShapeType currentType, TetrisShape.ShapeType nextType, long randomState) {
+        Snapshot previous = size > 0 ? get(size - 1) : null;
+        Row[] rows = new Row[board.getBoardHeight()];
+
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = shareRow(board, row, previous, linesCleared);
+        }
+
+        Snapshot snapshot = new Snapshot(rows, score, level, linesErased, currentType, nextType, randomState);
+        if (size < snapshots.length) {
+            snapshots[(start + size) % snapshots.length] = snapshot;
+            size++;
+        } else {
+            snapshots[start] = snapshot;
+            start = (start + 1) % snapshots.length;
+        }
+    }
+
+    // writes a snapshot's rows back onto the board, one row copy per board row
+    public void restore(int index, GameBoard board) {
+        Snapshot snapshot = get(index);
+        String[] emptyRow = new String[board.getBoardWidth()];
+        for (int row = 0; row < snapshot.rows.length && row < board.getBoardHeight(); row++) {
+            Row source = snapshot.rows[row];
+            board.setRow(row, source.colors == null ? emptyRow : source.colors);
+        }
+    }
+
+    // drops every snapshot after index, used when play resumes from a rewound state
+    public void truncateAfter(int index) {
+        for (int i = index + 1; i < size; i++) {
+            snapshots[(start + i) % snapshots.length] = null;
+        }
+        size = Math.min(size, index + 1);
+    }
+
+    // reuses the previous snapshot's row when it is unchanged, either in place or shifted down by cleared lines
+    private Row shareRow(GameBoard board, int row, Snapshot previous, int linesCleared) {
+        long mask = board.getRowMask(row);
+        if (mask == 0L) {
+            return Row.EMPTY;
+        }
+
+        if (previous != null && previous.rows.length == board.getBoardHeight()) {
+            if (previous.rows[row].matches(board, row)) {
+                return previous.rows[row];
+            }
+            int shifted = row - linesCleared;
+            if (linesCleared > 0 && shifted >= 0 && previous.rows[shifted].matches(board, row)) {
+                return previous.rows[shifted];
+            }
+        }
+
+        String[] colors = new String[board.getBoardWidth()];
+        for (int col = 0; col < colors.length; col++) {
+            colors[col] = board.getCellColor(row, col);
+        }
+        return new Row(mask, colors);
+    }
+}
@@ -0,0 +1,105 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Two-ply AI: places the current piece so that the previewed next piece has the best follow-up placement
+// Both plies are scored with TransitionEvaluator. A beam width limits the search to the best first-ply
+// placements by their own score, full lookahead expands all of them. Without a preview, or on boards wider
+// than TransitionEvaluator supports, it plays like the greedy TetrisAI.
+public class LookaheadAI implements AIStrategy {
+    private static final int NO_PLACEMENT = Integer.MIN_VALUE;
+
+    private final int beamWidth; // Integer.MAX_VALUE expands every first-ply placement
+    private final TetrisAI greedy = new TetrisAI(null);
+
+    public LookaheadAI() {
+        this(Integer.MAX_VALUE);
+    }
+
+    private LookaheadAI(int beamWidth) {
+        this.beamWidth = beamWidth;
+    }
+
+    // expands only the beamWidth best first-ply placements
+    public static LookaheadAI withBeam(int beamWidth) {
+        if (beamWidth < 1) {
+            throw new IllegalArgumentException("Beam width must be at least 1");
+        }
+        return new LookaheadAI(beamWidth);
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece) {
+        return greedy.findBestMove(board, piece);
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece, List<TetrisShape.ShapeType> preview) {
+        int width = board.getBoardWidth();
+        if (preview.isEmpty() || !TransitionEvaluator.supports(width, board.getBoardHeight())) {
+            return greedy.findBestMove(board, piece);
+        }
+        TransitionEvaluator transitions = TransitionEvaluator.forWidth(width);
+        TetrisShape.ShapeType type = piece.getType();
+        int[] columnTops = new int[width];
+        board.fillColumnTops(columnTops);
+
+        // first ply, packed as score << 32 | rotation << 8 | column so one sort orders them best first
+        TransitionEvaluator.Surface surface = transitions.scan(board);
+        long[] candidates = new long[type.getUniqueRotations() * width];
+        int count = 0;
+        for (int rotation = 0; rotation < type.getUniqueRotations(); rotation++) {
+            PieceOrientation orientation = type.getOrientation(rotation);
+            for (int col = 0; col + orientation.getWidth() <= width; col++) {
+                int row = orientation.landingRow(columnTops, col);
+                if (row >= 0) {
+                    int score = transitions.evaluatePlacement(surface, orientation, col, row);
+                    candidates[count++] = (long) score << 32 | rotation << 8 | col;
+                }
+            }
+        }
+        if (count == 0) {
+            return greedy.findBestMove(board, piece);
+        }
+        Arrays.sort(candidates, 0, count);
+
+        // second ply on the expanded candidates, best first so ties keep the better first placement
+        GameBoard work = board.copy();
+        TetrisShape.ShapeType next = preview.get(0);
+        int[] nextTops = new int[width];
+        long best = candidates[count - 1];
+        int bestScore = NO_PLACEMENT;
+        for (int i = count - 1; i >= Math.max(0, count - beamWidth); i--) {
+            int rotation = (int) (candidates[i] >>> 8) & 0xFF;
+            int col = (int) candidates[i] & 0xFF;
+            PieceOrientation orientation = type.getOrientation(rotation);
+            long undo = work.makeMove(orientation, col, orientation.landingRow(columnTops, col));
+
+            int score = bestFollowUp(transitions, work, next, nextTops);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidates[i];
+            }
+            work.unmakeMove(undo);
+        }
+        return new TetrisAI.Move((int) best & 0xFF, (int) (best >>> 8) & 0xFF);
+    }
+
+    // best score of any placement of the next piece, NO_PLACEMENT when it tops out everywhere
+    private static int bestFollowUp(TransitionEvaluator transitions, GameBoard board, TetrisShape.ShapeType type, int[] columnTops) {
+        board.fillColumnTops(columnTops);
+        TransitionEvaluator.Surface surface = transitions.scan(board);
+        int best = NO_PLACEMENT;
+        for (int rotation = 0; rotation < type.getUniqueRotations(); rotation++) {
+            PieceOrientation orientation = type.getOrientation(rotation);
+            for (int col = 0; col + orientation.getWidth() <= board.getBoardWidth(); col++) {
+                int row = orientation.landingRow(columnTops, col);
+                if (row >= 0) {
+                    best = Math.max(best, transitions.evaluatePlacement(surface, orientation, col, row));
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,364 @@
+package model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Hand-written streaming JSON codecs for the move protocol, the PureGame request and the OpMove response
+// Requests are written straight from a GameBoard and read straight into row occupancy masks, so neither side
+// builds PureGame's String[][] cells or boolean[][] patterns and nothing goes through reflection. The text is
+// the same as Gson's reflective PureGame and OpMove encoding, old and new peers understand each other.
+// A batch is a JSON array of PureGame requests on one line, answered by an array of OpMoves in the same order.
+public final class MoveRequestCodec {
+    private static final String CELL_COLOR = "gray"; // colors are not kept, the AI only looks at occupancy
+    public static final int MAX_WIDTH = Long.SIZE; // occupancy is kept as row masks
+    public static final int MAX_HEIGHT = 255;      // the binary protocol's limit, a board is never taller
+
+    public static final TypeAdapter<OpMove> OP_MOVE = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, OpMove move) throws IOException {
+            if (move == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (move.isBusy()) {
+                // no move, clients that do not know the flag see the default move
+                out.name("opX").value(0);
+                out.name("opRotate").value(0);
+                out.name("busy").value(true);
+            } else {
+                out.name("opX").value(move.opX());
+                out.name("opRotate").value(move.opRotate());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public OpMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int opX = 0;
+            int opRotate = 0;
+            boolean busy = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "opX" -> opX = in.nextInt();
+                    case "opRotate" -> opRotate = in.nextInt();
+                    case "busy" -> busy = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return busy ? OpMove.BUSY : new OpMove(opX, opRotate);
+        }
+    };
+
+    // a decoded request; one instance can be reused for request after request, so its buffers and board are only
+    // allocated again when the board size changes. Rows beyond MAX_HEIGHT are counted but not kept, a reused
+    // buffer never grows past a legal board
+    public static final class Request {
+        private long[] rows = new long[0];  // occupancy per cells row, bit c = column c
+        private int rowCount;
+        private int columnCount;            // longest cells row
+        private int width;
+        private int height;
+        private int shapeX;
+        private int shapeY;
+        private String shapeType;
+        private boolean hasCells;
+        private boolean hasShape;
+        private GameBoard board;
+
+        private void reset() {
+            rowCount = 0;
+            columnCount = 0;
+            width = 0;
+            height = 0;
+            shapeX = 0;
+            shapeY = 0;
+            shapeType = null;
+            hasCells = false;
+            hasShape = false;
+        }
+
+        // false when the request lacks the board or the current piece, the server answers those with no move
+        public boolean isComplete() {
+            return hasCells && hasShape && shapeType != null;
+        }
+
+        public int getWidth() {
+            return width > 0 ? width : columnCount;
+        }
+
+        public int getHeight() {
+            return height > 0 ? height : rowCount;
+        }
+
+        public long getRowMask(int row) {
+            return row < rowCount && row < rows.length ? rows[row] : 0L;
+        }
+
+        public int getShapeX() {
+            return shapeX;
+        }
+
+        public int getShapeY() {
+            return shapeY;
+        }
+
+        public String getShapeType() {
+            return shapeType;
+        }
+
+        // the request's board, the same instance every time for the same size, cells beyond it are ignored;
+        // a size the client made up is refused before anything is allocated for it
+        public GameBoard toBoard() {
+            int boardWidth = getWidth();
+            int boardHeight = getHeight();
+            if (boardWidth < 1 || boardWidth > MAX_WIDTH || boardHeight < 1 || boardHeight > MAX_HEIGHT
+                    || boardHeight != rowCount) {
+                throw new IllegalArgumentException("Request for a " + boardWidth + "x" + boardHeight
+                        + " board with " + rowCount + " rows of cells");
+            }
+            if (board == null || board.getBoardWidth() != boardWidth || board.getBoardHeight() != boardHeight) {
+                board = new GameBoard(boardWidth, boardHeight);
+            }
+            for (int row = 0; row < boardHeight; row++) {
+                long mask = getRowMask(row);
+                if (mask != board.getRowMask(row)) {
+                    board.setRowMask(row, mask, CELL_COLOR);
+                }
+            }
+            return board;
+        }
+
+        // the current piece, by type and position; any shipped piece set, IllegalArgumentException for unknown names
+        public TetrisShape toShape() {
+            return new TetrisShape(PieceSet.pieceNamed(shapeType), shapeX, shapeY);
+        }
+
+        private void addRow(long mask, int columns) {
+            if (rowCount < MAX_HEIGHT) {
+                if (rowCount == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.min(MAX_HEIGHT, Math.max(32, rows.length * 2)));
+                }
+                rows[rowCount] = mask;
+            }
+            rowCount++;
+            columnCount = Math.max(columnCount, columns);
+        }
+    }
+
+    private MoveRequestCodec() {
+    }
+
+    // the request for placing current on board, next may be null
+    public static String writeRequest(GameBoard board, TetrisShape current, TetrisShape next) {
+        StringWriter text = new StringWriter(64 + board.getBoardWidth() * board.getBoardHeight() * 8);
+        try {
+            writeRequest(new JsonWriter(text), board, current, next);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringWriter cannot fail", e);
+        }
+        return text.toString();
+    }
+
+    // fields in PureGame's declaration order, null fields left out, as Gson writes them
+    public static void writeRequest(JsonWriter out, GameBoard board, TetrisShape current, TetrisShape next)
+            throws IOException {
+        out.beginObject();
+        out.name("width").value(board.getBoardWidth());
+        out.name("height").value(board.getBoardHeight());
+        out.name("cells").beginArray();
+        for (int row = 0; row < board.getBoardHeight(); row++) {
+            out.beginArray();
+            for (int col = 0; col < board.getBoardWidth(); col++) {
+                String color = board.getCellColor(row, col);
+                if (color == null) {
+                    out.nullValue();
+                } else {
+                    out.value(color);
+                }
+            }
+            out.endArray();
+        }
+        out.endArray();
+        if (current != null) {
+            writePattern(out.name("currentShape"), current);
+        }
+        if (next != null) {
+            writePattern(out.name("nextShape"), next);
+        }
+        out.name("currentShapeX").value(current != null ? current.getX() : 0);
+        out.name("currentShapeY").value(current != null ? current.getY() : 0);
+        out.name("currentShapeType").value(current != null ? current.getType().name() : "T");
+        out.endObject();
+        out.flush();
+    }
+
+    private static void writePattern(JsonWriter out, TetrisShape shape) throws IOException {
+        out.beginArray();
+        for (int row = 0; row < shape.getHeight(); row++) {
+            out.beginArray();
+            for (int col = 0; col < shape.getWidth(); col++) {
+                out.value(shape.isCellFilled(row, col));
+            }
+            out.endArray();
+        }
+        out.endArray();
+    }
+
+    public static Request readRequest(String json, Request into) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(json));
+        readRequest(in, into);
+        return into;
+    }
+
+    // true when the message is a batch, a JSON array of requests rather than a single object
+    public static boolean isBatch(String json) {
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
+    // a batch of requests for the given states, next pieces left out
+    public static String writeBatch(List<GameBoard> boards, List<TetrisShape> pieces) {
+        StringWriter text = new StringWriter();
+        JsonWriter out = new JsonWriter(text);
+        try {
+            out.beginArray();
+            for (int i = 0; i < boards.size(); i++) {
+                writeRequest(out, boards.get(i), pieces.get(i), null);
+            }
+            out.endArray();
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("StringWriter cannot fail", e);
+        }
+        return text.toString();
+    }
+
+    // every request of a batch, each in its own buffer so they can be answered in parallel
+    public static List<Request> readBatch(String json) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(json));
+        List<Request> requests = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Request request = new Request();
+            readRequest(in, request);
+            requests.add(request);
+        }
+        in.endArray();
+        return requests;
+    }
+
+    public static String writeMoves(List<OpMove> moves) {
+        StringWriter text = new StringWriter(moves.size() * 24 + 2);
+        JsonWriter out = new JsonWriter(text);
+        try {
+            out.beginArray();
+            for (OpMove move : moves) {
+                OP_MOVE.write(out, move);
+            }
+            out.endArray();
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("StringWriter cannot fail", e);
+        }
+        return text.toString();
+    }
+
+    // the answers to a batch; a batch the server shed before reading it comes back as one busy answer
+    public static List<OpMove> readMoves(String json) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(json));
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            return List.of(OP_MOVE.read(in));
+        }
+        List<OpMove> moves = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            moves.add(OP_MOVE.read(in));
+        }
+        in.endArray();
+        return moves;
+    }
+
+    // fills into from one PureGame object, unknown fields are skipped
+    public static void readRequest(JsonReader in, Request into) throws IOException {
+        into.reset();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "width" -> into.width = in.nextInt();
+                case "height" -> into.height = in.nextInt();
+                case "cells" -> {
+                    readCells(in, into);
+                    into.hasCells = true;
+                }
+                case "currentShape" -> {
+                    in.skipValue(); // the AI places pieces by type
+                    into.hasShape = true;
+                }
+                case "currentShapeX" -> into.shapeX = in.nextInt();
+                case "currentShapeY" -> into.shapeY = in.nextInt();
+                case "currentShapeType" -> into.shapeType = in.nextString();
+                default -> in.skipValue(); // nextShape and anything newer
+            }
+        }
+        in.endObject();
+    }
+
+    // each cells row to an occupancy mask, a null row is an empty one
+    private static void readCells(JsonReader in, Request into) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                into.addRow(0L, 0);
+                continue;
+            }
+            long mask = 0L;
+            int col = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    in.skipValue(); // the color string is not needed
+                    if (col < Long.SIZE) {
+                        mask |= 1L << col;
+                    }
+                }
+                col++;
+            }
+            in.endArray();
+            into.addRow(mask, col);
+        }
+        in.endArray();
+    }
+}
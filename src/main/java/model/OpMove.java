@@ -8,4 +8,11 @@ public record OpMove(int opX, int opRotate) {
     // Special interpretations:
     // - opX = 0 means place at left-most position
     // - opRotate = 0 means no rotation needed
+    // - BUSY means the server shed the request under load, there is no recommendation
+
+    public static final OpMove BUSY = new OpMove(0, -1);
+
+    public boolean isBusy() {
+        return opRotate < 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+// Precomputed best placements for clean, low stacks, looked up before TetrisAI searches
+// A clean stack has no holes and no full rows, so its column heights identify the board exactly and the
+// stored move is the one the search would return. Entries are indexed directly by the heights in base
+// `levels`, one byte per (piece type, height profile); the file is memory mapped and never copied.
+//
+// File layout (big endian):
+//   header  : magic int, version short, heuristic version int, width byte, levels byte, min board height byte, type count byte
+//   entries : type count * levels^width bytes, (rotation << 4 | column) or EMPTY
+public final class OpeningBook implements Closeable {
+    public static final Path DEFAULT_FILE = Path.of("opening_book.bin");
+
+    // file format, shared with util.OpeningBookBuilder which writes it
+    public static final int MAGIC = 0x544F424B; // "TOBK"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 14;
+    public static final int EMPTY = 0xFF;
+    public static final int MAX_WIDTH = 16;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final int width;
+    private final int levels;
+    private final int minBoardHeight;
+    private final long entriesPerType;
+    private final int typeCount;
+    private final long[] columnWeights; // levels^col
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    private OpeningBook(Arena arena, MemorySegment data) {
+        this.arena = arena;
+        this.data = data;
+
+        if (data.byteSize() < HEADER_BYTES || data.get(INT, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book file");
+        }
+        if (data.get(SHORT, 4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported opening book version: " + data.get(SHORT, 4));
+        }
+        if (data.get(INT, 6) != TetrisAI.HEURISTIC_VERSION) {
+            throw new IllegalArgumentException("Opening book was built for another AI heuristic, rebuild it");
+        }
+        width = readUnsignedByte(10);
+        levels = readUnsignedByte(11);
+        minBoardHeight = readUnsignedByte(12);
+        typeCount = readUnsignedByte(13);
+
+        columnWeights = new long[width];
+        long weight = 1;
+        for (int col = 0; col < width; col++) {
+            columnWeights[col] = weight;
+            weight *= levels;
+        }
+        entriesPerType = weight;
+        if (typeCount != TetrisShape.ShapeType.values().length || data.byteSize() != HEADER_BYTES + typeCount * entriesPerType) {
+            throw new IllegalArgumentException("Opening book file is truncated or has the wrong piece set");
+        }
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new OpeningBook(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    // process-wide book loaded from DEFAULT_FILE, null when the file is missing or unusable
+    public static OpeningBook getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final OpeningBook INSTANCE = loadDefault();
+
+        private static OpeningBook loadDefault() {
+            if (!Files.exists(DEFAULT_FILE)) {
+                return null;
+            }
+            try {
+                return open(DEFAULT_FILE);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Ignoring opening book '" + DEFAULT_FILE + "': " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    // the stored move for a clean stack, or null when the board is not covered by the book
+    public TetrisAI.Move lookup(GameBoard board, TetrisShape.ShapeType type) {
+        lookups.increment();
+        if (board.getBoardWidth() != width || board.getBoardHeight() < minBoardHeight || type.ordinal() >= typeCount) {
+            return null; // other board shape or a piece from another set
+        }
+
+        int height = board.getBoardHeight();
+        int firstBookRow = height - (levels - 1);
+        for (int row = 0; row < firstBookRow; row++) {
+            if (board.getRowMask(row) != 0) {
+                return null; // stack too high
+            }
+        }
+
+        long fullRow = (1L << width) - 1;
+        long covered = 0L;
+        long index = 0;
+        for (int row = firstBookRow; row < height; row++) {
+            long mask = board.getRowMask(row);
+            if (mask == fullRow || (covered & ~mask) != 0) {
+                return null; // full row or hole
+            }
+            for (long tops = mask & ~covered; tops != 0; tops &= tops - 1) {
+                index += (height - row) * columnWeights[Long.numberOfTrailingZeros(tops)];
+            }
+            covered |= mask;
+        }
+
+        int entry = Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, HEADER_BYTES + type.ordinal() * entriesPerType + index));
+        if (entry == EMPTY) {
+            return null;
+        }
+        hits.increment();
+        return new TetrisAI.Move(entry & 0x0F, entry >>> 4);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private int readUnsignedByte(long offset) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, offset));
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Strategy that plays a perfect clear whenever the current piece and the preview allow one,
+// every other decision goes to the fallback strategy. Not thread safe, like the solver it owns.
+public class PerfectClearAI implements AIStrategy {
+    private final AIStrategy fallback;
+    private final int maxHeight;
+    private PerfectClearSolver solver; // built for the width of the first board seen
+    private long perfectClearMoves;
+
+    public PerfectClearAI() {
+        this(new TetrisAI(), PerfectClearSolver.DEFAULT_MAX_HEIGHT);
+    }
+
+    public PerfectClearAI(AIStrategy fallback, int maxHeight) {
+        this.fallback = fallback;
+        this.maxHeight = maxHeight;
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece) {
+        return findBestMove(board, piece, List.of());
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece, List<TetrisShape.ShapeType> preview) {
+        PerfectClearSolver pcSolver = solverFor(board.getBoardWidth());
+        if (pcSolver != null) {
+            List<TetrisShape.ShapeType> queue = new ArrayList<>(preview.size() + 1);
+            queue.add(piece.getType());
+            queue.addAll(preview);
+
+            List<PerfectClearSolver.Placement> plan = pcSolver.solve(board, queue);
+            if (plan != null) {
+                perfectClearMoves++;
+                PerfectClearSolver.Placement first = plan.get(0);
+                return new TetrisAI.Move(first.column(), first.rotation());
+            }
+        }
+        return fallback.findBestMove(board, piece, preview);
+    }
+
+    // decisions answered from a perfect clear plan
+    public long getPerfectClearMoves() {
+        return perfectClearMoves;
+    }
+
+    // null when the window does not fit in one long for this width
+    private PerfectClearSolver solverFor(int width) {
+        if (width * maxHeight > Long.SIZE || width < 4) {
+            return null;
+        }
+        if (solver == null || solver.getWidth() != width) {
+            solver = new PerfectClearSolver(width, maxHeight);
+        }
+        return solver;
+    }
+}
@@ -0,0 +1,360 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Depth-first search for a placement sequence that empties the board using a known piece queue (no hold)
+// The bottom maxHeight rows are packed into one long, bit (row * width + col) with row 0 the top of that window,
+// so placing, line clearing and state hashing are a few shifts and masks. Move generation allocates nothing.
+// Pruning: the cells still to fill must be a multiple of 4 that the queue can cover, the column parity imbalance
+// must be reachable by the pieces that will be used, and states already proven dead are memoised.
+// Not thread safe, use one solver per thread.
+public final class PerfectClearSolver {
+    public static final int DEFAULT_MAX_HEIGHT = 4;
+    private static final int MAX_QUEUE = 32;
+
+    // one hard drop of the solution
+    public record Placement(TetrisShape.ShapeType type, int rotation, int column) {}
+
+    private final int width;
+    private final int maxHeight;
+    private final long frameMask;
+    private final long evenColumns;
+    private final long[] rowMasks; // full mask of each frame row
+
+    // per piece type: every (rotation, column) drop with the piece's mask at frame row 0
+    private final int[][] dropRotation;
+    private final int[][] dropColumn;
+    private final long[][] dropMask;
+    private final int[][] dropHeight;
+    private final int[] parityReach; // largest column parity change one piece of the type can make
+
+    private final DeadStates dead = new DeadStates();
+    private final int[] queue = new int[MAX_QUEUE];
+    private final int[] reachPrefix = new int[MAX_QUEUE + 1];
+    private final int[] chosen = new int[MAX_QUEUE]; // drop index per depth of the current path
+    private int queueLength;
+    private long nodes;
+
+    public PerfectClearSolver(int width, int maxHeight) {
+        if (width < 4 || maxHeight < 1 || width * maxHeight > Long.SIZE) {
+            throw new IllegalArgumentException("Perfect clear window must hold at most " + Long.SIZE + " cells, got "
+                    + width + "x" + maxHeight);
+        }
+        this.width = width;
+        this.maxHeight = maxHeight;
+        this.frameMask = width * maxHeight == Long.SIZE ? -1L : (1L << (width * maxHeight)) - 1;
+        this.rowMasks = new long[maxHeight];
+        long evens = 0L;
+        for (int row = 0; row < maxHeight; row++) {
+            rowMasks[row] = ((1L << width) - 1) << (row * width);
+            for (int col = 0; col < width; col += 2) {
+                evens |= 1L << (row * width + col);
+            }
+        }
+        this.evenColumns = evens;
+
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        dropRotation = new int[types.length][];
+        dropColumn = new int[types.length][];
+        dropMask = new long[types.length][];
+        dropHeight = new int[types.length][];
+        parityReach = new int[types.length];
+        for (TetrisShape.ShapeType type : types) {
+            compileDrops(type);
+        }
+    }
+
+    private void compileDrops(TetrisShape.ShapeType type) {
+        List<long[]> drops = new ArrayList<>(); // rotation, column, mask, height
+        int reach = 0;
+        for (int rotation = 0; rotation < TetrisShape.getUniqueRotations(type); rotation++) {
+            PieceOrientation piece = TetrisShape.getOrientation(type, rotation);
+            if (piece.getHeight() > maxHeight) {
+                continue;
+            }
+            long mask = 0L;
+            int evenCells = 0;
+            for (int row = 0; row < piece.getHeight(); row++) {
+                mask |= piece.getRowMask(row) << (row * width);
+                evenCells += Long.bitCount(piece.getRowMask(row) & 0x5555_5555_5555_5555L);
+            }
+            int oddCells = Long.bitCount(mask) - evenCells;
+            reach = Math.max(reach, Math.abs(evenCells - oddCells));
+            for (int col = 0; col + piece.getWidth() <= width; col++) {
+                drops.add(new long[] {rotation, col, mask << col, piece.getHeight()});
+            }
+        }
+
+        int ordinal = type.ordinal();
+        dropRotation[ordinal] = drops.stream().mapToInt(drop -> (int) drop[0]).toArray();
+        dropColumn[ordinal] = drops.stream().mapToInt(drop -> (int) drop[1]).toArray();
+        dropMask[ordinal] = drops.stream().mapToLong(drop -> drop[2]).toArray();
+        dropHeight[ordinal] = drops.stream().mapToInt(drop -> (int) drop[3]).toArray();
+        parityReach[ordinal] = reach;
+    }
+
+    /**
+     * Searches for hard drops of the queue's pieces, in order, that leave the board empty.
+     * Only boards whose blocks all lie in the bottom maxHeight rows qualify; pieces left over
+     * after the clear are not used. Returns null when there is no such sequence.
+     */
+    public List<Placement> solve(GameBoard board, List<TetrisShape.ShapeType> pieces) {
+        if (board.getBoardWidth() != width || pieces.isEmpty()) {
+            return null;
+        }
+        if (!fitsWindow(board)) {
+            return null;
+        }
+        long field = pack(board);
+
+        queueLength = Math.min(pieces.size(), MAX_QUEUE);
+        for (int i = 0; i < queueLength; i++) {
+            queue[i] = pieces.get(i).ordinal();
+            if (queue[i] >= dropMask.length) {
+                return null; // not a tetromino, the cell counting assumes four cells per piece
+            }
+            reachPrefix[i + 1] = reachPrefix[i] + parityReach[queue[i]];
+        }
+        dead.clear();
+        nodes = 0;
+
+        // lowest window first, the stack itself sets the minimum
+        int filled = Long.bitCount(field);
+        int stackRows = field == 0 ? 1 : maxHeight - Long.numberOfTrailingZeros(Long.lowestOneBit(field)) / width;
+        for (int rows = stackRows; rows <= maxHeight; rows++) {
+            int cells = rows * width - filled;
+            if (cells % 4 == 0 && cells / 4 <= queueLength && search(field, rows, 0)) {
+                return path(rows, field);
+            }
+        }
+        return null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    // states expanded by the last solve, for benchmarks
+    public long getNodes() {
+        return nodes;
+    }
+
+    private boolean search(long field, int rows, int depth) {
+        if (rows == 0) {
+            return true;
+        }
+        nodes++;
+
+        // area: the window must be filled exactly by the next pieces
+        long window = rowsMask(rows);
+        long empty = window & ~field;
+        int needed = Long.bitCount(empty) / 4;
+        if (depth + needed > queueLength) {
+            return false;
+        }
+        // column parity: full rows of an even width clear evenly, only the pieces can fix an imbalance
+        if ((width & 1) == 0) {
+            int imbalance = Math.abs(Long.bitCount(empty & evenColumns) - Long.bitCount(empty & ~evenColumns));
+            if (imbalance > reachPrefix[depth + needed] - reachPrefix[depth]) {
+                return false;
+            }
+        }
+        // a column filled in every remaining row splits the window, pieces cannot cross it
+        if (!splitsFillable(field, empty, rows)) {
+            return false;
+        }
+        if (dead.contains(field, rows, depth)) {
+            return false;
+        }
+
+        int type = queue[depth];
+        long[] masks = dropMask[type];
+        int[] heights = dropHeight[type];
+        int topRow = maxHeight - rows;
+        for (int drop = 0; drop < masks.length; drop++) {
+            long mask = masks[drop];
+            int height = heights[drop];
+            if ((mask & field) != 0) {
+                continue; // would rest above the window
+            }
+            int y = 0;
+            while (y + height < maxHeight && ((mask << ((y + 1) * width)) & field) == 0) {
+                y++;
+            }
+            if (y < topRow) {
+                continue; // sticks out above the rows left to clear
+            }
+
+            long placed = field | (mask << (y * width));
+            int cleared = 0;
+            for (int row = y; row < y + height; row++) {
+                if ((placed & rowMasks[row]) == rowMasks[row]) {
+                    // rows above the cleared one move down a row, the top of the window shrinks
+                    long above = placed & ((1L << (row * width)) - 1);
+                    long below = placed & ~((1L << ((row + 1) * width)) - 1) & frameMask;
+                    placed = below | (above << width);
+                    cleared++;
+                }
+            }
+
+            chosen[depth] = drop;
+            if (search(placed, rows - cleared, depth + 1)) {
+                return true;
+            }
+        }
+        dead.add(field, rows, depth);
+        return false;
+    }
+
+    // every segment between fully filled columns must hold a multiple of 4 empty cells
+    private boolean splitsFillable(long field, long empty, int rows) {
+        long rowMask = (1L << width) - 1;
+        long solidColumns = rowMask;
+        for (int row = maxHeight - rows; row < maxHeight; row++) {
+            solidColumns &= field >>> (row * width);
+        }
+        solidColumns &= rowMask;
+
+        // the segment right of the last wall follows from the total being a multiple of 4
+        long done = 0L; // columns up to and including the previous wall
+        for (long walls = solidColumns; walls != 0; walls &= walls - 1) {
+            long wall = Long.lowestOneBit(walls);
+            if (Long.bitCount(empty & columnsMask((wall - 1) & ~done)) % 4 != 0) {
+                return false;
+            }
+            done = (wall << 1) - 1;
+        }
+        return true;
+    }
+
+    // the given columns in every frame row
+    private long columnsMask(long columns) {
+        long mask = 0L;
+        for (int row = 0; row < maxHeight; row++) {
+            mask |= columns << (row * width);
+        }
+        return mask;
+    }
+
+    // replays the successful path recorded in chosen
+    private List<Placement> path(int rows, long field) {
+        List<Placement> placements = new ArrayList<>();
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        for (int depth = 0; rows > 0; depth++) {
+            int type = queue[depth];
+            int drop = chosen[depth];
+            placements.add(new Placement(types[type], dropRotation[type][drop], dropColumn[type][drop]));
+
+            long mask = dropMask[type][drop];
+            int height = dropHeight[type][drop];
+            int y = 0;
+            while (y + height < maxHeight && ((mask << ((y + 1) * width)) & field) == 0) {
+                y++;
+            }
+            field |= mask << (y * width);
+            for (int row = y; row < y + height; row++) {
+                if ((field & rowMasks[row]) == rowMasks[row]) {
+                    long above = field & ((1L << (row * width)) - 1);
+                    long below = field & ~((1L << ((row + 1) * width)) - 1) & frameMask;
+                    field = below | (above << width);
+                    rows--;
+                }
+            }
+        }
+        return placements;
+    }
+
+    private boolean fitsWindow(GameBoard board) {
+        for (int row = 0; row < board.getBoardHeight() - maxHeight; row++) {
+            if (board.getRowMask(row) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // bottom rows of the board packed into the window
+    private long pack(GameBoard board) {
+        int height = board.getBoardHeight();
+        long field = 0L;
+        for (int row = 0; row < maxHeight; row++) {
+            int boardRow = height - maxHeight + row;
+            if (boardRow >= 0) {
+                field |= board.getRowMask(boardRow) << (row * width);
+            }
+        }
+        return field;
+    }
+
+    // the bottom rows of the window
+    private long rowsMask(int rows) {
+        return rows == maxHeight ? frameMask : frameMask & ~((1L << ((maxHeight - rows) * width)) - 1);
+    }
+
+    // open addressing set of (field, rows, depth) states with no solution, grows by doubling
+    private static final class DeadStates {
+        private long[] fields = new long[1 << 12];
+        private int[] tags = new int[1 << 12]; // (depth + 1) | rows << 8, 0 marks a free slot
+        private int size;
+
+        boolean contains(long field, int rows, int depth) {
+            int tag = tag(rows, depth);
+            int mask = fields.length - 1;
+            for (int slot = hash(field, tag) & mask; tags[slot] != 0; slot = (slot + 1) & mask) {
+                if (fields[slot] == field && tags[slot] == tag) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long field, int rows, int depth) {
+            if (2 * (size + 1) > fields.length) {
+                grow();
+            }
+            insert(field, tag(rows, depth));
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(tags, 0);
+                size = 0;
+            }
+        }
+
+        private void insert(long field, int tag) {
+            int mask = fields.length - 1;
+            int slot = hash(field, tag) & mask;
+            while (tags[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            fields[slot] = field;
+            tags[slot] = tag;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldFields = fields;
+            int[] oldTags = tags;
+            fields = new long[oldFields.length * 2];
+            tags = new int[oldTags.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldFields.length; slot++) {
+                if (oldTags[slot] != 0) {
+                    insert(oldFields[slot], oldTags[slot]);
+                }
+            }
+        }
+
+        private static int tag(int rows, int depth) {
+            return (depth + 1) | rows << 8;
+        }
+
+        private static int hash(long field, int tag) {
+            long h = (field ^ ((long) tag << 40)) * 0x9E37_79B9_7F4A_7C15L;
+            return (int) (h >>> 32);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Compiles data-defined piece sets into shape types with deduplicated orientation tables
+// Each piece is given once in its spawn orientation; rotations are generated and cut at the first repeat, so the
+// symmetry of a piece (1, 2 or 4 distinct orientations) is detected instead of listed. Pieces flagged "mirrored" also
+// get their reflection as a separate piece unless the reflection is one of their own rotations.
+final class PieceCompiler {
+    static final int MAX_PIECE_SIZE = 5; // GameBoard's make/unmake footprint
+    private static final String RESOURCE_DIR = "/pieces/";
+
+    // one parsed piece block
+    record Definition(String name, String color, boolean mirrored, boolean[][] pattern) {}
+
+    private PieceCompiler() {
+    }
+
+    // compiles src/main/resources/pieces/<name>.txt
+    static List<TetrisShape.ShapeType> compileResource(String setName) {
+        try (InputStream in = PieceCompiler.class.getResourceAsStream(RESOURCE_DIR + setName + ".txt")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown piece set: " + setName);
+            }
+            return compile(parse(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read piece set " + setName, e);
+        }
+    }
+
+    static List<TetrisShape.ShapeType> compile(List<Definition> definitions) {
+        List<TetrisShape.ShapeType> types = new ArrayList<>();
+        Set<String> seenShapes = new HashSet<>(); // canonical keys of every orientation compiled so far
+        for (Definition definition : definitions) {
+            List<boolean[][]> rotations = distinctRotations(definition.pattern());
+            addType(types, seenShapes, definition.name(), definition.color(), rotations);
+
+            if (definition.mirrored()) {
+                boolean[][] mirror = mirror(definition.pattern());
+                if (!containsShape(rotations, mirror)) {
+                    addType(types, seenShapes, definition.name() + "'", definition.color(), distinctRotations(mirror));
+                }
+            }
+        }
+        return types;
+    }
+
+    private static void addType(List<TetrisShape.ShapeType> types, Set<String> seenShapes, String name, String color,
+                                List<boolean[][]> rotations) {
+        for (boolean[][] rotation : rotations) {
+            if (!seenShapes.add(key(rotation))) {
+                throw new IllegalArgumentException("Piece " + name + " duplicates an earlier piece of the set");
+            }
+        }
+        types.add(new TetrisShape.ShapeType(name, color, rotations));
+    }
+
+    /**
+     * Parses piece blocks: a header line "name color [mirrored]" followed by pattern rows of '#' and '.'.
+     * Blocks are separated by blank lines; lines starting with "# ", or a lone '#' outside a block, are comments.
+     */
+    static List<Definition> parse(Reader source) throws IOException {
+        List<Definition> definitions = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String[] header = null;
+        List<String> rows = new ArrayList<>();
+
+        for (String line = reader.readLine(); ; line = reader.readLine()) {
+            if (line != null && (line.startsWith("# ") || line.equals("#") && header == null)) {
+                continue; // comment
+            }
+            if (line == null || line.isBlank()) {
+                if (header != null) {
+                    definitions.add(define(header, rows));
+                    header = null;
+                    rows.clear();
+                }
+                if (line == null) {
+                    return definitions;
+                }
+            } else if (header == null) {
+                header = line.trim().split("\\s+");
+            } else {
+                rows.add(line.trim());
+            }
+        }
+    }
+
+    private static Definition define(String[] header, List<String> rows) {
+        String name = header[0];
+        if (header.length < 2 || header.length > 3 || (header.length == 3 && !header[2].equals("mirrored"))) {
+            throw new IllegalArgumentException("Piece header must be 'name color [mirrored]': " + String.join(" ", header));
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Piece " + name + " has no cells");
+        }
+
+        int width = rows.stream().mapToInt(String::length).max().orElse(0);
+        boolean[][] pattern = new boolean[rows.size()][width];
+        for (int row = 0; row < rows.size(); row++) {
+            String cells = rows.get(row);
+            for (int col = 0; col < cells.length(); col++) {
+                char cell = cells.charAt(col);
+                if (cell != '#' && cell != '.') {
+                    throw new IllegalArgumentException("Piece " + name + " uses '" + cell + "', only '#' and '.' are allowed");
+                }
+                pattern[row][col] = cell == '#';
+            }
+        }
+        pattern = trim(pattern);
+        if (pattern.length > MAX_PIECE_SIZE || pattern[0].length > MAX_PIECE_SIZE) {
+            throw new IllegalArgumentException("Piece " + name + " exceeds " + MAX_PIECE_SIZE + "x" + MAX_PIECE_SIZE + " cells");
+        }
+        if (!isConnected(pattern)) {
+            throw new IllegalArgumentException("Piece " + name + " is not a connected polyomino");
+        }
+        return new Definition(name, header[1], header.length == 3, pattern);
+    }
+
+    // rotations 0, 1, ... clockwise until the spawn orientation comes back
+    static List<boolean[][]> distinctRotations(boolean[][] pattern) {
+        List<boolean[][]> rotations = new ArrayList<>();
+        String spawnKey = key(pattern);
+        boolean[][] rotation = pattern;
+        do {
+            rotations.add(rotation);
+            rotation = TetrisShape.rotatePattern(rotation);
+        } while (!key(rotation).equals(spawnKey));
+        return rotations;
+    }
+
+    private static boolean containsShape(List<boolean[][]> rotations, boolean[][] pattern) {
+        String target = key(pattern);
+        return rotations.stream().anyMatch(rotation -> key(rotation).equals(target));
+    }
+
+    private static boolean[][] mirror(boolean[][] pattern) {
+        boolean[][] mirrored = new boolean[pattern.length][pattern[0].length];
+        for (int row = 0; row < pattern.length; row++) {
+            for (int col = 0; col < pattern[row].length; col++) {
+                mirrored[row][pattern[row].length - 1 - col] = pattern[row][col];
+            }
+        }
+        return mirrored;
+    }
+
+    // drops empty border rows and columns
+    private static boolean[][] trim(boolean[][] pattern) {
+        int top = Integer.MAX_VALUE, bottom = -1, left = Integer.MAX_VALUE, right = -1;
+        for (int row = 0; row < pattern.length; row++) {
+            for (int col = 0; col < pattern[row].length; col++) {
+                if (pattern[row][col]) {
+                    top = Math.min(top, row);
+                    bottom = Math.max(bottom, row);
+                    left = Math.min(left, col);
+                    right = Math.max(right, col);
+                }
+            }
+        }
+        if (bottom < 0) {
+            throw new IllegalArgumentException("Piece has no filled cells");
+        }
+        boolean[][] trimmed = new boolean[bottom - top + 1][right - left + 1];
+        for (int row = top; row <= bottom; row++) {
+            System.arraycopy(pattern[row], left, trimmed[row - top], 0, right - left + 1);
+        }
+        return trimmed;
+    }
+
+    // flood fill from the first filled cell reaches every filled cell
+    private static boolean isConnected(boolean[][] pattern) {
+        int height = pattern.length;
+        int width = pattern[0].length;
+        boolean[][] reached = new boolean[height][width];
+        List<int[]> stack = new ArrayList<>();
+        int cells = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (pattern[row][col] && cells++ == 0) {
+                    stack.add(new int[] {row, col});
+                    reached[row][col] = true;
+                }
+            }
+        }
+
+        int visited = 0;
+        while (!stack.isEmpty()) {
+            int[] cell = stack.remove(stack.size() - 1);
+            visited++;
+            for (int[] step : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+                int row = cell[0] + step[0];
+                int col = cell[1] + step[1];
+                if (row >= 0 && row < height && col >= 0 && col < width && pattern[row][col] && !reached[row][col]) {
+                    reached[row][col] = true;
+                    stack.add(new int[] {row, col});
+                }
+            }
+        }
+        return visited == cells;
+    }
+
+    // dimensions plus cells, equal for identical orientations
+    private static String key(boolean[][] pattern) {
+        StringBuilder key = new StringBuilder().append(pattern.length).append('x').append(pattern[0].length).append(':');
+        for (boolean[] row : pattern) {
+            for (boolean cell : row) {
+                key.append(cell ? '#' : '.');
+            }
+        }
+        return key.toString();
+    }
+}
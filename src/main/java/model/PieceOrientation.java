@@ -0,0 +1,74 @@
+package model;
+
+// Precomputed data for one rotation of a piece: per-row cell masks and the bottom edge used for landing
+public final class PieceOrientation {
+    private final TetrisShape.ShapeType type;
+    private final int rotation;
+    private final int width;
+    private final int height;
+    private final String color;
+    private final long[] rowMasks; // bit n set when column n of that piece row is filled
+    private final int[] bottom;    // lowest filled piece row per piece column
+
+    PieceOrientation(TetrisShape.ShapeType type, int rotation, boolean[][] pattern, String color) {
+        this.type = type;
+        this.rotation = rotation;
+        this.height = pattern.length;
+        this.width = pattern[0].length;
+        this.color = color;
+        this.rowMasks = new long[height];
+        this.bottom = new int[width];
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (pattern[row][col]) {
+                    rowMasks[row] |= 1L << col;
+                    bottom[col] = row; // rows are scanned top down, the last one wins
+                }
+            }
+        }
+    }
+
+    public TetrisShape.ShapeType getType() {
+        return type;
+    }
+
+    // clockwise quarter turns from the spawn orientation
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public long getRowMask(int row) {
+        return rowMasks[row];
+    }
+
+    public boolean isCellFilled(int row, int col) {
+        return row >= 0 && row < height && col >= 0 && col < width && (rowMasks[row] & (1L << col)) != 0;
+    }
+
+    /**
+     * Row where the piece comes to rest when hard dropped from the top in the given column,
+     * computed from the board's column tops in O(width) instead of stepping down row by row.
+     * Matches the row-by-row drop: returns -1 when the piece does not fit at the top row.
+     * Pieces moved under overhangs still need the row-by-row check.
+     */
+    public int landingRow(int[] columnTops, int col) {
+        int row = Integer.MAX_VALUE;
+        for (int c = 0; c < width; c++) {
+            row = Math.min(row, columnTops[col + c] - 1 - bottom[c]);
+        }
+        return Math.max(row, -1);
+    }
+}
@@ -0,0 +1,74 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A named, ordered list of piece types the engine draws from, compiled once from resources/pieces/<name>.txt
+public final class PieceSet {
+    public static final String TETROMINOES = "tetrominoes";
+    public static final String PENTOMINOES = "pentominoes";
+    public static final List<String> SHIPPED = List.of(TETROMINOES, PENTOMINOES); // sets in resources/pieces
+
+    private static final Map<String, PieceSet> LOADED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final TetrisShape.ShapeType[] types;
+
+    private PieceSet(String name, TetrisShape.ShapeType[] types) {
+        this.name = name;
+        this.types = types;
+    }
+
+    // the seven tetrominoes, ShapeType.values()
+    public static PieceSet standard() {
+        return byName(TETROMINOES);
+    }
+
+    // loads and compiles the set on first use, throws IllegalArgumentException for unknown names
+    public static PieceSet byName(String name) {
+        return LOADED.computeIfAbsent(name, setName -> setName.equals(TETROMINOES)
+                ? new PieceSet(setName, TetrisShape.ShapeType.values())
+                : new PieceSet(setName, PieceCompiler.compileResource(setName).toArray(new TetrisShape.ShapeType[0])));
+    }
+
+    // a piece of any shipped set by name, loading the sets first; for peers that send pieces by name
+    public static TetrisShape.ShapeType pieceNamed(String name) {
+        for (String set : SHIPPED) {
+            byName(set);
+        }
+        return TetrisShape.ShapeType.valueOf(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    public TetrisShape.ShapeType get(int index) {
+        return types[index];
+    }
+
+    // position of the type in this set, -1 when it belongs to another set
+    public int indexOf(TetrisShape.ShapeType type) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public List<TetrisShape.ShapeType> getTypes() {
+        return List.of(types);
+    }
+
+    // uniformly random piece, draws one int from the generator like the engine always has
+    public TetrisShape.ShapeType random(Random random) {
+        return types[random.nextInt(types.length)];
+    }
+}
@@ -0,0 +1,210 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Small learned scoring model for placements: linear, or one ReLU hidden layer, over PolicyAI's board features
+// Parameters are flat float[] arrays and a whole batch of candidates is scored per call, so inference never boxes
+// or allocates. Instances are immutable and can be shared between threads.
+//
+// File layout (big endian):
+//   header : magic int, version short, feature count byte, hidden units short
+//   linear : weights[features], bias
+//   mlp    : hidden weights[hidden * features] (row per unit), hidden biases[hidden], output weights[hidden], output bias
+public final class PlacementPolicy {
+    public static final String DEFAULT_RESOURCE = "/policy/placement.bin";
+
+    static final int MAGIC = 0x54504F4C; // "TPOL"
+    static final short VERSION = 1;
+
+    private final int featureCount;
+    private final int hiddenUnits;      // 0 for a linear model
+    private final float[] hiddenWeights; // unused when linear
+    private final float[] hiddenBiases;
+    private final float[] outputWeights; // featureCount long when linear, hiddenUnits long otherwise
+    private final float outputBias;
+
+    private PlacementPolicy(int featureCount, int hiddenUnits, float[] hiddenWeights, float[] hiddenBiases,
+                            float[] outputWeights, float outputBias) {
+        this.featureCount = featureCount;
+        this.hiddenUnits = hiddenUnits;
+        this.hiddenWeights = hiddenWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static PlacementPolicy linear(float[] weights, float bias) {
+        return new PlacementPolicy(weights.length, 0, new float[0], new float[0], weights.clone(), bias);
+    }
+
+    public static PlacementPolicy mlp(int featureCount, float[] hiddenWeights, float[] hiddenBiases,
+                                      float[] outputWeights, float outputBias) {
+        int hiddenUnits = hiddenBiases.length;
+        if (hiddenUnits == 0 || hiddenWeights.length != hiddenUnits * featureCount || outputWeights.length != hiddenUnits) {
+            throw new IllegalArgumentException("Layer sizes do not match " + featureCount + " features and "
+                    + hiddenUnits + " hidden units");
+        }
+        return new PlacementPolicy(featureCount, hiddenUnits, hiddenWeights.clone(), hiddenBiases.clone(),
+                outputWeights.clone(), outputBias);
+    }
+
+    // rebuilds a model from parameters in the order parameterCount() and getParameters() use
+    public static PlacementPolicy fromParameters(int featureCount, int hiddenUnits, float[] parameters) {
+        if (parameters.length != parameterCount(featureCount, hiddenUnits)) {
+            throw new IllegalArgumentException("Expected " + parameterCount(featureCount, hiddenUnits)
+                    + " parameters, got " + parameters.length);
+        }
+        if (hiddenUnits == 0) {
+            float[] weights = new float[featureCount];
+            System.arraycopy(parameters, 0, weights, 0, featureCount);
+            return linear(weights, parameters[featureCount]);
+        }
+        int offset = 0;
+        float[] hiddenWeights = new float[hiddenUnits * featureCount];
+        System.arraycopy(parameters, offset, hiddenWeights, 0, hiddenWeights.length);
+        offset += hiddenWeights.length;
+        float[] hiddenBiases = new float[hiddenUnits];
+        System.arraycopy(parameters, offset, hiddenBiases, 0, hiddenUnits);
+        offset += hiddenUnits;
+        float[] outputWeights = new float[hiddenUnits];
+        System.arraycopy(parameters, offset, outputWeights, 0, hiddenUnits);
+        offset += hiddenUnits;
+        return mlp(featureCount, hiddenWeights, hiddenBiases, outputWeights, parameters[offset]);
+    }
+
+    public static int parameterCount(int featureCount, int hiddenUnits) {
+        return hiddenUnits == 0 ? featureCount + 1 : hiddenUnits * (featureCount + 2) + 1;
+    }
+
+    public float[] getParameters() {
+        float[] parameters = new float[parameterCount(featureCount, hiddenUnits)];
+        int offset = 0;
+        if (hiddenUnits > 0) {
+            System.arraycopy(hiddenWeights, 0, parameters, offset, hiddenWeights.length);
+            offset += hiddenWeights.length;
+            System.arraycopy(hiddenBiases, 0, parameters, offset, hiddenUnits);
+            offset += hiddenUnits;
+        }
+        System.arraycopy(outputWeights, 0, parameters, offset, outputWeights.length);
+        parameters[offset + outputWeights.length] = outputBias;
+        return parameters;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public int getHiddenUnits() {
+        return hiddenUnits;
+    }
+
+    /**
+     * Scores count candidates in one pass. features holds count rows of getFeatureCount() values,
+     * scores receives one value per row. hidden is scratch space of at least count * getHiddenUnits()
+     * floats and may be null for linear models. The layer loops run over the whole batch, so each
+     * weight row is streamed once per batch instead of once per candidate.
+     */
+    public void score(float[] features, int count, float[] hidden, float[] scores) {
+        int inputs = featureCount;
+        if (hiddenUnits == 0) {
+            for (int i = 0, base = 0; i < count; i++, base += inputs) {
+                float sum = outputBias;
+                for (int f = 0; f < inputs; f++) {
+                    sum += outputWeights[f] * features[base + f];
+                }
+                scores[i] = sum;
+            }
+            return;
+        }
+
+        int units = hiddenUnits;
+        for (int unit = 0, row = 0; unit < units; unit++, row += inputs) {
+            float bias = hiddenBiases[unit];
+            for (int i = 0, base = 0; i < count; i++, base += inputs) {
+                float sum = bias;
+                for (int f = 0; f < inputs; f++) {
+                    sum += hiddenWeights[row + f] * features[base + f];
+                }
+                hidden[i * units + unit] = Math.max(sum, 0f);
+            }
+        }
+        for (int i = 0, base = 0; i < count; i++, base += units) {
+            float sum = outputBias;
+            for (int unit = 0; unit < units; unit++) {
+                sum += outputWeights[unit] * hidden[base + unit];
+            }
+            scores[i] = sum;
+        }
+    }
+
+    public static PlacementPolicy load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    // the model shipped in resources/policy, trained with util.PolicyTrainer
+    public static PlacementPolicy getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final PlacementPolicy INSTANCE = loadDefault();
+
+        private static PlacementPolicy loadDefault() {
+            try (InputStream in = PlacementPolicy.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing policy resource " + DEFAULT_RESOURCE);
+                }
+                return read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + DEFAULT_RESOURCE, e);
+            }
+        }
+    }
+
+    public static PlacementPolicy read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a placement policy file");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported placement policy version: " + version);
+        }
+        int featureCount = in.readUnsignedByte();
+        int hiddenUnits = in.readUnsignedShort();
+        float[] parameters = new float[parameterCount(featureCount, hiddenUnits)];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = in.readFloat();
+        }
+        return fromParameters(featureCount, hiddenUnits, parameters);
+    }
+
+    public void save(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(featureCount);
+        out.writeShort(hiddenUnits);
+        for (float parameter : getParameters()) {
+            out.writeFloat(parameter);
+        }
+        out.flush();
+    }
+}
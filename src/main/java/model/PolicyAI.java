@@ -0,0 +1,183 @@
+package model;
+
+import java.util.Arrays;
+
+// Greedy AI that ranks hard-drop placements with a learned PlacementPolicy instead of fixed heuristic weights
+// The features of every candidate are written into one float[] batch straight from the parent's row masks (piece
+// overlaid, completed rows skipped, as TransitionEvaluator does), then the policy scores the whole batch at once
+public class PolicyAI implements AIStrategy {
+    // one row of features per candidate, in this order
+    public static final int FEATURE_COUNT = 9;
+    static final int LANDING_HEIGHT = 0;     // middle of the piece, in rows above the floor
+    static final int ERODED_CELLS = 1;       // rows cleared * piece cells in them
+    static final int ROW_TRANSITIONS = 2;
+    static final int COLUMN_TRANSITIONS = 3;
+    static final int HOLES = 4;
+    static final int WELL_SUMS = 5;
+    static final int AGGREGATE_HEIGHT = 6;
+    static final int BUMPINESS = 7;
+    static final int MAX_HEIGHT = 8;
+
+    private final PlacementPolicy policy;
+
+    public PolicyAI() {
+        this(PlacementPolicy.getDefault());
+    }
+
+    public PolicyAI(PlacementPolicy policy) {
+        if (policy.getFeatureCount() != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Policy expects " + policy.getFeatureCount()
+                    + " features, PolicyAI provides " + FEATURE_COUNT);
+        }
+        this.policy = policy;
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece) {
+        TetrisShape.ShapeType type = piece.getType();
+        int width = board.getBoardWidth();
+        int height = board.getBoardHeight();
+        int[] columnTops = new int[width];
+        board.fillColumnTops(columnTops);
+        long[] masks = new long[height];
+        for (int row = 0; row < height; row++) {
+            masks[row] = board.getRowMask(row);
+        }
+
+        // gather every candidate first, moves[i] = rotation << 8 | column
+        int maxCandidates = type.getUniqueRotations() * width;
+        float[] features = new float[maxCandidates * FEATURE_COUNT];
+        int[] moves = new int[maxCandidates];
+        int[] heights = new int[width];
+        int[] wellRuns = new int[width];
+        int count = 0;
+        TetrisAI.Move toppedOut = null; // placements that stick out above the board, used only when nothing else fits
+        for (int rotation = 0; rotation < type.getUniqueRotations(); rotation++) {
+            PieceOrientation orientation = type.getOrientation(rotation);
+            for (int col = 0; col + orientation.getWidth() <= width; col++) {
+                int row = orientation.landingRow(columnTops, col);
+                if (row < 0) {
+                    if (toppedOut == null) {
+                        toppedOut = new TetrisAI.Move(col, rotation);
+                    }
+                    continue;
+                }
+                extractFeatures(masks, width, orientation, col, row, features, count * FEATURE_COUNT, heights, wellRuns);
+                moves[count++] = rotation << 8 | col;
+            }
+        }
+        if (count == 0) {
+            return toppedOut;
+        }
+
+        float[] scores = new float[count];
+        float[] hidden = policy.getHiddenUnits() == 0 ? null : new float[count * policy.getHiddenUnits()];
+        policy.score(features, count, hidden, scores);
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return new TetrisAI.Move(moves[best] & 0xFF, moves[best] >>> 8);
+    }
+
+    // features of one hard drop on a board, for tools that record or train on them; row must not be negative
+    public static void extractFeatures(GameBoard board, PieceOrientation piece, int col, int row, float[] out, int offset) {
+        int width = board.getBoardWidth();
+        long[] masks = new long[board.getBoardHeight()];
+        for (int r = 0; r < masks.length; r++) {
+            masks[r] = board.getRowMask(r);
+        }
+        extractFeatures(masks, width, piece, col, row, out, offset, new int[width], new int[width]);
+    }
+
+    /**
+     * Writes the FEATURE_COUNT features of the board reached by dropping the piece at (x, y) into
+     * out[offset...]. One top-down pass over the masks; rows the piece completes are skipped and the
+     * rows above them counted as having dropped. heights and wellRuns are width-long scratch arrays.
+     */
+    static void extractFeatures(long[] masks, int width, PieceOrientation piece, int x, int y,
+                                float[] out, int offset, int[] heights, int[] wellRuns) {
+        int height = masks.length;
+        long fullRow = width == Long.SIZE ? -1L : (1L << width) - 1;
+        long rightWall = 1L << (width - 1);
+        int end = Math.min(y + piece.getHeight(), height);
+
+        int clearedRows = 0;
+        int clearedPieceCells = 0;
+        for (int row = y; row < end; row++) {
+            long cells = piece.getRowMask(row - y) << x;
+            if (cells != 0 && (masks[row] | cells) == fullRow) {
+                clearedRows++;
+                clearedPieceCells += Long.bitCount(cells);
+            }
+        }
+
+        Arrays.fill(heights, 0);
+        Arrays.fill(wellRuns, 0);
+        int rowTransitions = 2 * clearedRows; // cleared rows come back as empty rows at the top
+        int columnTransitions = 0;
+        int holes = 0;
+        int wellSum = 0;
+        int clearedBelow = clearedRows;
+        long covered = 0L;
+        long previous = 0L;
+        long wells = 0L; // columns whose well run continues into the current row
+        for (int row = 0; row < height; row++) {
+            long mask = masks[row];
+            if (row >= y && row < end) {
+                long cells = piece.getRowMask(row - y) << x;
+                mask |= cells;
+                if (cells != 0 && mask == fullRow) {
+                    clearedBelow--;
+                    continue;
+                }
+            }
+
+            // both walls count as filled
+            rowTransitions += Long.bitCount((mask ^ ((mask << 1) | 1L)) & fullRow) + (int) ((~mask >>> (width - 1)) & 1L);
+            columnTransitions += Long.bitCount(mask ^ previous);
+            holes += Long.bitCount(covered & ~mask);
+
+            long rowWells = ~mask & ((mask << 1) | 1L) & ((mask >>> 1) | rightWall) & fullRow & ~covered;
+            for (long ended = wells & ~rowWells; ended != 0; ended &= ended - 1) {
+                wellRuns[Long.numberOfTrailingZeros(ended)] = 0;
+            }
+            for (long open = rowWells; open != 0; open &= open - 1) {
+                wellSum += ++wellRuns[Long.numberOfTrailingZeros(open)];
+            }
+            wells = rowWells;
+
+            int level = height - row - clearedBelow;
+            for (long tops = mask & ~covered; tops != 0; tops &= tops - 1) {
+                heights[Long.numberOfTrailingZeros(tops)] = level;
+            }
+            covered |= mask;
+            previous = mask;
+        }
+        columnTransitions += Long.bitCount(previous ^ fullRow); // the floor is filled
+
+        int aggregateHeight = 0;
+        int maxHeight = 0;
+        int bumpiness = 0;
+        for (int col = 0; col < width; col++) {
+            aggregateHeight += heights[col];
+            maxHeight = Math.max(maxHeight, heights[col]);
+            if (col > 0) {
+                bumpiness += Math.abs(heights[col] - heights[col - 1]);
+            }
+        }
+
+        out[offset + LANDING_HEIGHT] = (2 * (height - y) - piece.getHeight() + 1) * 0.5f;
+        out[offset + ERODED_CELLS] = clearedRows * clearedPieceCells;
+        out[offset + ROW_TRANSITIONS] = rowTransitions;
+        out[offset + COLUMN_TRANSITIONS] = columnTransitions;
+        out[offset + HOLES] = holes;
+        out[offset + WELL_SUMS] = wellSum;
+        out[offset + AGGREGATE_HEIGHT] = aggregateHeight;
+        out[offset + BUMPINESS] = bumpiness;
+        out[offset + MAX_HEIGHT] = maxHeight;
+    }
+}
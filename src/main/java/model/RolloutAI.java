@@ -0,0 +1,226 @@
+package model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Monte Carlo AI: scores each candidate placement by the average outcome of short random-piece rollouts
+// Rollouts use root parallelisation: every worker owns a board copy and RNG and searches all candidates,
+// the per-candidate totals are merged once the rollout or time budget is spent. A rollout budget is split into
+// fixed per-worker quotas, so the result does not depend on how the workers are scheduled
+public class RolloutAI implements AIStrategy {
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int LINE_REWARD = 40;       // per cleared line during a rollout
+    private static final int TOP_OUT_PENALTY = -10_000;
+    private static final long NO_MOVE = -1L;           // undo words never have the sign bit set
+
+    private final BoardEvaluator evaluator = new BoardEvaluator();
+    private final TetrisAI fallback = new TetrisAI();
+    private final ExecutorService workers; // null with one thread, rollouts then run on the caller
+    private final int threads;
+    private final int depth;
+    private final long timeBudgetNanos; // 0 when limited by count only
+    private final int rolloutBudget;    // total rollouts per decision, Integer.MAX_VALUE when limited by time
+    private final SplittableRandom seeds;
+
+    // a candidate placement of the root piece
+    private record Candidate(PieceOrientation piece, int column, int row) {}
+
+    private RolloutAI(long timeBudgetNanos, int rolloutBudget, int depth, int threads, long seed) {
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.rolloutBudget = rolloutBudget;
+        this.depth = depth;
+        this.threads = threads;
+        this.seeds = new SplittableRandom(seed);
+        this.workers = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "rollout-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // spends a fixed wall-clock budget per decision on all cores
+    public static RolloutAI withTimeBudget(Duration budget) {
+        return new RolloutAI(budget.toNanos(), Integer.MAX_VALUE, DEFAULT_DEPTH,
+                Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    // spends a fixed number of rollouts per decision, deterministic for a given seed and thread count
+    public static RolloutAI withRolloutCount(int rollouts, int depth, int threads, long seed) {
+        return new RolloutAI(0, rollouts, depth, threads, seed);
+    }
+
+    @Override
+    public TetrisAI.Move findBestMove(GameBoard board, TetrisShape piece) {
+        List<Candidate> candidates = findCandidates(board, piece);
+        if (candidates.size() <= 1) {
+            // nothing to compare, or only top-out placements left
+            return candidates.isEmpty() ? fallback.findBestMove(board, piece)
+                    : toMove(candidates.get(0));
+        }
+
+        long deadline = timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : Long.MAX_VALUE;
+        if (workers == null) {
+            // single thread: no hand-off, and the caller's CPU time covers the whole decision
+            SplittableRandom random;
+            synchronized (seeds) {
+                random = seeds.split();
+            }
+            return pickBest(candidates, runRollouts(board.copy(), candidates, random, 0, rolloutBudget, deadline),
+                    board, piece);
+        }
+        List<Future<long[]>> results = new ArrayList<>(threads);
+        synchronized (seeds) {
+            for (int i = 0; i < threads; i++) {
+                SplittableRandom random = seeds.split();
+                int firstCandidate = i % candidates.size();
+                // the first budget % threads workers take one rollout of the remainder each
+                int quota = rolloutBudget / threads + (i < rolloutBudget % threads ? 1 : 0);
+                results.add(workers.submit(() ->
+                        runRollouts(board.copy(), candidates, random, firstCandidate, quota, deadline)));
+            }
+        }
+
+        // merge: totals in the first half, rollout counts in the second half
+        long[] totals = new long[candidates.size() * 2];
+        try {
+            for (Future<long[]> result : results) {
+                long[] partial = result.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += partial[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback.findBestMove(board, piece);
+        } catch (ExecutionException e) {
+            System.err.println("Rollout worker failed: " + e.getCause());
+            return fallback.findBestMove(board, piece);
+        }
+        return pickBest(candidates, totals, board, piece);
+    }
+
+    // candidate with the best average outcome
+    private TetrisAI.Move pickBest(List<Candidate> candidates, long[] totals, GameBoard board, TetrisShape piece) {
+        Candidate best = null;
+        double bestAverage = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < candidates.size(); i++) {
+            long count = totals[candidates.size() + i];
+            if (count == 0) {
+                continue;
+            }
+            double average = (double) totals[i] / count;
+            if (average > bestAverage) {
+                bestAverage = average;
+                best = candidates.get(i);
+            }
+        }
+        return best != null ? toMove(best) : fallback.findBestMove(board, piece);
+    }
+
+    // stops the worker threads, the strategy must not be used afterwards
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    // every placement that lands fully inside the board
+    private static List<Candidate> findCandidates(GameBoard board, TetrisShape piece) {
+        List<Candidate> candidates = new ArrayList<>();
+        int[] columnTops = new int[board.getBoardWidth()];
+        board.fillColumnTops(columnTops);
+
+        int maxRotations = TetrisAI.getMaxRotationsForPiece(piece.getType());
+        for (int rotation = 0; rotation < maxRotations; rotation++) {
+            PieceOrientation orientation = TetrisShape.getOrientation(piece.getType(), rotation);
+            for (int col = 0; col + orientation.getWidth() <= board.getBoardWidth(); col++) {
+                int row = orientation.landingRow(columnTops, col);
+                if (row >= 0) {
+                    candidates.add(new Candidate(orientation, col, row));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static TetrisAI.Move toMove(Candidate candidate) {
+        return new TetrisAI.Move(candidate.column(), candidate.piece().getRotation());
+    }
+
+    // one worker: cycles through the candidates until its quota of rollouts or the time runs out
+    private long[] runRollouts(GameBoard board, List<Candidate> candidates, SplittableRandom random,
+                               int firstCandidate, int quota, long deadline) {
+        int candidateCount = candidates.size();
+        long[] totals = new long[candidateCount * 2];
+        long[] undo = new long[depth + 1];
+        int[] columnTops = new int[board.getBoardWidth()];
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+
+        int next = firstCandidate;
+        for (int done = 0; done < quota && System.nanoTime() < deadline; done++) {
+            int index = next;
+            Candidate candidate = candidates.get(index);
+            next = (next + 1) % candidateCount;
+
+            undo[0] = board.makeMove(candidate.piece(), candidate.column(), candidate.row());
+            int lines = GameBoard.getRowsCleared(undo[0]);
+            int made = 1;
+            boolean toppedOut = false;
+
+            for (int step = 0; step < depth; step++) {
+                TetrisShape.ShapeType type = types[random.nextInt(types.length)];
+                long move = playDefaultPolicy(board, type, columnTops);
+                if (move == NO_MOVE) {
+                    toppedOut = true;
+                    break;
+                }
+                undo[made++] = move;
+                lines += GameBoard.getRowsCleared(move);
+            }
+
+            long outcome = toppedOut ? TOP_OUT_PENALTY : (long) lines * LINE_REWARD + evaluator.evaluateBoard(board);
+            totals[index] += outcome;
+            totals[candidateCount + index]++;
+
+            while (made > 0) {
+                board.unmakeMove(undo[--made]);
+            }
+        }
+        return totals;
+    }
+
+    // fast default policy: greedy one-ply placement using the bitmask evaluator, returns the undo word
+    private long playDefaultPolicy(GameBoard board, TetrisShape.ShapeType type, int[] columnTops) {
+        board.fillColumnTops(columnTops);
+        int bestScore = Integer.MIN_VALUE;
+        PieceOrientation bestPiece = null;
+        int bestColumn = 0;
+        int bestRow = 0;
+
+        for (int rotation = 0; rotation < TetrisAI.getMaxRotationsForPiece(type); rotation++) {
+            PieceOrientation piece = TetrisShape.getOrientation(type, rotation);
+            for (int col = 0; col + piece.getWidth() <= board.getBoardWidth(); col++) {
+                int row = piece.landingRow(columnTops, col);
+                if (row < 0) {
+                    continue;
+                }
+                long undo = board.makeMove(piece, col, row);
+                int score = evaluator.evaluateBoard(board) + GameBoard.getRowsCleared(undo) * LINE_REWARD;
+                board.unmakeMove(undo);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestPiece = piece;
+                    bestColumn = col;
+                    bestRow = row;
+                }
+            }
+        }
+        return bestPiece == null ? NO_MOVE : board.makeMove(bestPiece, bestColumn, bestRow);
+    }
+}
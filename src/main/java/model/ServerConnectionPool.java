@@ -0,0 +1,141 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+// Small pool of persistent connections to a TetrisServer, one newline framed request and response at a time each
+// A connection is borrowed for one exchange and returned, so a game asking for a move per piece reuses the
+// same socket instead of paying for connect, close and a TIME_WAIT entry every time. Connections idle longer
+// than the server would keep them are dropped, and a request that fails on a reused connection is retried
+// once on a fresh one, since the server may have closed it in the meantime.
+public final class ServerConnectionPool {
+    static final int DEFAULT_MAX_IDLE = 2;
+    static final long MAX_IDLE_NANOS = 20_000_000_000L; // below the server's idle timeout
+
+    private final String host;
+    private final int port;
+    private final int maxIdle;
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>(); // most recently used first, guarded by itself
+    private int opened; // connections ever opened, for tests and diagnostics
+
+    private static final class Connection {
+        final Socket socket;
+        final PrintWriter out;
+        final BufferedReader in;
+        long lastUsed;
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing to do, the connection is discarded either way
+            }
+        }
+    }
+
+    public ServerConnectionPool(String host, int port) {
+        this(host, port, DEFAULT_MAX_IDLE);
+    }
+
+    public ServerConnectionPool(String host, int port, int maxIdle) {
+        this.host = host;
+        this.port = port;
+        this.maxIdle = maxIdle;
+    }
+
+    // sends one request line and returns the response line
+    public String exchange(String request) throws IOException {
+        Connection connection = borrow();
+        boolean reused = connection != null;
+        if (!reused) {
+            connection = open();
+        }
+        try {
+            return exchange(connection, request);
+        } catch (IOException e) {
+            connection.close();
+            if (!reused) {
+                throw e;
+            }
+            // the server may have dropped an idle connection, a fresh one tells whether it is really gone
+            connection = open();
+            try {
+                return exchange(connection, request);
+            } catch (IOException retryFailure) {
+                connection.close();
+                throw retryFailure;
+            }
+        }
+    }
+
+    private String exchange(Connection connection, String request) throws IOException {
+        connection.out.println(request);
+        if (connection.out.checkError()) {
+            throw new IOException("Connection to " + host + ":" + port + " closed");
+        }
+        String response = connection.in.readLine();
+        if (response == null) {
+            throw new IOException("Connection to " + host + ":" + port + " closed before the response");
+        }
+        release(connection);
+        return response;
+    }
+
+    public synchronized int getOpenedConnections() {
+        return opened;
+    }
+
+    // closes every idle connection, borrowed ones are closed when they come back
+    public void close() {
+        synchronized (idle) {
+            for (Connection connection : idle) {
+                connection.close();
+            }
+            idle.clear();
+        }
+    }
+
+    private Connection open() throws IOException {
+        synchronized (this) {
+            opened++;
+        }
+        return new Connection(host, port);
+    }
+
+    // a recently used idle connection, null when there is none
+    private Connection borrow() {
+        long now = System.nanoTime();
+        synchronized (idle) {
+            for (Connection connection = idle.pollFirst(); connection != null; connection = idle.pollFirst()) {
+                if (now - connection.lastUsed < MAX_IDLE_NANOS && !connection.socket.isClosed()) {
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+        return null;
+    }
+
+    private void release(Connection connection) {
+        connection.lastUsed = System.nanoTime();
+        synchronized (idle) {
+            if (idle.size() < maxIdle) {
+                idle.addFirst(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+}
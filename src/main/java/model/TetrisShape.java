@@ -2,29 +2,117 @@ package model;
 
 import util.Point;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 // Represents a Tetris piece shape with its pattern and color
 public class TetrisShape {
     
-    public enum ShapeType {
-        I, O, T, L, J, Z, S
+    /**
+     * A piece type compiled from a data-defined piece set (see PieceCompiler and resources/pieces).
+     * Types are interned, so == compares them. The standard tetrominoes keep their familiar constants and
+     * ordinals 0-6 in I, O, T, L, J, Z, S order; types of other sets get the following ordinals as they load.
+     */
+    public static final class ShapeType {
+        private static final List<ShapeType> REGISTRY = new ArrayList<>(); // index = ordinal
+        private static final Map<String, ShapeType> BY_NAME = new HashMap<>();
+        private static final ShapeType[] STANDARD = PieceCompiler.compileResource("tetrominoes").toArray(new ShapeType[0]);
+
+        public static final ShapeType I = valueOf("I");
+        public static final ShapeType O = valueOf("O");
+        public static final ShapeType T = valueOf("T");
+        public static final ShapeType L = valueOf("L");
+        public static final ShapeType J = valueOf("J");
+        public static final ShapeType Z = valueOf("Z");
+        public static final ShapeType S = valueOf("S");
+
+        private final String name;
+        private final String color;
+        private final int ordinal;
+        private final int cellCount;
+        private final PieceOrientation[] orientations; // one per distinct rotation, index = clockwise quarter turns
+
+        ShapeType(String name, String color, List<boolean[][]> rotations) {
+            this.name = name;
+            this.color = color;
+            this.orientations = new PieceOrientation[rotations.size()];
+            for (int rotation = 0; rotation < orientations.length; rotation++) {
+                orientations[rotation] = new PieceOrientation(this, rotation, rotations.get(rotation), color);
+            }
+            int cells = 0;
+            for (int row = 0; row < orientations[0].getHeight(); row++) {
+                cells += Long.bitCount(orientations[0].getRowMask(row));
+            }
+            this.cellCount = cells;
+
+            synchronized (REGISTRY) {
+                if (BY_NAME.putIfAbsent(name, this) != null) {
+                    throw new IllegalArgumentException("Piece name already in use: " + name);
+                }
+                this.ordinal = REGISTRY.size();
+                REGISTRY.add(this);
+            }
+        }
+
+        // the standard tetrominoes, in ordinal order
+        public static ShapeType[] values() {
+            return STANDARD.clone();
+        }
+
+        // any loaded type by name, tetrominoes and the pieces of sets compiled so far
+        public static ShapeType valueOf(String name) {
+            synchronized (REGISTRY) {
+                ShapeType type = BY_NAME.get(name);
+                if (type == null) {
+                    throw new IllegalArgumentException("No piece named " + name);
+                }
+                return type;
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int ordinal() {
+            return ordinal;
+        }
+
+        public String getColor() {
+            return color;
+        }
+
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        public int getUniqueRotations() {
+            return orientations.length;
+        }
+
+        public PieceOrientation getOrientation(int rotation) {
+            return orientations[rotation];
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
     }
     
+    // unique orientations per type are compiled into each ShapeType when its piece set loads
+
     private final ShapeType type;
-    private boolean[][] pattern;
     private final String color;
     private Point position;
+    private int rotation = 0; // index into the type's orientations, below getUniqueRotations
+    private PieceOrientation orientation;
     
     public TetrisShape(ShapeType type, int x, int y) {
         this.type = type;
-        this.pattern = createPattern(type);
-        this.color = getColorForType(type);
-        this.position = new Point(x, y);
-    }
-    
-    // constructor for server use with shape type
-    public TetrisShape(ShapeType type, boolean[][] customPattern, int x, int y) {
-        this.type = type;
-        this.pattern = (customPattern != null && customPattern.length > 0) ? customPattern : createPattern(type);
+        this.orientation = type.getOrientation(0);
         this.color = getColorForType(type);
         this.position = new Point(x, y);
     }
@@ -38,18 +126,19 @@ public class TetrisShape {
     }
     
     public int getWidth() {
-        return pattern[0].length;
+        return orientation.getWidth();
     }
     
     public int getHeight() {
-        return pattern.length;
+        return orientation.getHeight();
     }
     
     public boolean isCellFilled(int row, int col) {
-        if (row < 0 || row >= getHeight() || col < 0 || col >= getWidth()) {
-            return false;
-        }
-        return pattern[row][col];
+        return orientation.isCellFilled(row, col);
+    }
+
+    public PieceOrientation getCurrentOrientation() {
+        return orientation;
     }
     
     public int getX() {
@@ -78,29 +167,30 @@ public class TetrisShape {
     
     // static method to get width without creating object
     public static int getWidthForType(ShapeType type) {
-        return createPattern(type)[0].length;
+        return type.getOrientation(0).getWidth();
     }
     
-    // rotates the piece 90 degrees clockwise
+    // rotates the piece 90 degrees clockwise, symmetric pieces cycle through fewer orientations
     public void rotate() {
-        // O-shape doesn't need rotation
-        if (type == ShapeType.O) {
-            return;
-        }
-        
-        pattern = rotatePattern(pattern);
+        rotation = nextRotation();
+        orientation = type.getOrientation(rotation);
+    }
+
+    public int getRotation() {
+        return rotation;
     }
     
-    // creates a rotated copy without modifying this piece (for testing)
-    public boolean[][] getRotatedPattern() {
-        if (type == ShapeType.O) {
-            return pattern;
-        }
-        return rotatePattern(pattern);
+    // orientation the next rotate() would switch to, without modifying this piece
+    public PieceOrientation getRotatedOrientation() {
+        return type.getOrientation(nextRotation());
+    }
+
+    private int nextRotation() {
+        return (rotation + 1) % type.getUniqueRotations();
     }
     
-    // rotates a 2D boolean array 90 degrees clockwise
-    private boolean[][] rotatePattern(boolean[][] original) {
+    // rotates a 2D boolean array 90 degrees clockwise, used when compiling piece sets
+    static boolean[][] rotatePattern(boolean[][] original) {
         int originalRows = original.length;
         int originalCols = original[0].length;
         
@@ -117,53 +207,18 @@ public class TetrisShape {
         return rotated;
     }
     
-    private static boolean[][] createPattern(ShapeType type) {
-        return switch (type) {
-            case I -> new boolean[][] {
-                {true},
-                {true},
-                {true},
-                {true}
-            };
-            case O -> new boolean[][] {
-                {true, true},
-                {true, true}
-            };
-            case T -> new boolean[][] {
-                {false, true, false},
-                {true, true, true}
-            };
-            case L -> new boolean[][] {
-                {true, false},
-                {true, false},
-                {true, true}
-            };
-            case J -> new boolean[][] {
-                {false, true},
-                {false, true},
-                {true, true}
-            };
-            case Z -> new boolean[][] {
-                {true, true, false},
-                {false, true, true}
-            };
-            case S -> new boolean[][] {
-                {false, true, true},
-                {true, true, false}
-            };
-        };
+    // number of distinct orientations a type has under rotation
+    public static int getUniqueRotations(ShapeType type) {
+        return type.getUniqueRotations();
     }
-    
+
+    // precomputed orientation after the given number of clockwise rotations (below getUniqueRotations)
+    public static PieceOrientation getOrientation(ShapeType type, int rotation) {
+        return type.getOrientation(rotation);
+    }
+
     // utility method to get color for shape type
-    private static String getColorForType(ShapeType type) {
-        return switch (type) {
-            case I -> "cyan";
-            case O -> "yellow";
-            case T -> "purple";
-            case L -> "orange";
-            case J -> "blue";
-            case Z -> "green";
-            case S -> "red";
-        };
-    }
-}
\ No newline at end of file
+    static String getColorForType(ShapeType type) {
+        return type.getColor();
+    }
+}
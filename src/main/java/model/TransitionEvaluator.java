@@ -0,0 +1,266 @@
+package model;
+
+import java.util.Arrays;
+
+// Dellacherie-style evaluator for boards up to 16 columns wide and 255 rows high, per-row features come from tables indexed by row mask
+// Features: landing height, eroded piece cells, row and column transitions, holes and well sums. A placement is
+// scored from the parent board's row masks with the piece overlaid, so candidates need no board copy or makeMove.
+public final class TransitionEvaluator {
+    public static final int MAX_WIDTH = 16;
+    public static final int MAX_HEIGHT = (1 << 8) - 1; // well depths are counted in DEPTH_PLANES bits
+    private static final int DEPTH_PLANES = 8;
+
+    // El-Tetris weights scaled by 100, landing height is measured in half rows
+    static final int LANDING_HEIGHT_WEIGHT = -225;
+    static final int ERODED_CELLS_WEIGHT = 342;
+    static final int ROW_TRANSITIONS_WEIGHT = -322;
+    static final int COLUMN_TRANSITIONS_WEIGHT = -935;
+    static final int HOLES_WEIGHT = -790;
+    static final int WELL_SUMS_WEIGHT = -339;
+
+    // built once for every supported width, 2^width entries each (about 400 KB in total)
+    private static final TransitionEvaluator[] BY_WIDTH = new TransitionEvaluator[MAX_WIDTH + 1];
+
+    static {
+        for (int width = 1; width <= MAX_WIDTH; width++) {
+            BY_WIDTH[width] = new TransitionEvaluator(width);
+        }
+    }
+
+    private final int width;
+    private final long fullRow;
+    private final byte[] rowTransitions; // filled/empty changes along the row, both walls count as filled
+    private final char[] wellCells;      // empty cells with a filled cell or wall on both sides, char keeps bit 15 unsigned
+
+    private TransitionEvaluator(int width) {
+        int entries = 1 << width;
+        this.width = width;
+        this.fullRow = entries - 1;
+        this.rowTransitions = new byte[entries];
+        this.wellCells = new char[entries];
+
+        long wallRight = 1L << (width - 1);
+        long pairs = (1L << (width + 1)) - 1; // adjacent pairs from the left wall to the right wall
+        for (int mask = 0; mask < entries; mask++) {
+            long walled = 1L | ((long) mask << 1) | (1L << (width + 1));
+            rowTransitions[mask] = (byte) Long.bitCount((walled ^ (walled >>> 1)) & pairs);
+
+            long leftFilled = ((long) mask << 1) | 1L;
+            long rightFilled = ((long) mask >>> 1) | wallRight;
+            wellCells[mask] = (char) (~mask & leftFilled & rightFilled & fullRow);
+        }
+    }
+
+    public static boolean supports(int width, int height) {
+        return width >= 1 && width <= MAX_WIDTH && height >= 1 && height <= MAX_HEIGHT;
+    }
+
+    public static TransitionEvaluator forWidth(int width) {
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Table-driven evaluation supports widths 1-" + MAX_WIDTH + ", got " + width);
+        }
+        return BY_WIDTH[width];
+    }
+
+    // per-spawn summary of the parent board, built once so each placement only scans the rows its piece occupies
+    // rows above the piece are unchanged and resume from a saved top-down scan, rows below come from suffix sums
+    public static final class Surface {
+        private final int height;
+        private final int width;
+        private final long[] masks;              // parent row masks, masks[height] is the floor (full)
+        private final Scan[] above;              // scan state before each row
+        private final int[] rowTransitionsBelow; // sums over rows r..height-1
+        private final int[] columnTransitionsBelow;
+        private final int[] emptyBelow;
+        private final int[] firstFilled;         // [row * width + col], first filled row at or below row, height if none
+        private final int[] wellSums;            // [row * width + col], well sum of the open cells from row down, no carried depth
+        private final int[] wellRuns;            // [row * width + col], length of the well run starting at row
+        private final Scan scratch = new Scan();
+
+        private Surface(int height, int width) {
+            this.height = height;
+            this.width = width;
+            this.masks = new long[height + 1];
+            this.above = new Scan[height + 1];
+            this.rowTransitionsBelow = new int[height + 1];
+            this.columnTransitionsBelow = new int[height + 1];
+            this.emptyBelow = new int[height + 1];
+            this.firstFilled = new int[(height + 1) * width];
+            this.wellSums = new int[(height + 1) * width];
+            this.wellRuns = new int[(height + 1) * width];
+        }
+    }
+
+    // running totals of a top-down scan, the space above the board counts as empty
+    private static final class Scan {
+        private int rowTransitions;
+        private int columnTransitions;
+        private int holes;
+        private int wellSum;
+        private long covered;  // columns with a filled cell above the current row
+        private long previous; // last row kept
+        // bit-sliced depth of the open well run each column is in, plane i holds bit i, enough for MAX_HEIGHT rows
+        private final long[] depth = new long[DEPTH_PLANES];
+        private int planes; // planes in use, the ones above are zero; shallow wells touch only a few
+
+        private void copyFrom(Scan other) {
+            rowTransitions = other.rowTransitions;
+            columnTransitions = other.columnTransitions;
+            holes = other.holes;
+            wellSum = other.wellSum;
+            covered = other.covered;
+            previous = other.previous;
+            System.arraycopy(other.depth, 0, depth, 0, DEPTH_PLANES);
+            planes = other.planes;
+        }
+
+        private Scan copy() {
+            Scan copy = new Scan();
+            copy.copyFrom(this);
+            return copy;
+        }
+
+        private int wellDepth(int col) {
+            int result = 0;
+            for (int plane = 0; plane < planes; plane++) {
+                result |= (int) ((depth[plane] >>> col) & 1) << plane;
+            }
+            return result;
+        }
+    }
+
+    // O(width * height) pass over the parent board, done once per spawn
+    public Surface scan(GameBoard board) {
+        int height = board.getBoardHeight();
+        int width = board.getBoardWidth();
+        if (width != this.width) {
+            throw new IllegalArgumentException("Evaluator built for width " + this.width + ", board is " + width);
+        }
+        if (height > MAX_HEIGHT) {
+            throw new IllegalArgumentException("Table-driven evaluation supports heights up to " + MAX_HEIGHT
+                    + ", got " + height);
+        }
+        Surface surface = new Surface(height, width);
+        surface.masks[height] = fullRow;
+
+        Scan scan = new Scan();
+        for (int row = 0; row < height; row++) {
+            surface.masks[row] = board.getRowMask(row);
+            surface.above[row] = scan.copy();
+            addRow(scan, surface.masks[row]);
+        }
+        surface.above[height] = scan;
+
+        for (int col = 0; col < width; col++) {
+            surface.firstFilled[height * width + col] = height;
+        }
+        for (int row = height - 1; row >= 0; row--) {
+            long mask = surface.masks[row];
+            long wells = wellCells[(int) mask];
+            surface.rowTransitionsBelow[row] = surface.rowTransitionsBelow[row + 1] + rowTransitions[(int) mask];
+            surface.columnTransitionsBelow[row] = surface.columnTransitionsBelow[row + 1] + Long.bitCount(mask ^ surface.masks[row + 1]);
+            surface.emptyBelow[row] = surface.emptyBelow[row + 1] + width - Long.bitCount(mask);
+
+            int cell = row * width;
+            for (int col = 0; col < width; col++, cell++) {
+                if ((mask & (1L << col)) != 0) {
+                    surface.firstFilled[cell] = row;
+                } else {
+                    surface.firstFilled[cell] = surface.firstFilled[cell + width];
+                    surface.wellRuns[cell] = (wells & (1L << col)) != 0 ? surface.wellRuns[cell + width] + 1 : 0;
+                    // starting one row higher deepens every cell of the run by one
+                    surface.wellSums[cell] = surface.wellSums[cell + width] + surface.wellRuns[cell];
+                }
+            }
+        }
+        return surface;
+    }
+
+    /**
+     * Scores the board that hard dropping the piece at (x, y) onto the scanned board would produce.
+     * Only the piece's own rows are scanned; the state above them is resumed from the surface and the rows
+     * below add their precomputed sums, corrected per column for the new coverage and carried well depth.
+     * Rows the piece completes are skipped, which is exactly what clearing them does; piece rows above
+     * the board are dropped. Not thread safe, use one surface per search thread.
+     */
+    public int evaluatePlacement(Surface surface, PieceOrientation piece, int x, int y) {
+        int height = surface.height;
+        int width = surface.width;
+        int first = Math.max(y, 0);
+        int end = Math.min(y + piece.getHeight(), height);
+
+        Scan scan = surface.scratch;
+        scan.copyFrom(surface.above[first]);
+        int clearedRows = 0;
+        int clearedPieceCells = 0;
+        for (int row = first; row < end; row++) {
+            long cells = piece.getRowMask(row - y) << x;
+            long mask = surface.masks[row] | cells;
+            if (cells != 0 && mask == fullRow) {
+                clearedRows++;
+                clearedPieceCells += Long.bitCount(cells);
+                continue;
+            }
+            addRow(scan, mask);
+        }
+
+        // rows below the piece are unchanged, cleared rows come back as empty rows at the top
+        int rowTransitionSum = scan.rowTransitions + surface.rowTransitionsBelow[end] + 2 * clearedRows;
+        int columnTransitionSum = scan.columnTransitions + Long.bitCount(scan.previous ^ surface.masks[end])
+                + surface.columnTransitionsBelow[end];
+        int holes = scan.holes + surface.emptyBelow[end];
+        int wellSum = scan.wellSum;
+
+        // covered columns turn every empty cell below into a hole, open ones only those under their first block
+        int base = end * width;
+        for (long open = ~scan.covered & fullRow; open != 0; open &= open - 1) {
+            int cell = base + Long.numberOfTrailingZeros(open);
+            holes -= surface.firstFilled[cell] - end;
+            int run = surface.wellRuns[cell];
+            wellSum += surface.wellSums[cell] + (run == 0 ? 0 : run * scan.wellDepth(Long.numberOfTrailingZeros(open)));
+        }
+
+        int landingHeight = 2 * (height - y) - piece.getHeight() + 1;
+        return score(landingHeight, clearedRows * clearedPieceCells, rowTransitionSum, columnTransitionSum, holes, wellSum);
+    }
+
+    // adds one kept row below the rows already scanned
+    private void addRow(Scan scan, long mask) {
+        int index = (int) mask;
+        scan.rowTransitions += rowTransitions[index];
+        scan.columnTransitions += Long.bitCount(mask ^ scan.previous);
+        scan.holes += Long.bitCount(scan.covered & ~mask);
+
+        // open well cells extend the run above them, any other column resets to zero
+        long wells = wellCells[index] & ~scan.covered;
+        long[] depth = scan.depth;
+        if (wells == 0) {
+            Arrays.fill(depth, 0, scan.planes, 0L);
+            scan.planes = 0;
+        } else {
+            // increment every well column by one, the carry reaches at most one plane above those in use
+            long carry = wells;
+            int top = Math.min(scan.planes + 1, DEPTH_PLANES);
+            int used = 0;
+            for (int plane = 0; plane < top; plane++) {
+                long next = depth[plane] & carry;
+                depth[plane] = (depth[plane] ^ carry) & wells;
+                carry = next;
+                if (depth[plane] != 0) {
+                    used = plane + 1;
+                    scan.wellSum += Long.bitCount(depth[plane]) << plane;
+                }
+            }
+            scan.planes = used;
+        }
+
+        scan.covered |= mask;
+        scan.previous = mask;
+    }
+
+    static int score(int landingHeight, int erodedCells, int rowTransitions, int columnTransitions, int holes, int wellSums) {
+        return LANDING_HEIGHT_WEIGHT * landingHeight + ERODED_CELLS_WEIGHT * erodedCells
+                + ROW_TRANSITIONS_WEIGHT * rowTransitions + COLUMN_TRANSITIONS_WEIGHT * columnTransitions
+                + HOLES_WEIGHT * holes + WELL_SUMS_WEIGHT * wellSums;
+    }
+}
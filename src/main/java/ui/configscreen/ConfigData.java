@@ -13,6 +13,7 @@ public class ConfigData {
     private boolean extendedMode;
     private String player1Type;
     private String player2Type;
+    private String pieceSet;
 
     // Default constructor (required for JSON deserialization)
     public ConfigData() {
@@ -24,12 +25,13 @@ public class ConfigData {
         this.extendedMode = false;
         this.player1Type = "HUMAN";
         this.player2Type = "HUMAN";
+        this.pieceSet = "tetrominoes";
     }
 
     // Constructor with all parameters
     public ConfigData(int fieldWidth, int fieldHeight, int gameLevel,
                       boolean musicEnabled, boolean soundEnabled, boolean extendedMode,
-                      String player1Type, String player2Type) {
+                      String player1Type, String player2Type, String pieceSet) {
         this.fieldWidth = fieldWidth;
         this.fieldHeight = fieldHeight;
         this.gameLevel = gameLevel;
@@ -38,6 +40,7 @@ public class ConfigData {
         this.extendedMode = extendedMode;
         this.player1Type = player1Type;
         this.player2Type = player2Type;
+        this.pieceSet = pieceSet;
     }
 
     // Getters
@@ -49,6 +52,7 @@ public class ConfigData {
     public boolean isExtendedMode() { return extendedMode; }
     public String getPlayer1Type() { return player1Type; }
     public String getPlayer2Type() { return player2Type; }
+    public String getPieceSet() { return pieceSet; }
 
     // Setters
     public void setFieldWidth(int fieldWidth) { this.fieldWidth = fieldWidth; }
@@ -59,12 +63,13 @@ public class ConfigData {
     public void setExtendedMode(boolean extendedMode) { this.extendedMode = extendedMode; }
     public void setPlayer1Type(String player1Type) { this.player1Type = player1Type; }
     public void setPlayer2Type(String player2Type) { this.player2Type = player2Type; }
+    public void setPieceSet(String pieceSet) { this.pieceSet = pieceSet; }
 
     @Override
     public String toString() {
         return String.format(
-                "ConfigData{width=%d, height=%d, level=%d, music=%s, sound=%s, extended=%s, p1=%s, p2=%s}",
-                fieldWidth, fieldHeight, gameLevel, musicEnabled, soundEnabled, extendedMode, player1Type, player2Type
+                "ConfigData{width=%d, height=%d, level=%d, music=%s, sound=%s, extended=%s, p1=%s, p2=%s, pieces=%s}",
+                fieldWidth, fieldHeight, gameLevel, musicEnabled, soundEnabled, extendedMode, player1Type, player2Type, pieceSet
         );
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package ui.configscreen;
 
+import model.PieceSet;
 import util.AudioManager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
@@ -24,6 +25,7 @@ public class GameConfig {
     private int fieldWidth = 10;
     private int fieldHeight = 20;
     private int gameLevel = 1;
+    private String pieceSet = PieceSet.TETROMINOES;
     
     private static final String CONFIG_FILE = "tetris_config.json";
     private ObjectMapper objectMapper = new ObjectMapper();
@@ -133,12 +135,21 @@ public class GameConfig {
         this.gameLevel = gameLevel;
     }
     
+    // piece set name, a file under resources/pieces
+    public String getPieceSet() {
+        return pieceSet;
+    }
+    
+    public void setPieceSet(String pieceSet) {
+        this.pieceSet = pieceSet;
+    }
+    
     public void saveConfigurationToFile() {
         try {
             ConfigData configData = new ConfigData(
                     fieldWidth, fieldHeight, gameLevel,
                     musicEnabled, soundEnabled, extendedMode,
-                    player1Type.name(), player2Type.name()
+                    player1Type.name(), player2Type.name(), pieceSet
             );
             objectMapper.writeValue(new File(CONFIG_FILE), configData);
         } catch (IOException e) {
@@ -159,6 +170,10 @@ public class GameConfig {
                 this.musicEnabled = configData.isMusicEnabled();
                 this.soundEnabled = configData.isSoundEnabled();
                 this.extendedMode = configData.isExtendedMode();
+                // Use the standard set if the name is missing or not a shipped set
+                String loadedPieceSet = configData.getPieceSet();
+                this.pieceSet = loadedPieceSet != null && PieceSet.SHIPPED.contains(loadedPieceSet)
+                        ? loadedPieceSet : PieceSet.TETROMINOES;
 
                 // Convert string back to enum
                 try {
@@ -24,6 +24,8 @@ import model.GameBoard;
 import model.GameCommand;
 import model.GameEngine;
 import model.HighScore;
+import model.PieceOrientation;
+import model.PieceSet;
 import model.TetrisShape;
 import ui.BaseScreen;
 import ui.GameOverDialog;
@@ -36,7 +38,7 @@ import java.util.ArrayList;
 import util.AudioManager;
 import util.AudioObserver;
 import java.util.List;
-import java.util.Random;
+import util.SeededRandom;
 import java.util.Optional;
 
 // JavaFX controller for the main game screen with falling pieces
@@ -343,7 +345,8 @@ public class GameplayScreen extends BaseScreen implements AudioObserver {
             boolean isExternal = (i == 0) ?
                     (config.getPlayer1Type() == GameConfig.PlayerType.EXTERNAL) :
                     (config.getPlayer2Type() == GameConfig.PlayerType.EXTERNAL);
-            GameEngine engine = new GameEngine(new Random(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+            GameEngine engine = new GameEngine(new SeededRandom(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+            engine.setPieceSet(PieceSet.byName(currentConfig.getPieceSet()));
             configureEngine();
             engines.set(i, engine);
             engine.startGame();
@@ -367,7 +370,8 @@ public class GameplayScreen extends BaseScreen implements AudioObserver {
         // create single engine with proper configuration
         boolean isAI = (currentConfig.getPlayer1Type() == GameConfig.PlayerType.AI);
         boolean isExternal = (currentConfig.getPlayer1Type() == GameConfig.PlayerType.EXTERNAL);
-        GameEngine engine = new GameEngine(new Random(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+        GameEngine engine = new GameEngine(new SeededRandom(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+        engine.setPieceSet(PieceSet.byName(currentConfig.getPieceSet()));
         configureEngine();
         engines.add(engine);
 
@@ -468,7 +472,8 @@ public class GameplayScreen extends BaseScreen implements AudioObserver {
             boolean isExternal = (i == 0) ?
                     (config.getPlayer1Type() == GameConfig.PlayerType.EXTERNAL) :
                     (config.getPlayer2Type() == GameConfig.PlayerType.EXTERNAL);
-            GameEngine engine = new GameEngine(new Random(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+            GameEngine engine = new GameEngine(new SeededRandom(gameSeed), currentConfig.getFieldWidth(), currentConfig.getFieldHeight(), isAI, isExternal);
+            engine.setPieceSet(PieceSet.byName(currentConfig.getPieceSet()));
             configureEngine(); // now just handles server monitoring
             engines.add(engine);
 
@@ -569,17 +574,24 @@ public class GameplayScreen extends BaseScreen implements AudioObserver {
         }
     }
 
+    // draws the piece's compiled spawn orientation, scaled down and centred when it is too big for the canvas
     private void drawNextTetromino(TetrisShape shape, Canvas canvas) {
         GraphicsContext gc = canvas.getGraphicsContext2D();
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
         if (shape == null) return;
-        int blockSize = 15;
-        for (int r = 0; r < shape.getHeight(); r++) {
-            for (int c = 0; c < shape.getWidth(); c++) {
-                if (shape.isCellFilled(r, c)) {
+        PieceOrientation piece = shape.getType().getOrientation(0);
+        double margin = 6;
+        double blockSize = Math.floor(Math.min(15, Math.min(
+                (canvas.getWidth() - 2 * margin) / piece.getWidth(),
+                (canvas.getHeight() - 2 * margin) / piece.getHeight())));
+        double left = (canvas.getWidth() - piece.getWidth() * blockSize) / 2;
+        double top = (canvas.getHeight() - piece.getHeight() * blockSize) / 2;
+        for (int r = 0; r < piece.getHeight(); r++) {
+            for (int c = 0; c < piece.getWidth(); c++) {
+                if (piece.isCellFilled(r, c)) {
                     gc.setFill(ShapeColors.getFillColor(shape.getColor()));
-                    double x = 12 + c * blockSize;
-                    double y = 12 + r * blockSize;
+                    double x = left + c * blockSize;
+                    double y = top + r * blockSize;
                     gc.fillRect(x, y, blockSize, blockSize);
                     gc.setStroke(ShapeColors.getBorderColor(shape.getColor()));
                     gc.strokeRect(x, y, blockSize, blockSize);
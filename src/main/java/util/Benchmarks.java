@@ -0,0 +1,324 @@
+package util;
+
+import com.google.gson.Gson;
+import model.BoardEvaluator;
+import model.GameBoard;
+import model.MoveRequestCodec;
+import model.OpMove;
+import model.PerfectClearSolver;
+import model.PieceOrientation;
+import model.PureGame;
+import model.TetrisAI;
+import model.TetrisShape;
+import model.TransitionEvaluator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+// Headless micro benchmarks for the AI and protocol hot paths, run with: java util.Benchmarks <scenario>
+public class Benchmarks {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // every unique orientation of every piece type
+    private static final PieceOrientation[] ORIENTATIONS = Arrays.stream(TetrisShape.ShapeType.values())
+            .flatMap(type -> IntStream.range(0, TetrisShape.getUniqueRotations(type))
+                    .mapToObj(rotation -> TetrisShape.getOrientation(type, rotation)))
+            .toArray(PieceOrientation[]::new);
+
+    public static void main(String[] args) {
+        String scenario = args.length > 0 ? args[0] : "evaluator";
+        switch (scenario) {
+            case "evaluator" -> benchmarkEvaluator();
+            case "transitions" -> benchmarkTransitions();
+            case "perfect-clear" -> benchmarkPerfectClear();
+            case "json" -> benchmarkJsonCodec();
+            case "move-cache" -> benchmarkMoveCache();
+            default -> System.err.println("Unknown scenario: " + scenario);
+        }
+    }
+
+    // scores every hard-drop placement of every piece: full cell scan vs full mask pass vs delta evaluation
+    private static void benchmarkEvaluator() {
+        BoardEvaluator evaluator = new BoardEvaluator();
+        for (int width : new int[] {10, 32, 64}) {
+            GameBoard board = randomBoard(new Random(width), width, 40);
+            int[] columnTops = new int[width];
+            board.fillColumnTops(columnTops);
+
+            long cellScan = measure(() -> {
+                long checksum = 0;
+                for (PieceOrientation piece : ORIENTATIONS) {
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        long undo = board.makeMove(piece, col, piece.landingRow(columnTops, col));
+                        checksum += evaluator.evaluateBoard(copyCells(board));
+                        board.unmakeMove(undo);
+                    }
+                }
+                return checksum;
+            });
+            long maskPass = measure(() -> {
+                long checksum = 0;
+                for (PieceOrientation piece : ORIENTATIONS) {
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        long undo = board.makeMove(piece, col, piece.landingRow(columnTops, col));
+                        checksum += evaluator.evaluateBoard(board);
+                        board.unmakeMove(undo);
+                    }
+                }
+                return checksum;
+            });
+            long delta = measure(() -> {
+                long checksum = 0;
+                BoardEvaluator.Features parent = evaluator.computeFeatures(board);
+                for (PieceOrientation piece : ORIENTATIONS) {
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        int row = piece.landingRow(columnTops, col);
+                        long undo = board.makeMove(piece, col, row);
+                        checksum += evaluator.evaluatePlacement(board, parent, piece, col, row, undo);
+                        board.unmakeMove(undo);
+                    }
+                }
+                return checksum;
+            });
+
+            System.out.printf("width %2d x 40: cell scan %8d ns, mask pass %8d ns, delta %8d ns per spawn%n",
+                    width, cellScan, maskPass, delta);
+        }
+    }
+
+    // narrow boards: basic heuristic via make/delta/unmake vs the table-driven Dellacherie features on the row masks
+    private static void benchmarkTransitions() {
+        BoardEvaluator evaluator = new BoardEvaluator();
+        for (int width : new int[] {6, 10, 16}) {
+            GameBoard board = randomBoard(new Random(width), width, 20);
+            int[] columnTops = new int[width];
+            board.fillColumnTops(columnTops);
+            TransitionEvaluator transitions = TransitionEvaluator.forWidth(width);
+
+            long delta = measure(() -> {
+                long checksum = 0;
+                BoardEvaluator.Features parent = evaluator.computeFeatures(board);
+                for (PieceOrientation piece : ORIENTATIONS) {
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        int row = piece.landingRow(columnTops, col);
+                        long undo = board.makeMove(piece, col, row);
+                        checksum += evaluator.evaluatePlacement(board, parent, piece, col, row, undo);
+                        board.unmakeMove(undo);
+                    }
+                }
+                return checksum;
+            });
+            long tables = measure(() -> {
+                long checksum = 0;
+                TransitionEvaluator.Surface surface = transitions.scan(board);
+                for (PieceOrientation piece : ORIENTATIONS) {
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        checksum += transitions.evaluatePlacement(surface, piece, col, piece.landingRow(columnTops, col));
+                    }
+                }
+                return checksum;
+            });
+
+            System.out.printf("width %2d x 20: delta (4 features) %7d ns, tables (6 features) %7d ns per spawn%n",
+                    width, delta, tables);
+        }
+    }
+
+    // opening perfect clears: random queues of 10 pieces plus one spare on an empty 10 wide board, 4 row window
+    private static void benchmarkPerfectClear() {
+        PerfectClearSolver solver = new PerfectClearSolver(10, PerfectClearSolver.DEFAULT_MAX_HEIGHT);
+        GameBoard board = new GameBoard(10, 20);
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        Random random = new Random(35);
+        int queues = 2000;
+
+        int solved = 0;
+        long nodes = 0;
+        long worstNanos = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queues; i++) {
+            List<TetrisShape.ShapeType> queue = new ArrayList<>();
+            for (int piece = 0; piece < 11; piece++) {
+                queue.add(types[random.nextInt(types.length)]);
+            }
+            long queueStart = System.nanoTime();
+            if (solver.solve(board, queue) != null) {
+                solved++;
+            }
+            worstNanos = Math.max(worstNanos, System.nanoTime() - queueStart);
+            nodes += solver.getNodes();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d queues: %d solvable (%.1f%%), %.2f ms mean, %.2f ms worst, %d nodes mean%n",
+                queues, solved, 100.0 * solved / queues, elapsed / 1e6 / queues, worstNanos / 1e6, nodes / queues);
+    }
+
+    // one move request each way: reflective Gson with PureGame vs the streaming codec, time and garbage per request
+    // server: parse the request, build the board, write the answer; client: encode the engine's state
+    private static void benchmarkJsonCodec() {
+        Gson gson = new Gson();
+        Random random = new Random(45);
+        int states = 64;
+        String[] requests = new String[states];
+        GameBoard[] boards = new GameBoard[states];
+        TetrisShape[] pieces = new TetrisShape[states];
+        for (int i = 0; i < states; i++) {
+            PureGame state = ServerBenchmark.sampleState(random);
+            requests[i] = gson.toJson(state);
+            boards[i] = new GameBoard(state.getWidth(), state.getHeight());
+            boards[i].setBoardState(state.getCells());
+            pieces[i] = new TetrisShape(TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 3, 0);
+        }
+        OpMove move = new OpMove(4, 1);
+        MoveRequestCodec.Request decoded = new MoveRequestCodec.Request();
+        int[] next = new int[1];
+
+        LongSupplier reflectiveServer = () -> {
+            PureGame state = gson.fromJson(requests[next[0]++ % states], PureGame.class);
+            GameBoard board = new GameBoard(state.getWidth(), state.getHeight());
+            board.setBoardState(state.getCells());
+            return board.getRowMask(19) + gson.toJson(move).length();
+        };
+        LongSupplier streamingServer = () -> {
+            try {
+                MoveRequestCodec.readRequest(requests[next[0]++ % states], decoded);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return decoded.toBoard().getRowMask(19) + MoveRequestCodec.OP_MOVE.toJson(move).length();
+        };
+        LongSupplier reflectiveClient = () -> {
+            int i = next[0]++ % states;
+            return gson.toJson(toPureGame(boards[i], pieces[i])).length();
+        };
+        LongSupplier streamingClient = () -> {
+            int i = next[0]++ % states;
+            return MoveRequestCodec.writeRequest(boards[i], pieces[i], null).length();
+        };
+
+        System.out.printf("server, reflective: %6d ns %7d bytes allocated per request%n",
+                measure(reflectiveServer), allocatedBytes(reflectiveServer));
+        System.out.printf("server, streaming:  %6d ns %7d bytes allocated per request%n",
+                measure(streamingServer), allocatedBytes(streamingServer));
+        System.out.printf("client, reflective: %6d ns %7d bytes allocated per request%n",
+                measure(reflectiveClient), allocatedBytes(reflectiveClient));
+        System.out.printf("client, streaming:  %6d ns %7d bytes allocated per request%n",
+                measure(streamingClient), allocatedBytes(streamingClient));
+    }
+
+    // answering a mid-game request by search vs from TetrisServer's move cache, key construction included
+    private static void benchmarkMoveCache() {
+        TetrisAI ai = new TetrisAI();
+        Random random = new Random(46);
+        int states = 64;
+        GameBoard[] boards = new GameBoard[states];
+        TetrisShape[] pieces = new TetrisShape[states];
+        MoveCache cache = new MoveCache(TetrisServer.DEFAULT_CACHE_CAPACITY);
+        for (int i = 0; i < states; i++) {
+            PureGame state = ServerBenchmark.sampleState(random);
+            boards[i] = new GameBoard(state.getWidth(), state.getHeight());
+            boards[i].setBoardState(state.getCells());
+            pieces[i] = new TetrisShape(TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 3, 0);
+            TetrisAI.Move move = ai.findBestMove(boards[i], pieces[i]);
+            cache.put(MoveCache.keyFor(boards[i], pieces[i]), new OpMove(move.column(), move.rotations()));
+        }
+        int[] next = new int[1];
+
+        long search = measure(() -> {
+            int i = next[0]++ % states;
+            return ai.findBestMove(boards[i], pieces[i]).column();
+        });
+        long cached = measure(() -> {
+            int i = next[0]++ % states;
+            return cache.get(MoveCache.keyFor(boards[i], pieces[i])).opX();
+        });
+        System.out.printf("10x20 mid-game request: search %7d ns, cache hit %5d ns%n", search, cached);
+    }
+
+    // the PureGame GameEngine used to build before encoding, cells and pattern copied out of board and piece
+    private static PureGame toPureGame(GameBoard board, TetrisShape piece) {
+        boolean[][] pattern = new boolean[piece.getHeight()][piece.getWidth()];
+        for (int row = 0; row < pattern.length; row++) {
+            for (int col = 0; col < pattern[row].length; col++) {
+                pattern[row][col] = piece.isCellFilled(row, col);
+            }
+        }
+        return new PureGame(board.getBoardWidth(), board.getBoardHeight(), copyCells(board), pattern, null,
+                piece.getX(), piece.getY(), piece.getType().name());
+    }
+
+    // heap bytes the calling thread allocates per call, after warming up
+    private static long allocatedBytes(LongSupplier task) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int calls = 10_000;
+        long sink = 0;
+        for (int i = 0; i < calls; i++) {
+            sink += task.getAsLong();
+        }
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            sink += task.getAsLong();
+        }
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return allocated / calls;
+    }
+
+    // best of the measured rounds, each round repeats the task enough times to be measurable
+    private static long measure(LongSupplier task) {
+        int repetitions = 200;
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                sink += task.getAsLong();
+            }
+            long elapsed = (System.nanoTime() - start) / repetitions;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        if (sink == 42) {
+            System.out.println(); // keeps the results observable to the JIT
+        }
+        return best;
+    }
+
+    private static GameBoard randomBoard(Random random, int width, int height) {
+        String[][] cells = new String[height][width];
+        for (int col = 0; col < width; col++) {
+            int columnHeight = random.nextInt(height / 2);
+            for (int row = height - columnHeight; row < height; row++) {
+                if (random.nextInt(6) > 0) {
+                    cells[row][col] = "red";
+                }
+            }
+        }
+        GameBoard board = new GameBoard(width, height);
+        board.setBoardState(cells);
+        return board;
+    }
+
+    private static String[][] copyCells(GameBoard board) {
+        String[][] cells = new String[board.getBoardHeight()][board.getBoardWidth()];
+        for (int row = 0; row < cells.length; row++) {
+            for (int col = 0; col < cells[row].length; col++) {
+                cells[row][col] = board.getCellColor(row, col);
+            }
+        }
+        return cells;
+    }
+}
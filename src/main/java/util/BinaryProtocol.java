@@ -0,0 +1,131 @@
+package util;
+
+import model.GameBoard;
+import model.OpMove;
+import model.PieceSet;
+import model.TetrisShape;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Compact binary form of TetrisServer's move request and response, an alternative to PureGame/OpMove JSON
+// A client opens the connection with the MAGIC byte, which can never start a JSON line, and then sends
+// length-prefixed request frames; the server answers each with a two byte move, in order.
+//
+// Request frame (big endian):
+//   length unsigned short, counting the bytes after it
+//   width byte, height byte
+//   piece byte (index in the standard piece set), rotation byte, x byte, y byte (signed); games with other piece
+//   sets, such as pentominoes, have to use JSON, which names the piece
+//   next piece byte, NO_PIECE when unknown
+//   height rows from the top, each (width + 7) / 8 bytes of occupancy, bit c = column c, low byte first
+// Response: column byte (signed), rotations byte; BUSY_ROTATIONS instead of the rotations when the server shed
+// the request
+public final class BinaryProtocol {
+    public static final int MAGIC = 0xB1; // protocol marker and version, sent once per connection
+    public static final int NO_PIECE = 0xFF;
+    public static final int BUSY_ROTATIONS = 0xFF;
+    public static final int MAX_WIDTH = 64;   // occupancy travels as row masks
+    public static final int MAX_FRAME_BYTES = 7 + 255 * (MAX_WIDTH / 8);
+    private static final String CELL_COLOR = "gray"; // colors do not travel, the AI only looks at occupancy
+
+    // a decoded request
+    public record Request(GameBoard board, TetrisShape.ShapeType piece, int rotation, int x, int y,
+                          TetrisShape.ShapeType next) {}
+
+    private BinaryProtocol() {
+    }
+
+    public static int rowBytes(int width) {
+        return (width + 7) / 8;
+    }
+
+    // writes a request frame including its length prefix
+    public static void writeRequest(DataOutput out, GameBoard board, TetrisShape.ShapeType piece, int rotation,
+                                    int x, int y, TetrisShape.ShapeType next) throws IOException {
+        int width = board.getBoardWidth();
+        int height = board.getBoardHeight();
+        int rowBytes = rowBytes(width);
+        byte[] frame = new byte[2 + 7 + height * rowBytes];
+        int length = frame.length - 2;
+        frame[0] = (byte) (length >>> 8);
+        frame[1] = (byte) length;
+        frame[2] = (byte) width;
+        frame[3] = (byte) height;
+        frame[4] = (byte) pieceIndex(piece);
+        frame[5] = (byte) rotation;
+        frame[6] = (byte) x;
+        frame[7] = (byte) y;
+        frame[8] = (byte) (next != null ? pieceIndex(next) : NO_PIECE);
+        int offset = 9;
+        for (int row = 0; row < height; row++) {
+            long mask = board.getRowMask(row);
+            for (int b = 0; b < rowBytes; b++) {
+                frame[offset++] = (byte) (mask >>> (8 * b));
+            }
+        }
+        out.write(frame);
+    }
+
+    // decodes a request frame without its length prefix
+    public static Request readRequest(byte[] frame, int offset, int length) throws IOException {
+        if (length < 7) {
+            throw new IOException("Request frame too short");
+        }
+        int width = frame[offset] & 0xFF;
+        int height = frame[offset + 1] & 0xFF;
+        int rowBytes = rowBytes(width);
+        if (width == 0 || width > MAX_WIDTH || height == 0 || length != 7 + height * rowBytes) {
+            throw new IOException("Malformed request frame for a " + width + "x" + height + " board");
+        }
+        TetrisShape.ShapeType piece = piece(frame[offset + 2] & 0xFF);
+        int rotation = frame[offset + 3] & 0xFF;
+        int x = frame[offset + 4];
+        int y = frame[offset + 5];
+        int nextIndex = frame[offset + 6] & 0xFF;
+        TetrisShape.ShapeType next = nextIndex == NO_PIECE ? null : piece(nextIndex);
+
+        GameBoard board = new GameBoard(width, height);
+        int position = offset + 7;
+        for (int row = 0; row < height; row++) {
+            long mask = 0;
+            for (int b = 0; b < rowBytes; b++) {
+                mask |= (frame[position++] & 0xFFL) << (8 * b);
+            }
+            if (mask != 0) {
+                board.setRowMask(row, mask, CELL_COLOR);
+            }
+        }
+        return new Request(board, piece, rotation, x, y, next);
+    }
+
+    public static void writeMove(DataOutput out, OpMove move) throws IOException {
+        out.write(encodeMove(move));
+    }
+
+    public static byte[] encodeMove(OpMove move) {
+        return new byte[] {(byte) move.opX(), (byte) (move.isBusy() ? BUSY_ROTATIONS : move.opRotate())};
+    }
+
+    public static OpMove readMove(DataInput in) throws IOException {
+        int column = in.readByte();
+        int rotations = in.readUnsignedByte();
+        return rotations == BUSY_ROTATIONS ? OpMove.BUSY : new OpMove(column, rotations);
+    }
+
+    private static int pieceIndex(TetrisShape.ShapeType type) {
+        int index = PieceSet.standard().indexOf(type);
+        if (index < 0) {
+            throw new IllegalArgumentException("Binary protocol carries standard pieces only, not " + type);
+        }
+        return index;
+    }
+
+    private static TetrisShape.ShapeType piece(int index) throws IOException {
+        if (index >= PieceSet.standard().size()) {
+            throw new IOException("Unknown piece index " + index);
+        }
+        return PieceSet.standard().get(index);
+    }
+}
@@ -0,0 +1,156 @@
+package util;
+
+import model.PolicyAI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view over a self-play feature dataset, one fixed-size record per placement, memory mapped
+// Records are grouped in blocks of BLOCK_RECORDS; inside a block every column is stored contiguously, so a
+// training pass over a few columns touches only their bytes, and a record's position is plain arithmetic.
+//
+// File layout (big endian):
+//   header : magic int, version short, column count byte, block records int, record count long, game count int,
+//            padded to HEADER_BYTES
+//   blocks : for each Column in declaration order, BLOCK_RECORDS values of its width; the last block is zero padded
+public class FeatureDataset implements Closeable {
+    static final int MAGIC = 0x54464453; // "TFDS"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_COUNT_OFFSET = 11;
+    static final int BLOCK_RECORDS = 8192;
+
+    // columns in file order; the feature columns follow PolicyAI's feature order
+    public enum Column {
+        GAME(4), PIECE(4), PIECE_TYPE(1), ROTATION(1), X(1), Y(1),
+        LANDING_HEIGHT(4), ERODED_CELLS(4), ROW_TRANSITIONS(4), COLUMN_TRANSITIONS(4), HOLES(4),
+        WELL_SUMS(4), AGGREGATE_HEIGHT(4), BUMPINESS(4), MAX_HEIGHT(4),
+        ROWS_CLEARED(1),  // by this placement
+        FUTURE_LINES(2),  // by this placement and the following ones within SelfPlayGenerator.HORIZON
+        PIECES_LEFT(4),   // placements after this one until the game ended
+        TOPPED_OUT(1);    // 1 when the game topped out within the horizon, 0 otherwise
+
+        public static final Column FIRST_FEATURE = LANDING_HEIGHT;
+
+        final int bytes;
+        final long blockOffset; // start of the column inside a block
+
+        Column(int bytes) {
+            this.bytes = bytes;
+            this.blockOffset = (long) Layout.recordBytes * BLOCK_RECORDS;
+            Layout.recordBytes += bytes;
+        }
+
+        // enum constructors cannot touch the enum's own statics, so the running width lives here
+        private static final class Layout {
+            private static int recordBytes; // sum of the widths of the columns created so far
+        }
+
+        // bytes of one record, the widths of all columns
+        static int recordBytes() {
+            return Layout.recordBytes;
+        }
+
+        // feature columns are float32, the others signed integers
+        public boolean isFeature() {
+            return ordinal() >= FIRST_FEATURE.ordinal() && ordinal() < FIRST_FEATURE.ordinal() + PolicyAI.FEATURE_COUNT;
+        }
+    }
+
+    static final int RECORD_BYTES = Column.recordBytes();
+    static final long BLOCK_BYTES = (long) RECORD_BYTES * BLOCK_RECORDS;
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final long recordCount;
+    private final int gameCount;
+
+    private FeatureDataset(Arena arena, MemorySegment data) {
+        this.arena = arena;
+        this.data = data;
+
+        if (data.byteSize() < HEADER_BYTES || data.get(INT, 0) != MAGIC) {
+            throw new IllegalArgumentException("Not a feature dataset file");
+        }
+        if (data.get(SHORT, 4) != VERSION || data.get(ValueLayout.JAVA_BYTE, 6) != Column.values().length
+                || data.get(INT, 7) != BLOCK_RECORDS) {
+            throw new IllegalArgumentException("Unsupported feature dataset version or layout");
+        }
+        recordCount = data.get(LONG, RECORD_COUNT_OFFSET);
+        gameCount = data.get(INT, RECORD_COUNT_OFFSET + 8);
+        long blocks = (recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        if (data.byteSize() < HEADER_BYTES + blocks * BLOCK_BYTES) {
+            throw new IllegalArgumentException("Feature dataset is truncated");
+        }
+    }
+
+    public static FeatureDataset open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new FeatureDataset(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    // value of an integer column
+    public int getInt(Column column, long record) {
+        long offset = offset(column, record);
+        return switch (column.bytes) {
+            case 1 -> data.get(ValueLayout.JAVA_BYTE, offset);
+            case 2 -> data.get(SHORT, offset);
+            default -> data.get(INT, offset);
+        };
+    }
+
+    // value of a feature column
+    public float getFloat(Column column, long record) {
+        if (!column.isFeature()) {
+            throw new IllegalArgumentException(column + " is not a feature column");
+        }
+        return data.get(FLOAT, offset(column, record));
+    }
+
+    // all PolicyAI features of a record, in PolicyAI order
+    public void readFeatures(long record, float[] out, int offset) {
+        Column[] columns = Column.values();
+        for (int f = 0; f < PolicyAI.FEATURE_COUNT; f++) {
+            out[offset + f] = data.get(FLOAT, offset(columns[Column.FIRST_FEATURE.ordinal() + f], record));
+        }
+    }
+
+    private long offset(Column column, long record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + recordCount);
+        }
+        long block = record / BLOCK_RECORDS;
+        long slot = record % BLOCK_RECORDS;
+        return HEADER_BYTES + block * BLOCK_BYTES + column.blockOffset + slot * column.bytes;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
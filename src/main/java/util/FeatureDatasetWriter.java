@@ -0,0 +1,109 @@
+package util;
+
+import model.PolicyAI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams placement records into a feature dataset file, see FeatureDataset for the layout
+// One block is buffered off-heap and written with a single positional FileChannel write when full, so memory use
+// is one block however large the dataset grows. The header is written last, an unfinished file fails to open.
+public class FeatureDatasetWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocateDirect((int) FeatureDataset.BLOCK_BYTES);
+    private int slot;          // next record inside the buffered block
+    private long blocksWritten;
+    private long recordCount;
+    private int gameCount;
+
+    public FeatureDatasetWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // appends one placement, features holds PolicyAI.FEATURE_COUNT values from featureOffset
+    public void add(int game, int piece, int pieceType, int rotation, int x, int y, float[] features, int featureOffset,
+                    int rowsCleared, int futureLines, int piecesLeft, boolean toppedOut) throws IOException {
+        putInt(FeatureDataset.Column.GAME, game);
+        putInt(FeatureDataset.Column.PIECE, piece);
+        putByte(FeatureDataset.Column.PIECE_TYPE, pieceType);
+        putByte(FeatureDataset.Column.ROTATION, rotation);
+        putByte(FeatureDataset.Column.X, x);
+        putByte(FeatureDataset.Column.Y, y);
+        FeatureDataset.Column[] columns = FeatureDataset.Column.values();
+        for (int f = 0; f < PolicyAI.FEATURE_COUNT; f++) {
+            FeatureDataset.Column column = columns[FeatureDataset.Column.FIRST_FEATURE.ordinal() + f];
+            block.putFloat((int) (column.blockOffset + slot * 4L), features[featureOffset + f]);
+        }
+        putByte(FeatureDataset.Column.ROWS_CLEARED, rowsCleared);
+        block.putShort((int) (FeatureDataset.Column.FUTURE_LINES.blockOffset + slot * 2L), (short) futureLines);
+        putInt(FeatureDataset.Column.PIECES_LEFT, piecesLeft);
+        putByte(FeatureDataset.Column.TOPPED_OUT, toppedOut ? 1 : 0);
+
+        recordCount++;
+        if (++slot == FeatureDataset.BLOCK_RECORDS) {
+            writeBlock();
+        }
+    }
+
+    // counts a finished game for the header, its records must all have been added
+    public void endGame() {
+        gameCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // writes the partial last block and the header, then closes the file
+    @Override
+    public void close() throws IOException {
+        try {
+            if (slot > 0) {
+                // clear the unused slots of every column, they still hold the previous block's values
+                for (FeatureDataset.Column column : FeatureDataset.Column.values()) {
+                    int from = (int) (column.blockOffset + (long) slot * column.bytes);
+                    int to = (int) (column.blockOffset + (long) FeatureDataset.BLOCK_RECORDS * column.bytes);
+                    for (int i = from; i < to; i++) {
+                        block.put(i, (byte) 0);
+                    }
+                }
+                writeBlock();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(FeatureDataset.HEADER_BYTES);
+            header.putInt(FeatureDataset.MAGIC).putShort(FeatureDataset.VERSION)
+                    .put((byte) FeatureDataset.Column.values().length).putInt(FeatureDataset.BLOCK_RECORDS)
+                    .putLong(recordCount).putInt(gameCount);
+            header.clear();
+            writeFully(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putByte(FeatureDataset.Column column, int value) {
+        block.put((int) (column.blockOffset + slot), (byte) value);
+    }
+
+    private void putInt(FeatureDataset.Column column, int value) {
+        block.putInt((int) (column.blockOffset + slot * 4L), value);
+    }
+
+    private void writeBlock() throws IOException {
+        block.clear();
+        writeFully(block, FeatureDataset.HEADER_BYTES + blocksWritten * FeatureDataset.BLOCK_BYTES);
+        blocksWritten++;
+        slot = 0;
+    }
+
+    private void writeFully(ByteBuffer source, long offset) throws IOException {
+        while (source.hasRemaining()) {
+            offset += channel.write(source, offset);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package util;
+
+import model.AIStrategy;
+import model.BoardEvaluator;
+import model.GameBoard;
+import model.PieceOrientation;
+import model.PieceSet;
+import model.PolicyAI;
+import model.TetrisAI;
+import model.TetrisShape;
+
+import java.util.List;
+import java.util.Random;
+
+// Plays whole games without UI or timers: spawn, ask the strategy, hard drop, clear rows, until top-out or a piece limit
+// Piece sequences come from SeededRandom like the engine's, so every strategy sees the same games for the same seeds.
+// Usage: java util.HeadlessSimulator [games] [max pieces] [width] [height]
+public class HeadlessSimulator {
+    private static final int DEFAULT_GAMES = 20;
+    private static final int DEFAULT_MAX_PIECES = 2000;
+
+    // outcome of one game, decisionNanos is the time spent inside findBestMove
+    public record Result(int pieces, int lines, boolean toppedOut, long decisionNanos) {
+        public double nanosPerDecision() {
+            return pieces == 0 ? 0 : (double) decisionNanos / pieces;
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_PIECES;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        compare("basic heuristic", basicHeuristic(), games, maxPieces, width, height);
+        compare("greedy TetrisAI", new TetrisAI(null), games, maxPieces, width, height);
+        compare("learned policy", new PolicyAI(), games, maxPieces, width, height);
+    }
+
+    private static void compare(String name, AIStrategy ai, int games, int maxPieces, int width, int height) {
+        play(ai, width, height, -1L, Math.min(maxPieces, 500)); // warm up the JIT before timing
+
+        long lines = 0;
+        long pieces = 0;
+        long nanos = 0;
+        int toppedOut = 0;
+        for (int game = 0; game < games; game++) {
+            Result result = play(ai, width, height, game, maxPieces);
+            lines += result.lines();
+            pieces += result.pieces();
+            nanos += result.decisionNanos();
+            toppedOut += result.toppedOut() ? 1 : 0;
+        }
+        System.out.printf("%-16s %8.1f lines/game, %6d/%d topped out, %7.2f us/decision%n",
+                name, (double) lines / games, toppedOut, games, nanos / 1e3 / Math.max(pieces, 1));
+    }
+
+    public static Result play(AIStrategy ai, int width, int height, long seed, int maxPieces) {
+        GameBoard board = new GameBoard(width, height);
+        Random random = new SeededRandom(seed);
+        PieceSet pieces = PieceSet.standard();
+        int[] columnTops = new int[width];
+
+        TetrisShape.ShapeType next = pieces.random(random);
+        int lines = 0;
+        long nanos = 0;
+        for (int piece = 0; piece < maxPieces; piece++) {
+            TetrisShape.ShapeType type = next;
+            next = pieces.random(random);
+
+            TetrisShape shape = new TetrisShape(type, 0, 0);
+            long start = System.nanoTime();
+            TetrisAI.Move move = ai.findBestMove(board, shape, List.of(next));
+            nanos += System.nanoTime() - start;
+            if (move == null) {
+                return new Result(piece, lines, true, nanos);
+            }
+
+            PieceOrientation orientation = type.getOrientation(move.rotations());
+            board.fillColumnTops(columnTops);
+            int row = orientation.landingRow(columnTops, move.column());
+            if (row < 0) {
+                return new Result(piece, lines, true, nanos);
+            }
+
+            // makeMove places and clears like GameEngine, without the line clear sound; the undo word is dropped
+            lines += GameBoard.getRowsCleared(board.makeMove(orientation, move.column(), row));
+        }
+        return new Result(maxPieces, lines, false, nanos);
+    }
+
+    // greedy search scored by BoardEvaluator's four-feature heuristic, the baseline the learned policy replaces
+    static AIStrategy basicHeuristic() {
+        BoardEvaluator evaluator = new BoardEvaluator();
+        return (board, piece) -> {
+            GameBoard work = board.copy();
+            int width = work.getBoardWidth();
+            int[] columnTops = new int[width];
+            work.fillColumnTops(columnTops);
+            BoardEvaluator.Features parent = evaluator.computeFeatures(work);
+
+            TetrisAI.Move best = null;
+            int bestScore = Integer.MIN_VALUE;
+            TetrisShape.ShapeType type = piece.getType();
+            for (int rotation = 0; rotation < type.getUniqueRotations(); rotation++) {
+                PieceOrientation orientation = type.getOrientation(rotation);
+                for (int col = 0; col + orientation.getWidth() <= width; col++) {
+                    int row = orientation.landingRow(columnTops, col);
+                    long undo = work.makeMove(orientation, col, row);
+                    int score = evaluator.evaluatePlacement(work, parent, orientation, col, row, undo);
+                    work.unmakeMove(undo);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = new TetrisAI.Move(col, rotation);
+                    }
+                }
+            }
+            return best;
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package util;
+
+import model.GameBoard;
+import model.OpMove;
+import model.TetrisShape;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Size-bounded least recently used cache of TetrisServer answers, keyed by board occupancy and the piece to place
+// Keys hold the row masks only, so boards that differ in cell colors share an entry, and the piece by type and
+// orientation, not position, since the AI tries every column anyway. The entries are split over segments, each
+// an access ordered LinkedHashMap behind its own lock, so concurrent requests rarely wait for each other; a
+// segment drops its least recently used entry once it holds its share of the capacity.
+public final class MoveCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // canonical form of a request, the hash is computed once and also picks the segment
+    public static final class Key {
+        private final long[] rows;
+        private final int width;
+        private final TetrisShape.ShapeType type;
+        private final int rotation;
+        private final long hash;
+
+        private Key(long[] rows, int width, TetrisShape.ShapeType type, int rotation) {
+            this.rows = rows;
+            this.width = width;
+            this.type = type;
+            this.rotation = rotation;
+            long h = width * 31L + rows.length;
+            for (long row : rows) {
+                h = (h ^ row) * 0x9E3779B97F4A7C15L;
+            }
+            h = (h ^ type.ordinal()) * 0x9E3779B97F4A7C15L + rotation;
+            this.hash = h ^ (h >>> 29);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && hash == key.hash && width == key.width && type == key.type
+                    && rotation == key.rotation && Arrays.equals(rows, key.rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Key, OpMove> {
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, OpMove> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    // capacity is the total number of entries kept, at least 1
+    public MoveCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int count = Math.min(MAX_SEGMENTS, capacity);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    public static Key keyFor(GameBoard board, TetrisShape piece) {
+        long[] rows = new long[board.getBoardHeight()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = board.getRowMask(row);
+        }
+        return new Key(rows, board.getBoardWidth(), piece.getType(), piece.getRotation());
+    }
+
+    // the cached answer, null on a miss
+    public OpMove get(Key key) {
+        Segment segment = segmentFor(key);
+        OpMove move;
+        synchronized (segment) {
+            move = segment.get(key);
+        }
+        if (move == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return move;
+    }
+
+    public void put(Key key, OpMove move) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, move);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long found = hits.sum();
+        long total = found + misses.sum();
+        return total == 0 ? 0.0 : (double) found / total;
+    }
+
+    private Segment segmentFor(Key key) {
+        return segments[(int) ((key.hash >>> 40) % segments.length)];
+    }
+}
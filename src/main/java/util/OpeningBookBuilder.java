@@ -0,0 +1,114 @@
+package util;
+
+import model.GameBoard;
+import model.OpeningBook;
+import model.TetrisAI;
+import model.TetrisShape;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+// Offline tool that enumerates every clean stack profile up to a height limit and stores TetrisAI's move for
+// each piece, usage: java util.OpeningBookBuilder [width] [levels] [output]
+public class OpeningBookBuilder {
+    private static final int DEFAULT_WIDTH = 10;
+    private static final int DEFAULT_LEVELS = 4; // column heights 0..3
+    private static final int MAX_PIECE_HEIGHT = 4;
+    private static final int CHUNK_SIZE = 4096;
+
+    public static void main(String[] args) throws IOException {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WIDTH;
+        int levels = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LEVELS;
+        Path output = args.length > 2 ? Path.of(args[2]) : OpeningBook.DEFAULT_FILE;
+
+        long start = System.nanoTime();
+        build(output, width, levels);
+        System.out.printf("Opening book for width %d, heights 0..%d written to %s in %.1f s%n",
+                width, levels - 1, output, (System.nanoTime() - start) / 1e9);
+    }
+
+    public static void build(Path output, int width, int levels) throws IOException {
+        if (width < 1 || width > OpeningBook.MAX_WIDTH || levels < 2) {
+            throw new IllegalArgumentException("Opening books support widths 1-" + OpeningBook.MAX_WIDTH
+                    + " and at least 2 levels");
+        }
+        long profiles = (long) Math.pow(levels, width);
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        if (profiles * types.length > Integer.MAX_VALUE - 64) {
+            throw new IllegalArgumentException("Opening book too large: " + profiles + " profiles per piece");
+        }
+
+        // one board height that fits any clean stack plus a piece, the search does not depend on it otherwise
+        int boardHeight = (levels - 1) + MAX_PIECE_HEIGHT + 1;
+        byte[] entries = new byte[(int) (profiles * types.length)];
+        int chunks = (int) ((profiles + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            TetrisAI ai = new TetrisAI(null);
+            GameBoard board = new GameBoard(width, boardHeight);
+            int[] heights = new int[width];
+            long end = Math.min(profiles, (long) (chunk + 1) * CHUNK_SIZE);
+
+            for (long index = (long) chunk * CHUNK_SIZE; index < end; index++) {
+                decodeHeights(index, levels, heights);
+                if (!fillClean(board, heights)) {
+                    for (TetrisShape.ShapeType type : types) {
+                        entries[(int) (type.ordinal() * profiles + index)] = (byte) OpeningBook.EMPTY;
+                    }
+                    continue;
+                }
+                for (TetrisShape.ShapeType type : types) {
+                    TetrisAI.Move move = ai.findBestMove(board, new TetrisShape(type, 0, 0));
+                    entries[(int) (type.ordinal() * profiles + index)] =
+                            move == null ? (byte) OpeningBook.EMPTY : (byte) (move.rotations() << 4 | move.column());
+                }
+            }
+        });
+
+        ByteBuffer header = ByteBuffer.allocate(OpeningBook.HEADER_BYTES);
+        header.putInt(OpeningBook.MAGIC).putShort(OpeningBook.VERSION).putInt(TetrisAI.HEURISTIC_VERSION)
+                .put((byte) width).put((byte) levels).put((byte) boardHeight).put((byte) types.length).flip();
+
+        try (RandomAccessFile file = new RandomAccessFile(output.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(entries);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    // base-levels digits of the index, column 0 is the least significant
+    private static void decodeHeights(long index, int levels, int[] heights) {
+        for (int col = 0; col < heights.length; col++) {
+            heights[col] = (int) (index % levels);
+            index /= levels;
+        }
+    }
+
+    // builds the hole-free stack for the heights, false when its bottom row would be full
+    private static boolean fillClean(GameBoard board, int[] heights) {
+        int boardHeight = board.getBoardHeight();
+        long fullRow = (1L << heights.length) - 1;
+        for (int row = 0; row < boardHeight; row++) {
+            long mask = 0L;
+            int level = boardHeight - row; // level 1 is the bottom row
+            for (int col = 0; col < heights.length; col++) {
+                if (heights[col] >= level) {
+                    mask |= 1L << col;
+                }
+            }
+            if (mask == fullRow) {
+                return false;
+            }
+            board.setRowMask(row, mask, "gray");
+        }
+        return true;
+    }
+}
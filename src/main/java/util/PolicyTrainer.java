@@ -0,0 +1,127 @@
+package util;
+
+import model.PlacementPolicy;
+import model.PolicyAI;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Offline trainer for PlacementPolicy: noisy cross-entropy search over the model parameters
+// Each generation samples a population around the current mean, plays every sample through PolicyAI in
+// HeadlessSimulator games (same seeds for the whole generation) and refits the mean and spread to the best ones.
+// Games are played on a 10 high board so weak and strong policies separate before the piece limit.
+// With a worker count, each generation's samples are scored on that many SimulationWorker processes instead.
+// Usage: java util.PolicyTrainer [hidden units] [generations] [output] [workers]
+public class PolicyTrainer {
+    private static final int DEFAULT_HIDDEN_UNITS = 4; // 0 trains a linear model
+    private static final int DEFAULT_GENERATIONS = 30;
+    private static final int POPULATION = 60;
+    private static final int ELITE = 10;
+    private static final int GAMES_PER_SAMPLE = 4;
+    private static final int MAX_PIECES = 5000;
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 10;
+    private static final double INITIAL_SPREAD = 10.0;
+    private static final double EXTRA_NOISE = 4.0; // added variance, decays to zero over the run so it cannot collapse early
+
+    public static void main(String[] args) throws IOException {
+        int hiddenUnits = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_HIDDEN_UNITS;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GENERATIONS;
+        Path output = args.length > 2 ? Path.of(args[2]) : Path.of("src/main/resources" + PlacementPolicy.DEFAULT_RESOURCE);
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        long start = System.nanoTime();
+        PlacementPolicy policy;
+        if (workers > 0) {
+            try (SimulationCoordinator coordinator = SimulationCoordinator.startLocal(workers)) {
+                policy = train(hiddenUnits, generations, new Random(37), coordinator);
+            }
+        } else {
+            policy = train(hiddenUnits, generations, new Random(37), null);
+        }
+        policy.save(output);
+        System.out.printf("Policy with %d hidden units written to %s in %.1f s%n",
+                hiddenUnits, output, (System.nanoTime() - start) / 1e9);
+    }
+
+    // coordinator may be null to play every game in this JVM
+    public static PlacementPolicy train(int hiddenUnits, int generations, Random random, SimulationCoordinator coordinator)
+            throws IOException {
+        int features = PolicyAI.FEATURE_COUNT;
+        int dimensions = PlacementPolicy.parameterCount(features, hiddenUnits);
+        double[] mean = new double[dimensions];
+        double[] spread = new double[dimensions];
+        Arrays.fill(spread, INITIAL_SPREAD);
+        if (hiddenUnits > 0) {
+            // hidden units need distinct starting points or they all learn the same thing
+            for (int i = 0; i < hiddenUnits * features; i++) {
+                mean[i] = random.nextGaussian();
+            }
+        }
+
+        float[][] samples = new float[POPULATION][dimensions];
+        double[] fitness = new double[POPULATION];
+        for (int generation = 0; generation < generations; generation++) {
+            double noise = Math.max(EXTRA_NOISE * (1.0 - (double) generation / (generations * 0.75)), 0);
+            for (float[] sample : samples) {
+                for (int d = 0; d < dimensions; d++) {
+                    sample[d] = (float) (mean[d] + random.nextGaussian() * Math.sqrt(spread[d] * spread[d] + noise));
+                }
+            }
+
+            long seedBase = (long) generation * GAMES_PER_SAMPLE;
+            if (coordinator != null) {
+                List<PlacementPolicy> candidates = new ArrayList<>(POPULATION);
+                for (float[] sample : samples) {
+                    candidates.add(PlacementPolicy.fromParameters(features, hiddenUnits, sample));
+                }
+                double[] scores = coordinator.evaluate(candidates, seedBase, GAMES_PER_SAMPLE, MAX_PIECES, BOARD_WIDTH, BOARD_HEIGHT);
+                System.arraycopy(scores, 0, fitness, 0, POPULATION);
+            } else {
+                IntStream.range(0, POPULATION).parallel().forEach(i -> fitness[i] =
+                        evaluate(PlacementPolicy.fromParameters(features, hiddenUnits, samples[i]), seedBase));
+            }
+
+            Integer[] order = new Integer[POPULATION];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, Comparator.comparingDouble(i -> -fitness[i]));
+            for (int d = 0; d < dimensions; d++) {
+                double sum = 0;
+                for (int e = 0; e < ELITE; e++) {
+                    sum += samples[order[e]][d];
+                }
+                mean[d] = sum / ELITE;
+                double variance = 0;
+                for (int e = 0; e < ELITE; e++) {
+                    double difference = samples[order[e]][d] - mean[d];
+                    variance += difference * difference;
+                }
+                spread[d] = Math.sqrt(variance / ELITE);
+            }
+            System.out.printf("generation %2d: best %.1f, elite mean %.1f lines/game%n", generation,
+                    fitness[order[0]], Arrays.stream(order, 0, ELITE).mapToDouble(i -> fitness[i]).average().orElse(0));
+        }
+
+        float[] parameters = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            parameters[d] = (float) mean[d];
+        }
+        return PlacementPolicy.fromParameters(features, hiddenUnits, parameters);
+    }
+
+    // mean lines cleared over the generation's games
+    private static double evaluate(PlacementPolicy policy, long seedBase) {
+        PolicyAI ai = new PolicyAI(policy);
+        long lines = 0;
+        for (int game = 0; game < GAMES_PER_SAMPLE; game++) {
+            lines += HeadlessSimulator.play(ai, BOARD_WIDTH, BOARD_HEIGHT, seedBase + game, MAX_PIECES).lines();
+        }
+        return (double) lines / GAMES_PER_SAMPLE;
+    }
+}
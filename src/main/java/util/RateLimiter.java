@@ -0,0 +1,75 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket: permits accrue at a fixed rate up to a burst of a tenth of a second's worth, each event takes one
+// TetrisServer uses it to pace accepted connections, so a connection storm queues in the OS backlog (and
+// overflows there) instead of flooding the server with work it cannot finish. A rate of 0 means unlimited.
+public final class RateLimiter {
+    private final double permitsPerNano;
+    private final double burst;
+    private double permits;
+    private long lastRefill;
+    private long throttled; // times a permit was wanted and none was left
+
+    public RateLimiter(int permitsPerSecond) {
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.burst = Math.max(1, permitsPerSecond / 10.0);
+        this.permits = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0);
+    }
+
+    public boolean isUnlimited() {
+        return permitsPerNano == 0;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill();
+        if (permits >= 1) {
+            permits--;
+            return true;
+        }
+        throttled++;
+        return false;
+    }
+
+    // returns a permit taken for an event that did not happen
+    public synchronized void refund() {
+        if (!isUnlimited()) {
+            permits = Math.min(burst, permits + 1);
+        }
+    }
+
+    // waits until a permit is free and takes it
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            TimeUnit.NANOSECONDS.sleep(Math.max(nanosUntilAvailable(), TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    // time until the next permit accrues, 0 when one is free now
+    public synchronized long nanosUntilAvailable() {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill();
+        return permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+    }
+
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
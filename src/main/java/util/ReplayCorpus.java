@@ -0,0 +1,162 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view over a replay corpus file, memory mapped so games are never copied into the heap
+//
+// File layout (big endian):
+//   header : magic int, version short
+//   games  : seed long, width byte, height byte, tickCount int, finalScore int, then tickCount ticks
+//   tick   : pieceType, rotation, x, y, linesCleared (one byte each)
+//   index  : one long file offset per game
+//   footer : indexOffset long, gameCount int, magic int
+public class ReplayCorpus implements Closeable {
+    static final int MAGIC = 0x54525043; // "TRPC"
+    static final short VERSION = 1;
+    static final int FILE_HEADER_BYTES = 6;
+    static final int GAME_HEADER_BYTES = 18;
+    static final int GAME_TICK_COUNT_OFFSET = 10;
+    static final int TICK_BYTES = 5;
+    static final int FOOTER_BYTES = 16;
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // callback used when streaming the whole corpus, primitive arguments keep iteration allocation free
+    @FunctionalInterface
+    public interface TickVisitor {
+        void visit(int game, int tick, int pieceType, int rotation, int x, int y, int linesCleared);
+    }
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final long indexOffset;
+    private final int gameCount;
+
+    private ReplayCorpus(Arena arena, MemorySegment data) {
+        this.arena = arena;
+        this.data = data;
+
+        long size = data.byteSize();
+        if (size < FILE_HEADER_BYTES + FOOTER_BYTES
+                || data.get(INT, 0) != MAGIC
+                || data.get(INT, size - 4) != MAGIC) {
+            throw new IllegalArgumentException("Not a replay corpus file");
+        }
+        if (data.get(SHORT, 4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported replay corpus version: " + data.get(SHORT, 4));
+        }
+        indexOffset = data.get(LONG, size - FOOTER_BYTES);
+        gameCount = data.get(INT, size - FOOTER_BYTES + 8);
+    }
+
+    // maps the whole file, the mapping lives until close() is called
+    public static ReplayCorpus open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new ReplayCorpus(arena, data);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    public long getSeed(int game) {
+        return data.get(LONG, gameOffset(game));
+    }
+
+    public int getBoardWidth(int game) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, gameOffset(game) + 8));
+    }
+
+    public int getBoardHeight(int game) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, gameOffset(game) + 9));
+    }
+
+    public int getTickCount(int game) {
+        return data.get(INT, gameOffset(game) + GAME_TICK_COUNT_OFFSET);
+    }
+
+    public int getFinalScore(int game) {
+        return data.get(INT, gameOffset(game) + GAME_TICK_COUNT_OFFSET + 4);
+    }
+
+    // per tick accessors, each one is a single read at a computed offset
+    public int getPieceType(int game, int tick) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, tickOffset(game, tick)));
+    }
+
+    public int getRotation(int game, int tick) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, tickOffset(game, tick) + 1));
+    }
+
+    public int getX(int game, int tick) {
+        return data.get(ValueLayout.JAVA_BYTE, tickOffset(game, tick) + 2);
+    }
+
+    public int getY(int game, int tick) {
+        return data.get(ValueLayout.JAVA_BYTE, tickOffset(game, tick) + 3);
+    }
+
+    public int getLinesCleared(int game, int tick) {
+        return Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, tickOffset(game, tick) + 4));
+    }
+
+    // streams every tick of every game in file order
+    public void forEachTick(TickVisitor visitor) {
+        for (int game = 0; game < gameCount; game++) {
+            forEachTick(game, visitor);
+        }
+    }
+
+    public void forEachTick(int game, TickVisitor visitor) {
+        long offset = gameOffset(game);
+        int tickCount = data.get(INT, offset + GAME_TICK_COUNT_OFFSET);
+        offset += GAME_HEADER_BYTES;
+
+        for (int tick = 0; tick < tickCount; tick++, offset += TICK_BYTES) {
+            visitor.visit(game, tick,
+                    Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, offset)),
+                    Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, offset + 1)),
+                    data.get(ValueLayout.JAVA_BYTE, offset + 2),
+                    data.get(ValueLayout.JAVA_BYTE, offset + 3),
+                    Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, offset + 4)));
+        }
+    }
+
+    // unmaps the file, accessors must not be used afterwards
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private long gameOffset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("game " + game + " of " + gameCount);
+        }
+        return data.get(LONG, indexOffset + (long) game * 8);
+    }
+
+    private long tickOffset(int game, int tick) {
+        long offset = gameOffset(game);
+        int tickCount = data.get(INT, offset + GAME_TICK_COUNT_OFFSET);
+        if (tick < 0 || tick >= tickCount) {
+            throw new IndexOutOfBoundsException("tick " + tick + " of " + tickCount);
+        }
+        return offset + GAME_HEADER_BYTES + (long) tick * TICK_BYTES;
+    }
+}
@@ -0,0 +1,131 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Appends recorded games to a single replay corpus file, see ReplayCorpus for the layout
+public class ReplayCorpusWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long position;
+
+    // offset index, one entry per finished game
+    private long[] gameOffsets = new long[256];
+    private int gameCount = 0;
+
+    // state of the game currently being recorded
+    private long currentGameOffset = -1;
+    private int currentTickCount;
+
+    public ReplayCorpusWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(ReplayCorpus.MAGIC);
+        buffer.putShort(ReplayCorpus.VERSION);
+        position = ReplayCorpus.FILE_HEADER_BYTES;
+    }
+
+    // starts a new game, ticks added afterwards belong to it until endGame is called
+    public void beginGame(long seed, int boardWidth, int boardHeight) throws IOException {
+        if (currentGameOffset >= 0) {
+            throw new IllegalStateException("previous game was not ended");
+        }
+        ensureCapacity(ReplayCorpus.GAME_HEADER_BYTES);
+        currentGameOffset = position;
+        currentTickCount = 0;
+
+        // tick count and final score are patched in endGame
+        buffer.putLong(seed);
+        buffer.put((byte) boardWidth);
+        buffer.put((byte) boardHeight);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        position += ReplayCorpus.GAME_HEADER_BYTES;
+    }
+
+    // records one locked piece
+    public void addTick(int pieceType, int rotation, int x, int y, int linesCleared) throws IOException {
+        if (currentGameOffset < 0) {
+            throw new IllegalStateException("no game in progress");
+        }
+        ensureCapacity(ReplayCorpus.TICK_BYTES);
+        buffer.put((byte) pieceType);
+        buffer.put((byte) rotation);
+        buffer.put((byte) x);
+        buffer.put((byte) y);
+        buffer.put((byte) linesCleared);
+        position += ReplayCorpus.TICK_BYTES;
+        currentTickCount++;
+    }
+
+    public void endGame(int finalScore) throws IOException {
+        if (currentGameOffset < 0) {
+            throw new IllegalStateException("no game in progress");
+        }
+        flush();
+
+        // patch the header now that the tick count is known
+        ByteBuffer patch = ByteBuffer.allocate(8);
+        patch.putInt(currentTickCount).putInt(finalScore).flip();
+        writeFully(patch, currentGameOffset + ReplayCorpus.GAME_TICK_COUNT_OFFSET);
+
+        if (gameCount == gameOffsets.length) {
+            gameOffsets = Arrays.copyOf(gameOffsets, gameCount * 2);
+        }
+        gameOffsets[gameCount++] = currentGameOffset;
+        currentGameOffset = -1;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    // writes the offset index and footer, then closes the file
+    @Override
+    public void close() throws IOException {
+        try {
+            if (currentGameOffset >= 0) {
+                endGame(0);
+            }
+            long indexOffset = position;
+            for (int i = 0; i < gameCount; i++) {
+                ensureCapacity(8);
+                buffer.putLong(gameOffsets[i]);
+                position += 8;
+            }
+            ensureCapacity(ReplayCorpus.FOOTER_BYTES);
+            buffer.putLong(indexOffset);
+            buffer.putInt(gameCount);
+            buffer.putInt(ReplayCorpus.MAGIC);
+            position += ReplayCorpus.FOOTER_BYTES;
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer, position - buffer.remaining());
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source, long offset) throws IOException {
+        while (source.hasRemaining()) {
+            offset += channel.write(source, offset);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Stages a TetrisServer request passes after its bytes are read: parse on virtual threads, search on a CPU sized
+// ForkJoinPool, then serialise back on the parse thread. Each stage admits a bounded number of requests, so a
+// slow search stage fills up and pushes back on parsing, which pushes back on reading, instead of queues growing
+// without limit. Parsing is entered without blocking (the selector thread must never wait); a search waits for
+// a slot in FIFO order, or with a shed answer is not queued at all when the stage is full. Every stage counts
+// what it holds and what it turned away so queue depths can be reported and tuned.
+public final class RequestPipeline {
+    public static final int DEFAULT_PARSE_CAPACITY = 1024; // requests being parsed, searched or serialised
+    public static final int DEFAULT_SEARCH_QUEUE = 64;     // searches queued in the pool beyond one per thread
+
+    // admission to one stage: a fixed number of slots, and counters for what holds or waits for them
+    public static final class Stage {
+        private final String name;
+        private final int capacity;
+        private final Semaphore slots;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+
+        Stage(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.slots = new Semaphore(capacity, true);
+        }
+
+        boolean tryAcquire() {
+            return slots.tryAcquire();
+        }
+
+        void acquire() {
+            waiting.incrementAndGet();
+            try {
+                slots.acquireUninterruptibly();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        void release() {
+            completed.increment();
+            slots.release();
+        }
+
+        // gives back a slot that was reserved but not used
+        void cancel() {
+            slots.release();
+        }
+
+        void countShed() {
+            shed.increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        // requests holding a slot, running or queued inside the stage
+        public int getInFlight() {
+            return capacity - slots.availablePermits();
+        }
+
+        // requests blocked until a slot frees up
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        // requests turned away because the stage was full
+        public long getShed() {
+            return shed.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d/%d in flight, %d waiting, %d done, %d shed",
+                    name, getInFlight(), capacity, getWaiting(), getCompleted(), getShed());
+        }
+    }
+
+    private final Stage parse;
+    private final Stage search;
+    private final ExecutorService parseThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final ForkJoinPool searchPool;
+
+    public RequestPipeline() {
+        this(DEFAULT_PARSE_CAPACITY, Runtime.getRuntime().availableProcessors(), DEFAULT_SEARCH_QUEUE);
+    }
+
+    public RequestPipeline(int parseCapacity, int searchThreads, int searchQueue) {
+        this.parse = new Stage("parse", parseCapacity);
+        this.search = new Stage("search", searchThreads + searchQueue);
+        this.searchPool = new ForkJoinPool(searchThreads);
+    }
+
+    // reserves a parse slot without blocking, false when the parse stage is full
+    public boolean tryEnterParse() {
+        return parse.tryAcquire();
+    }
+
+    // gives back a slot from tryEnterParse that turned out not to be needed
+    public void cancelParse() {
+        parse.cancel();
+    }
+
+    // counts a request answered without parsing because the parse stage was full
+    public void shedParse() {
+        parse.countShed();
+    }
+
+    // runs work on a virtual thread in a slot reserved by tryEnterParse, the slot is free again before done runs;
+    // done always runs, with null when work failed
+    public void parse(Supplier<byte[]> work, Consumer<byte[]> done) {
+        try {
+            parseThreads.execute(() -> {
+                byte[] response = null;
+                try {
+                    response = work.get();
+                } catch (RuntimeException | Error e) {
+                    System.err.println("Error processing request: " + e);
+                } finally {
+                    parse.release();
+                }
+                done.accept(response);
+            });
+        } catch (RuntimeException e) {
+            parse.cancel(); // shutting down
+            throw e;
+        }
+    }
+
+    // runs work on the search pool once it has a slot, waiting for both; already in the pool it runs right away
+    public <T> T search(Supplier<T> work) {
+        return search(work, null);
+    }
+
+    // like search, but answers with whenFull instead of waiting when the stage is full; null waits
+    public <T> T search(Supplier<T> work, Supplier<T> whenFull) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == searchPool) {
+            return work.get(); // a batch fanning out inside its own search slot
+        }
+        if (whenFull == null) {
+            search.acquire();
+        } else if (!search.tryAcquire()) {
+            search.countShed();
+            return whenFull.get();
+        }
+        try {
+            ForkJoinTask<T> task = searchPool.submit(work::get);
+            return task.join();
+        } finally {
+            search.release();
+        }
+    }
+
+    public Stage getParseStage() {
+        return parse;
+    }
+
+    public Stage getSearchStage() {
+        return search;
+    }
+
+    public int getSearchThreads() {
+        return searchPool.getParallelism();
+    }
+
+    public void shutdown() {
+        parseThreads.shutdown();
+        searchPool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return parse + "; " + search + ", " + searchPool.getQueuedSubmissionCount() + " queued in the pool";
+    }
+}
@@ -0,0 +1,45 @@
+package util;
+
+import java.util.Random;
+
+// Drop-in java.util.Random that produces the same sequence for the same seed but exposes its internal state,
+// so a game's piece sequence can be snapshotted, restored and forked
+// Not thread safe, each game engine owns its own instance
+public class SeededRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // no initializer on purpose: Random's constructor calls setSeed before subclass fields are initialized
+    private long state;
+
+    public SeededRandom() {
+        super();
+    }
+
+    public SeededRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    // same linear congruential step as java.util.Random
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    // raw 48-bit generator state, unlike a seed it is not scrambled again when restored
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
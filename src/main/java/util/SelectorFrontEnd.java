@@ -0,0 +1,488 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import model.MoveRequestCodec;
+import model.OpMove;
+
+// Non-blocking front end for TetrisServer: one selector thread does all socket I/O for every connection
+// Requests are newline framed JSON, or length-prefixed BinaryProtocol frames when the connection's first byte
+// is BinaryProtocol.MAGIC; a complete request is handed to the RequestPipeline and its answer comes back to the
+// selector thread to be written. While the pipeline's parse stage is full, connections with complete requests
+// are parked and not read until it has room again, or when shedding, answered busy straight away. New
+// connections are accepted no faster than the accept limiter allows, the rest wait in the OS backlog.
+// An idle connection holds no thread and no buffer, only its unfinished line, so thousands of slow or silent
+// clients cost a few bytes each instead of a blocked pool thread.
+// Connections stay open for further requests until the client closes them or sends nothing for the idle
+// timeout. Requests a client pipelines without waiting are computed concurrently, up to MAX_PIPELINED per
+// connection, and answered in arrival order; beyond that the connection is not read until answers go out.
+class SelectorFrontEnd implements Runnable {
+    static final int BUFFER_SIZE = 16 * 1024;
+    static final int MAX_POOLED_BUFFERS = 64;
+    static final int MAX_REQUEST_BYTES = 1 << 20; // unanswered input beyond this drops the connection
+    static final int MAX_PIPELINED = 16; // requests of one connection computed at the same time
+    private static final byte[] BUSY_JSON =
+            (MoveRequestCodec.OP_MOVE.toJson(OpMove.BUSY) + "\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUSY_BINARY = BinaryProtocol.encodeMove(OpMove.BUSY);
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final RequestPipeline pipeline;
+    private final Function<String, String> jsonHandler;
+    private final Function<byte[], byte[]> binaryHandler;
+    private final long idleTimeoutNanos;
+    private final boolean shedWhenFull;      // answer busy instead of parking when the parse stage is full
+    private final RateLimiter acceptLimiter;
+    private final SelectionKey acceptKey;
+    private long acceptResumeTime;           // when accepting is paused by the limiter, else 0
+    private final BufferPool buffers = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>(); // run on the selector thread
+    private final ArrayDeque<Connection> stalled = new ArrayDeque<>(); // waiting for the parse stage, in order
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private volatile boolean running = true;
+
+    // per-connection state, only touched on the selector thread
+    private static final class Connection {
+        static final int UNKNOWN = 0;
+        static final int JSON = 1;
+        static final int BINARY = 2;
+
+        final SocketChannel channel;
+        int protocol = UNKNOWN;     // decided by the first byte received
+        SelectionKey key;
+        byte[] input = new byte[0]; // received bytes not yet handed out as requests
+        int inputLength;
+        final ArrayDeque<Answer> answers = new ArrayDeque<>(); // requests handed out, in arrival order
+        boolean inputClosed;        // the client shut down its side, close once answered
+        boolean stalled;            // has a complete request the parse stage had no room for
+        ByteBuffer output;          // answer being written, null when none
+        long lastActive;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.lastActive = System.nanoTime();
+        }
+
+        // neither computing nor writing anything
+        boolean isIdle() {
+            return answers.isEmpty() && output == null;
+        }
+    }
+
+    // the answer to one request, filled in on the selector thread when its computation is done
+    private static final class Answer {
+        byte[] response;
+    }
+
+    SelectorFrontEnd(ServerSocketChannel serverChannel, RequestPipeline pipeline, Function<String, String> jsonHandler,
+                     Function<byte[], byte[]> binaryHandler, int idleTimeoutMillis, boolean shedWhenFull,
+                     RateLimiter acceptLimiter) throws IOException {
+        this.serverChannel = serverChannel;
+        this.pipeline = pipeline;
+        this.jsonHandler = jsonHandler;
+        this.binaryHandler = binaryHandler;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.shedWhenFull = shedWhenFull;
+        this.acceptLimiter = acceptLimiter;
+        this.selector = Selector.open();
+        serverChannel.configureBlocking(false);
+        this.acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    // connections waiting for room in the parse stage, read on the selector thread so only approximate
+    int getStalledConnections() {
+        return stalled.size();
+    }
+
+    @Override
+    public void run() {
+        long sweepInterval = Math.max(TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4, 1);
+        long nextSweep = System.nanoTime() + idleTimeoutNanos / 4;
+        try {
+            while (running) {
+                long timeout = sweepInterval;
+                if (acceptResumeTime != 0) {
+                    timeout = Math.clamp(TimeUnit.NANOSECONDS.toMillis(acceptResumeTime - System.nanoTime()), 1,
+                            sweepInterval);
+                }
+                selector.select(timeout);
+                for (Runnable task = selectorTasks.poll(); task != null; task = selectorTasks.poll()) {
+                    task.run();
+                }
+                resumeStalled();
+                if (acceptResumeTime != 0 && System.nanoTime() - acceptResumeTime >= 0) {
+                    acceptResumeTime = 0;
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(connection);
+                        }
+                    }
+                }
+                if (System.nanoTime() - nextSweep >= 0) {
+                    closeIdle();
+                    nextSweep = System.nanoTime() + idleTimeoutNanos / 4;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Selector loop failed: " + e.getMessage());
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    // stops the selector thread and closes every connection
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        while (true) {
+            if (!acceptLimiter.tryAcquire()) {
+                // over the accept rate, leave the rest in the backlog until the next permit
+                acceptKey.interestOps(0);
+                acceptResumeTime = System.nanoTime() + Math.max(acceptLimiter.nanosUntilAvailable(), 1);
+                return;
+            }
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                acceptLimiter.refund();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections.incrementAndGet();
+        }
+    }
+
+    private void read(Connection connection) {
+        ByteBuffer buffer = buffers.acquire();
+        try {
+            int count = connection.channel.read(buffer);
+            if (count < 0) {
+                // client is done sending, possibly without a request at all; answer what is complete first
+                connection.inputClosed = true;
+            } else {
+                buffer.flip();
+                append(connection, buffer);
+                connection.lastActive = System.nanoTime();
+            }
+            if (connection.inputLength > MAX_REQUEST_BYTES) {
+                System.err.println("Request too long, closing connection");
+                close(connection);
+                return;
+            }
+            dispatch(connection);
+        } catch (IOException e) {
+            close(connection);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    // hands complete requests to the request pipeline while the connection has room in its own pipeline
+    private void dispatch(Connection connection) {
+        if (connection.protocol == Connection.UNKNOWN && connection.inputLength > 0) {
+            if ((connection.input[0] & 0xFF) == BinaryProtocol.MAGIC) {
+                connection.protocol = Connection.BINARY;
+                consume(connection, 1);
+            } else {
+                connection.protocol = Connection.JSON;
+            }
+        }
+
+        while (connection.answers.size() < MAX_PIPELINED && !connection.stalled) {
+            if (!pipeline.tryEnterParse()) {
+                if (!hasCompleteRequest(connection)) {
+                    break;
+                }
+                if (shedWhenFull) {
+                    shedNext(connection);
+                    continue;
+                }
+                connection.stalled = true; // resumed in order once the parse stage has room
+                stalled.add(connection);
+                break;
+            }
+            Supplier<byte[]> work = nextRequest(connection);
+            if (work == null) {
+                pipeline.cancelParse();
+                if (!connection.key.isValid()) {
+                    return; // malformed input closed it
+                }
+                break;
+            }
+            Answer answer = new Answer();
+            connection.answers.add(answer);
+            try {
+                pipeline.parse(work, response -> {
+                    selectorTasks.add(() -> complete(connection, answer, response));
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException e) {
+                close(connection); // server is shutting down
+                return;
+            }
+        }
+
+        if (connection.inputClosed && connection.isIdle()) {
+            close(connection); // nothing complete left to answer
+            return;
+        }
+        // stop reading while the pipeline is full, the client's own socket buffer then holds it back
+        int ops = 0;
+        if (!connection.inputClosed && connection.answers.size() < MAX_PIPELINED && !connection.stalled) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (connection.output != null) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(ops);
+    }
+
+    // dispatches parked connections, oldest first, for as long as the parse stage takes their requests
+    private void resumeStalled() {
+        while (!stalled.isEmpty()) {
+            Connection connection = stalled.peek();
+            if (connection.key.isValid()) {
+                connection.stalled = false;
+                dispatch(connection);
+                if (connection.stalled) {
+                    stalled.pollLast(); // parked again at the back, put it back in front
+                    return;
+                }
+            }
+            stalled.poll();
+        }
+    }
+
+    // answers the next complete request busy without parsing it
+    private void shedNext(Connection connection) {
+        Answer answer = new Answer();
+        if (connection.protocol == Connection.JSON) {
+            consume(connection, indexOf(connection.input, connection.inputLength, (byte) '\n') + 1);
+            answer.response = BUSY_JSON;
+        } else {
+            consume(connection, 2 + ((connection.input[0] & 0xFF) << 8 | connection.input[1] & 0xFF));
+            answer.response = BUSY_BINARY;
+        }
+        pipeline.shedParse();
+        connection.answers.add(answer);
+        if (connection.answers.size() == 1 && connection.output == null) {
+            // written from the selector loop rather than from here, dispatch and write would recurse
+            selectorTasks.add(() -> {
+                if (connection.key.isValid()) {
+                    write(connection);
+                }
+            });
+            selector.wakeup();
+        }
+    }
+
+    private static boolean hasCompleteRequest(Connection connection) {
+        if (connection.protocol == Connection.JSON) {
+            return indexOf(connection.input, connection.inputLength, (byte) '\n') >= 0;
+        }
+        if (connection.protocol == Connection.BINARY && connection.inputLength >= 2) {
+            int length = (connection.input[0] & 0xFF) << 8 | connection.input[1] & 0xFF;
+            return connection.inputLength >= 2 + length;
+        }
+        return false;
+    }
+
+    // the next complete request taken from the input as a unit of work, null when none is complete yet
+    private Supplier<byte[]> nextRequest(Connection connection) {
+        if (connection.protocol == Connection.JSON) {
+            int newline = indexOf(connection.input, connection.inputLength, (byte) '\n');
+            if (newline >= 0) {
+                String line = takeLine(connection, newline);
+                return () -> (jsonHandler.apply(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            }
+        } else if (connection.protocol == Connection.BINARY && connection.inputLength >= 2) {
+            int length = (connection.input[0] & 0xFF) << 8 | connection.input[1] & 0xFF;
+            if (length > BinaryProtocol.MAX_FRAME_BYTES) {
+                System.err.println("Request frame of " + length + " bytes, closing connection");
+                close(connection);
+                return null;
+            }
+            if (connection.inputLength >= 2 + length) {
+                byte[] frame = Arrays.copyOfRange(connection.input, 2, 2 + length);
+                consume(connection, 2 + length);
+                return () -> binaryHandler.apply(frame);
+            }
+        }
+        return null;
+    }
+
+    private void complete(Connection connection, Answer answer, byte[] response) {
+        if (!connection.key.isValid()) {
+            return; // closed while the request was computed
+        }
+        if (response == null) {
+            close(connection); // the request failed, its answer and everything after it would never come
+            return;
+        }
+        answer.response = response;
+        write(connection);
+    }
+
+    // writes finished answers in request order until one is still computing or the socket buffer is full
+    private void write(Connection connection) {
+        try {
+            while (true) {
+                if (connection.output == null) {
+                    Answer next = connection.answers.peek();
+                    if (next == null || next.response == null) {
+                        break;
+                    }
+                    connection.answers.poll();
+                    connection.output = wrap(next.response);
+                }
+                connection.channel.write(connection.output);
+                if (connection.output.hasRemaining()) {
+                    break; // socket buffer full, resume when it drains
+                }
+                releaseOutput(connection);
+                connection.lastActive = System.nanoTime();
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        dispatch(connection); // answers went out, pipelined requests may be waiting for room
+    }
+
+    private ByteBuffer wrap(byte[] response) {
+        if (response.length <= buffers.getBufferSize()) {
+            return buffers.acquire().put(response).flip();
+        }
+        return ByteBuffer.wrap(response);
+    }
+
+    // closes connections that have neither sent a request nor awaited an answer within the idle timeout
+    private void closeIdle() {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && connection.isIdle()
+                    && now - connection.lastActive > idleTimeoutNanos) {
+                close(connection);
+            }
+        }
+    }
+
+    private void releaseOutput(Connection connection) {
+        if (connection.output != null) {
+            if (connection.output.isDirect()) {
+                buffers.release(connection.output);
+            }
+            connection.output = null;
+        }
+    }
+
+    private void close(Connection connection) {
+        releaseOutput(connection);
+        if (connection.key.isValid()) {
+            connection.key.cancel();
+            openConnections.decrementAndGet();
+        }
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    close(connection);
+                }
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Error closing selector: " + e.getMessage());
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte value) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // moves the buffer's bytes to the connection's input
+    private static void append(Connection connection, ByteBuffer buffer) {
+        int needed = connection.inputLength + buffer.remaining();
+        if (needed > connection.input.length) {
+            connection.input = Arrays.copyOf(connection.input, Math.max(needed, connection.input.length * 2));
+        }
+        int length = buffer.remaining();
+        buffer.get(connection.input, connection.inputLength, length);
+        connection.inputLength = needed;
+    }
+
+    // removes the line ending at newline from the input, without the line terminator
+    private static String takeLine(Connection connection, int newline) {
+        int length = newline;
+        if (length > 0 && connection.input[length - 1] == '\r') {
+            length--;
+        }
+        String line = new String(connection.input, 0, length, StandardCharsets.UTF_8);
+        consume(connection, newline + 1);
+        return line;
+    }
+
+    // drops the first count bytes of the input
+    private static void consume(Connection connection, int count) {
+        int rest = connection.inputLength - count;
+        if (rest == 0) {
+            connection.input = new byte[0]; // an idle connection keeps no input buffer
+        } else {
+            System.arraycopy(connection.input, count, connection.input, 0, rest);
+        }
+        connection.inputLength = rest;
+    }
+}
@@ -0,0 +1,177 @@
+package util;
+
+import model.GameEngine;
+import model.PieceOrientation;
+import model.PolicyAI;
+import model.TetrisAI;
+import model.TetrisShape;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless self-play for training data: seeded GameEngine games played by TetrisAI, one dataset record per placement that fits
+// Worker threads play whole games and hand them to the single writer through a bounded queue, so no more than
+// the queue plus one game per worker is ever held in memory, whatever the number of games. Game n uses seed n.
+// Usage: java util.SelfPlayGenerator [games] [output] [threads] [max pieces per game]
+public class SelfPlayGenerator {
+    public static final int HORIZON = 10; // placements counted by FUTURE_LINES and TOPPED_OUT
+    private static final int DEFAULT_GAMES = 100;
+    private static final int DEFAULT_MAX_PIECES = 2000;
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+
+    // placements of one finished game, column arrays indexed by piece
+    private static final class GameRecords {
+        final int game;
+        final int[] types;
+        final int[] rotations;
+        final int[] xs;
+        final int[] ys;
+        final int[] rowsCleared;
+        final float[] features;
+        int count;
+        boolean toppedOut;
+
+        GameRecords(int game, int maxPieces) {
+            this.game = game;
+            this.types = new int[maxPieces];
+            this.rotations = new int[maxPieces];
+            this.xs = new int[maxPieces];
+            this.ys = new int[maxPieces];
+            this.rowsCleared = new int[maxPieces];
+            this.features = new float[maxPieces * PolicyAI.FEATURE_COUNT];
+        }
+    }
+
+    private static final GameRecords WORKER_DONE = new GameRecords(-1, 0);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        Path output = args.length > 1 ? Path.of(args[1]) : Path.of("selfplay.tfds");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxPieces = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_PIECES;
+
+        long start = System.nanoTime();
+        long records = generate(output, games, threads, maxPieces, BOARD_WIDTH, BOARD_HEIGHT);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d placements written to %s in %.1f s (%.0f placements/s, %d threads)%n",
+                games, records, output, seconds, records / seconds, threads);
+    }
+
+    // plays the games on `threads` workers and streams them to output, returns the number of records
+    public static long generate(Path output, int games, int threads, int maxPieces, int width, int height)
+            throws IOException, InterruptedException {
+        BlockingQueue<GameRecords> finished = new ArrayBlockingQueue<>(threads * 2);
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "self-play-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> results = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            results.add(workers.submit(() -> {
+                try {
+                    for (int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+                        finished.put(play(game, width, height, maxPieces)); // blocks while the writer is behind
+                    }
+                } finally {
+                    finished.put(WORKER_DONE);
+                }
+                return null;
+            }));
+        }
+
+        try (FeatureDatasetWriter writer = new FeatureDatasetWriter(output)) {
+            for (int running = threads; running > 0; ) {
+                GameRecords game = finished.take();
+                if (game == WORKER_DONE) {
+                    running--;
+                } else {
+                    write(writer, game);
+                }
+            }
+            for (Future<?> result : results) {
+                result.get(); // rethrows a worker's failure
+            }
+            return writer.getRecordCount();
+        } catch (ExecutionException e) {
+            throw new IOException("Self-play worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static GameRecords play(int game, int width, int height, int maxPieces) {
+        GameEngine engine = new GameEngine(new SeededRandom(game), width, height, false, false);
+        TetrisAI ai = new TetrisAI();
+        GameRecords records = new GameRecords(game, maxPieces);
+        int[] columnTops = new int[width];
+
+        engine.startGame();
+        while (engine.isGameRunning() && records.count < maxPieces) {
+            TetrisShape shape = engine.getCurrentShape();
+            TetrisShape.ShapeType type = shape.getType();
+            List<TetrisShape.ShapeType> preview = engine.getNextShapeType() != null ? List.of(engine.getNextShapeType()) : List.of();
+            TetrisAI.Move move = ai.findBestMove(engine.getBoard(), shape, preview);
+            if (move == null) {
+                break; // nothing fits
+            }
+
+            int i = records.count;
+            PieceOrientation orientation = type.getOrientation(move.rotations());
+            engine.getBoard().fillColumnTops(columnTops);
+            int row = orientation.landingRow(columnTops, move.column());
+            if (row < 0) {
+                // the piece does not fit from the top: the move tops the game out and has no features to record
+                engine.playMove(move);
+                continue;
+            }
+            PolicyAI.extractFeatures(engine.getBoard(), orientation, move.column(), row,
+                    records.features, i * PolicyAI.FEATURE_COUNT);
+            records.types[i] = type.ordinal();
+            records.rotations[i] = move.rotations();
+            records.xs[i] = move.column();
+            records.ys[i] = row;
+
+            int linesBefore = engine.getLinesErased();
+            engine.playMove(move);
+            records.rowsCleared[i] = engine.getLinesErased() - linesBefore;
+            records.count++;
+        }
+        records.toppedOut = records.count < maxPieces;
+        return records;
+    }
+
+    // outcome columns need the rest of the game, so they are derived here once it is over
+    private static void write(FeatureDatasetWriter writer, GameRecords game) throws IOException {
+        int count = game.count;
+        int futureLines = 0;
+        for (int i = 0; i < Math.min(HORIZON, count); i++) {
+            futureLines += game.rowsCleared[i];
+        }
+        for (int i = 0; i < count; i++) {
+            int piecesLeft = count - 1 - i;
+            writer.add(game.game, i, game.types[i], game.rotations[i], game.xs[i], game.ys[i],
+                    game.features, i * PolicyAI.FEATURE_COUNT, game.rowsCleared[i], futureLines, piecesLeft,
+                    game.toppedOut && piecesLeft < HORIZON);
+
+            // slide the window to [i + 1, i + HORIZON]
+            futureLines -= game.rowsCleared[i];
+            if (i + HORIZON < count) {
+                futureLines += game.rowsCleared[i + HORIZON];
+            }
+        }
+        writer.endGame();
+    }
+}
@@ -0,0 +1,348 @@
+package util;
+
+import com.google.gson.Gson;
+import model.GameBoard;
+import model.PureGame;
+import model.TetrisShape;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load benchmark for TetrisServer: many concurrent clients send move requests back to back, per server mode
+// The server runs in this JVM on a free port; clients run on virtual threads so the load generator itself is
+// not limited by threads. Reports throughput and the median and 99th percentile request latency. Clients keep
+// one connection for all their requests like GameEngine does, with "fresh" open one per request, or with
+// "pipelined" send all their requests before reading the answers. They speak JSON lines, the binary protocol,
+// or JSON batches of BATCH_SIZE states per request. The clients cycle through a few dozen states, so with the
+// server's move cache on nearly every request is a repeat; a cache size of 0 makes every request a full search.
+// The shed policy decides whether an overloaded server queues requests or answers them at once with a fallback
+// or busy answer; shed and rejected counts are reported next to the latencies.
+// Usage: java util.ServerBenchmark [clients] [requests per client] [modes, comma separated]
+//        [persistent|fresh|pipelined] [json|binary|batch] [cache entries] [wait|fallback|busy]
+public class ServerBenchmark {
+    private static final int DEFAULT_CLIENTS = 1000;
+    private static final int DEFAULT_REQUESTS = 10;
+    private static final int WARMUP_REQUESTS = 500;
+    private static final int STATES = 64; // distinct requests, clients cycle through them
+    private static final int SOCKET_TIMEOUT_MILLIS = 60_000;
+    private static final int BATCH_SIZE = 16; // states per request with batch encoding
+    private static final Gson GSON = new Gson();
+
+    public enum Connections { PERSISTENT, FRESH, PIPELINED }
+
+    public enum Encoding { JSON, BINARY, BATCH }
+
+    public record Result(TetrisServer.Mode mode, int requests, int errors, int decisionsPerRequest, double seconds,
+                         long p50Nanos, long p99Nanos) {
+        public double requestsPerSecond() {
+            return (requests - errors) / seconds;
+        }
+
+        public double decisionsPerSecond() {
+            return requestsPerSecond() * decisionsPerRequest;
+        }
+    }
+
+    // the requests in every encoding, index = state; batch i holds BATCH_SIZE states starting at state i
+    private record Requests(String[] json, byte[][] binary, String[] batch) {}
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REQUESTS;
+        String modes = args.length > 2 ? args[2] : "pool,virtual";
+        Connections connections = args.length > 3 ? Connections.valueOf(args[3].toUpperCase()) : Connections.PERSISTENT;
+        Encoding encoding = args.length > 4 ? Encoding.valueOf(args[4].toUpperCase()) : Encoding.JSON;
+        int cacheCapacity = args.length > 5 ? Integer.parseInt(args[5]) : TetrisServer.DEFAULT_CACHE_CAPACITY;
+        TetrisServer.ShedPolicy shedPolicy = args.length > 6
+                ? TetrisServer.ShedPolicy.valueOf(args[6].toUpperCase()) : TetrisServer.ShedPolicy.FALLBACK;
+
+        Requests samples = sampleRequests();
+        System.out.printf("request size: %d bytes as JSON, %d bytes binary, %d bytes for a batch of %d%n",
+                samples.json()[0].length() + 1, samples.binary()[0].length, samples.batch()[0].length() + 1,
+                BATCH_SIZE);
+        for (String name : modes.split(",")) {
+            Result result = run(TetrisServer.Mode.valueOf(name.toUpperCase()), clients, requests, connections,
+                    encoding, cacheCapacity, shedPolicy);
+            System.out.printf("%-8s %5d %s %s clients: %8.0f requests/s, %8.0f decisions/s, p50 %7.2f ms, "
+                            + "p99 %7.2f ms, %d errors%n",
+                    result.mode(), clients, connections.name().toLowerCase(), encoding.name().toLowerCase(),
+                    result.requestsPerSecond(), result.decisionsPerSecond(), result.p50Nanos() / 1e6,
+                    result.p99Nanos() / 1e6, result.errors());
+        }
+    }
+
+    public static Result run(TetrisServer.Mode mode, int clients, int requestsPerClient, Connections connections,
+                             Encoding encoding, int cacheCapacity, TetrisServer.ShedPolicy shedPolicy)
+            throws Exception {
+        Requests requests = sampleRequests();
+        TetrisServer server = new TetrisServer(0, mode);
+        server.setLogRequests(false);
+        server.setCacheCapacity(cacheCapacity);
+        server.setShedPolicy(shedPolicy);
+        int port = server.bind();
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                System.err.println("Server failed: " + e.getMessage());
+            }
+        }, "benchmark-server");
+        serverThread.start();
+        try {
+            try (Client warmup = new Client(port, requests, Connections.PERSISTENT, encoding)) {
+                for (int i = 0; i < WARMUP_REQUESTS; i++) {
+                    warmup.exchange(i % STATES);
+                }
+            }
+
+            long[] latencies = new long[clients * requestsPerClient];
+            AtomicInteger errors = new AtomicInteger();
+            CountDownLatch ready = new CountDownLatch(clients);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>(clients);
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                threads.add(Thread.ofVirtual().start(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    try (Client connection = new Client(port, requests, connections, encoding)) {
+                        int first = client * requestsPerClient;
+                        if (connections == Connections.PIPELINED) {
+                            try {
+                                connection.pipeline(first, requestsPerClient, latencies);
+                            } catch (IOException e) {
+                                errors.addAndGet(requestsPerClient);
+                            }
+                            return;
+                        }
+                        for (int r = 0; r < requestsPerClient; r++) {
+                            int slot = first + r;
+                            long start = System.nanoTime();
+                            try {
+                                connection.exchange(slot % STATES);
+                            } catch (IOException e) {
+                                errors.incrementAndGet();
+                            }
+                            latencies[slot] = System.nanoTime() - start;
+                        }
+                    }
+                }));
+            }
+
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            MoveCache cache = server.getMoveCache();
+            if (cache != null) {
+                System.out.printf("move cache: %.1f%% hit rate%n", cache.getHitRate() * 100);
+            }
+            System.out.printf("searches: %d run, %d coalesced%n",
+                    server.getSearches().getComputed(), server.getSearches().getCoalesced());
+            RequestPipeline pipeline = server.getPipeline();
+            System.out.printf("admission: %s policy, %d parses and %d searches shed, %d connections rejected%n",
+                    shedPolicy, pipeline.getParseStage().getShed(), pipeline.getSearchStage().getShed(),
+                    server.getRejectedConnections());
+            return new Result(mode, latencies.length, errors.get(), encoding == Encoding.BATCH ? BATCH_SIZE : 1, seconds,
+                    latencies[latencies.length / 2], latencies[(int) (latencies.length * 0.99)]);
+        } finally {
+            server.stop();
+            serverThread.join();
+        }
+    }
+
+    // one benchmark client, keeps its connection between requests unless fresh
+    private static final class Client implements AutoCloseable {
+        private final int port;
+        private final Requests requests;
+        private final Connections connections;
+        private final Encoding encoding;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private BufferedReader reader;
+        private PrintWriter writer;
+
+        Client(int port, Requests requests, Connections connections, Encoding encoding) {
+            this.port = port;
+            this.requests = requests;
+            this.connections = connections;
+            this.encoding = encoding;
+        }
+
+        void exchange(int state) throws IOException {
+            try {
+                if (socket == null) {
+                    open();
+                }
+                send(state);
+                if (encoding == Encoding.BINARY) {
+                    out.flush();
+                } else {
+                    writer.flush();
+                }
+                receive();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            if (connections == Connections.FRESH) {
+                close();
+            }
+        }
+
+        // sends count requests without waiting, then reads the answers; the latency of each is from the first send
+        void pipeline(int firstSlot, int count, long[] latencies) throws IOException {
+            open();
+            long start = System.nanoTime();
+            Thread sender = Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        send((firstSlot + i) % STATES);
+                    }
+                    if (encoding == Encoding.BINARY) {
+                        out.flush();
+                    } else {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    close(); // the reader fails next
+                }
+            });
+            try {
+                for (int i = 0; i < count; i++) {
+                    receive();
+                    latencies[firstSlot + i] = System.nanoTime() - start;
+                }
+            } finally {
+                try {
+                    sender.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void send(int state) throws IOException {
+            switch (encoding) {
+                case BINARY -> out.write(requests.binary()[state]);
+                case JSON -> writer.println(requests.json()[state]);
+                case BATCH -> writer.println(requests.batch()[state]);
+            }
+        }
+
+        private void receive() throws IOException {
+            if (encoding == Encoding.BINARY) {
+                in.readUnsignedShort(); // the move
+            } else if (reader.readLine() == null) {
+                throw new IOException("Connection closed without a response");
+            }
+        }
+
+        private void open() throws IOException {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress("localhost", port), SOCKET_TIMEOUT_MILLIS);
+            socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            if (encoding == Encoding.BINARY) {
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.write(BinaryProtocol.MAGIC);
+            } else {
+                reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                writer = new PrintWriter(new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // discarded either way
+                }
+                socket = null;
+            }
+        }
+    }
+
+    private static Requests sampleRequests() throws IOException {
+        String[] json = new String[STATES];
+        byte[][] binary = new byte[STATES][];
+        String[] batch = new String[STATES];
+        Random random = new SeededRandom(STATES);
+        for (int i = 0; i < STATES; i++) {
+            PureGame state = sampleState(random);
+            json[i] = GSON.toJson(state);
+
+            GameBoard board = new GameBoard(state.getWidth(), state.getHeight());
+            board.setBoardState(state.getCells());
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            BinaryProtocol.writeRequest(new DataOutputStream(frame), board,
+                    TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 0,
+                    state.getCurrentShapeX(), state.getCurrentShapeY(), null);
+            binary[i] = frame.toByteArray();
+        }
+        for (int i = 0; i < STATES; i++) {
+            StringJoiner states = new StringJoiner(",", "[", "]");
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                states.add(json[(i + j) % STATES]);
+            }
+            batch[i] = states.toString();
+        }
+        return new Requests(json, binary, batch);
+    }
+
+    // a mid-game looking 10x20 board: a ragged stack of random height with holes, and a random piece
+    static PureGame sampleState(Random random) {
+        String[][] cells = new String[20][10];
+        int stack = 2 + random.nextInt(8);
+        for (int row = 20 - stack; row < 20; row++) {
+            for (int col = 0; col < 10; col++) {
+                if (random.nextInt(10) < 7) {
+                    cells[row][col] = "blue";
+                }
+            }
+        }
+        String[] types = {"I", "O", "T", "L", "J", "Z", "S"};
+        String type = types[random.nextInt(types.length)];
+        TetrisShape shape = new TetrisShape(TetrisShape.ShapeType.valueOf(type), 3, 0);
+        boolean[][] pattern = new boolean[shape.getHeight()][shape.getWidth()];
+        for (int row = 0; row < pattern.length; row++) {
+            for (int col = 0; col < pattern[row].length; col++) {
+                pattern[row][col] = shape.isCellFilled(row, col);
+            }
+        }
+        return new PureGame(10, 20, cells, pattern, pattern, 3, 0, type);
+    }
+}
@@ -0,0 +1,413 @@
+package util;
+
+import model.PlacementPolicy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Shards headless simulations over SimulationWorker processes on this or other hosts and merges their results
+// Jobs are a seed range for the greedy AI or for one candidate PlacementPolicy, so the batch simulator splits
+// a seed range into shards and the weight tuner sends one job per candidate. Each worker connection takes the
+// next pending job as soon as it has answered the previous one; when a worker dies its job goes back to the
+// queue for the others, and a run only fails once no worker is left.
+//
+// Protocol (big endian, over one TCP connection per worker):
+//   worker greeting : magic int, version short
+//   job             : FRAME_JOB byte, id int, Job
+//   result          : FRAME_RESULT byte, id int, Result  |  FRAME_ERROR byte, id int, message UTF
+// Usage: java util.SimulationCoordinator [workers] [games] [max pieces] [host:port,... of running workers]
+public class SimulationCoordinator implements Closeable {
+    static final int MAGIC = 0x5453494D; // "TSIM"
+    static final short VERSION = 1;
+    static final byte FRAME_JOB = 1;
+    static final byte FRAME_RESULT = 2;
+    static final byte FRAME_ERROR = 3;
+    public static final int DEFAULT_SHARD_GAMES = 4;
+    private static final int WORKER_EXIT_TIMEOUT_SECONDS = 10;
+
+    // games firstSeed..firstSeed+games-1 on a width x height board, played by policy or the greedy AI when null
+    public record Job(long firstSeed, int games, int width, int height, int maxPieces, PlacementPolicy policy) {
+
+        void write(DataOutput out) throws IOException {
+            out.writeLong(firstSeed);
+            out.writeInt(games);
+            out.writeShort(width);
+            out.writeShort(height);
+            out.writeInt(maxPieces);
+            if (policy == null) {
+                out.writeShort(-1);
+                return;
+            }
+            out.writeShort(policy.getHiddenUnits());
+            out.writeByte(policy.getFeatureCount());
+            float[] parameters = policy.getParameters();
+            for (float parameter : parameters) {
+                out.writeFloat(parameter);
+            }
+        }
+
+        static Job read(DataInput in) throws IOException {
+            long firstSeed = in.readLong();
+            int games = in.readInt();
+            int width = in.readShort();
+            int height = in.readShort();
+            int maxPieces = in.readInt();
+            int hiddenUnits = in.readShort();
+            PlacementPolicy policy = null;
+            if (hiddenUnits >= 0) {
+                int features = in.readUnsignedByte();
+                float[] parameters = new float[PlacementPolicy.parameterCount(features, hiddenUnits)];
+                for (int i = 0; i < parameters.length; i++) {
+                    parameters[i] = in.readFloat();
+                }
+                policy = PlacementPolicy.fromParameters(features, hiddenUnits, parameters);
+            }
+            return new Job(firstSeed, games, width, height, maxPieces, policy);
+        }
+    }
+
+    // totals over a set of games, decisionNanos is the time spent choosing moves
+    public record Result(int games, long pieces, long lines, int toppedOut, long decisionNanos) {
+        public static final Result EMPTY = new Result(0, 0, 0, 0, 0);
+
+        public Result plus(Result other) {
+            return new Result(games + other.games, pieces + other.pieces, lines + other.lines,
+                    toppedOut + other.toppedOut, decisionNanos + other.decisionNanos);
+        }
+
+        public double linesPerGame() {
+            return games == 0 ? 0 : (double) lines / games;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeInt(games);
+            out.writeLong(pieces);
+            out.writeLong(lines);
+            out.writeInt(toppedOut);
+            out.writeLong(decisionNanos);
+        }
+
+        static Result read(DataInput in) throws IOException {
+            return new Result(in.readInt(), in.readLong(), in.readLong(), in.readInt(), in.readLong());
+        }
+    }
+
+    // an open connection to one worker
+    private static final class Connection {
+        final String name;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            name = address.toString();
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                socket.close();
+                throw new IOException("Not a simulation worker of this version: " + address);
+            }
+        }
+
+        Result execute(int id, Job job) throws IOException {
+            out.writeByte(FRAME_JOB);
+            out.writeInt(id);
+            job.write(out);
+            out.flush();
+
+            byte frame = in.readByte();
+            if (in.readInt() != id) {
+                throw new IOException("Worker " + name + " answered another job");
+            }
+            if (frame == FRAME_ERROR) {
+                throw new JobFailedException("Job failed on " + name + ": " + in.readUTF());
+            }
+            if (frame != FRAME_RESULT) {
+                throw new IOException("Unexpected frame " + frame + " from " + name);
+            }
+            return Result.read(in);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Error closing worker connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // the worker ran the job and reported an error, another worker would fail the same way
+    private static final class JobFailedException extends IOException {
+        JobFailedException(String message) {
+            super(message);
+        }
+    }
+
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>(); // workers started by startLocal, stopped by close
+    private final ExecutorService dispatchers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "simulation-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // pending job indexes and run state, guarded by this
+    private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+    private int remaining;
+    private int activeDispatchers;
+    private IOException failure;
+
+    private SimulationCoordinator() {
+    }
+
+    // connects to workers that are already running, e.g. on other hosts
+    public static SimulationCoordinator connect(List<InetSocketAddress> workers) throws IOException {
+        SimulationCoordinator coordinator = new SimulationCoordinator();
+        try {
+            for (InetSocketAddress address : workers) {
+                coordinator.connections.add(new Connection(address));
+            }
+        } catch (IOException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    // starts worker JVMs on this host with the current classpath and connects to them
+    public static SimulationCoordinator startLocal(int workers) throws IOException {
+        SimulationCoordinator coordinator = new SimulationCoordinator();
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            if (ManagementFactory.getRuntimeMXBean().getInputArguments().contains("--enable-preview")) {
+                command.add("--enable-preview");
+            }
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), SimulationWorker.class.getName(), "0"));
+            for (int i = 0; i < workers; i++) {
+                Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                coordinator.processes.add(process);
+            }
+            for (Process process : coordinator.processes) {
+                coordinator.connections.add(new Connection(new InetSocketAddress("localhost", readPort(process))));
+            }
+        } catch (IOException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    // first stdout line of a starting worker is its port
+    private static int readPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line = reader.readLine();
+        if (line == null) {
+            throw new IOException("Simulation worker exited before listening, exit code "
+                    + waitForExit(process));
+        }
+        return Integer.parseInt(line.trim());
+    }
+
+    private static int waitForExit(Process process) {
+        try {
+            return process.waitFor(WORKER_EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS) ? process.exitValue() : -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    // processes started by startLocal, in worker order
+    public List<Process> getLocalProcesses() {
+        return List.copyOf(processes);
+    }
+
+    public synchronized int getWorkerCount() {
+        return connections.size();
+    }
+
+    // plays seeds firstSeed..firstSeed+games-1 with the greedy AI in shards of shardGames, merged
+    public Result simulate(long firstSeed, int games, int maxPieces, int width, int height, int shardGames) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (long seed = firstSeed; seed < firstSeed + games; seed += shardGames) {
+            int count = (int) Math.min(shardGames, firstSeed + games - seed);
+            jobs.add(new Job(seed, count, width, height, maxPieces, null));
+        }
+        Result total = Result.EMPTY;
+        for (Result result : run(jobs)) {
+            total = total.plus(result);
+        }
+        return total;
+    }
+
+    // lines per game of each candidate policy over the same seeds, one job per candidate
+    public double[] evaluate(List<PlacementPolicy> candidates, long firstSeed, int games, int maxPieces, int width, int height)
+            throws IOException {
+        List<Job> jobs = new ArrayList<>(candidates.size());
+        for (PlacementPolicy candidate : candidates) {
+            jobs.add(new Job(firstSeed, games, width, height, maxPieces, candidate));
+        }
+        List<Result> results = run(jobs);
+        double[] fitness = new double[results.size()];
+        for (int i = 0; i < fitness.length; i++) {
+            fitness[i] = results.get(i).linesPerGame();
+        }
+        return fitness;
+    }
+
+    // runs every job on some worker and returns the results in job order
+    public synchronized List<Result> run(List<Job> jobs) throws IOException {
+        if (connections.isEmpty()) {
+            throw new IOException("No simulation workers left");
+        }
+        Result[] results = new Result[jobs.size()];
+        pending.clear();
+        for (int i = 0; i < jobs.size(); i++) {
+            pending.add(i);
+        }
+        remaining = jobs.size();
+        failure = null;
+        for (Connection connection : List.copyOf(connections)) {
+            activeDispatchers++;
+            dispatchers.execute(() -> dispatch(connection, jobs, results));
+        }
+
+        try {
+            while (remaining > 0 && failure == null) {
+                wait();
+            }
+            pending.clear();
+            while (activeDispatchers > 0) {
+                wait(); // a connection must be idle before the next run uses it
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for simulation workers", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return List.of(results);
+    }
+
+    // feeds one worker until the run is over, gives its job back if the worker dies
+    private void dispatch(Connection connection, List<Job> jobs, Result[] results) {
+        try {
+            feed(connection, jobs, results);
+        } finally {
+            synchronized (this) {
+                activeDispatchers--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void feed(Connection connection, List<Job> jobs, Result[] results) {
+        while (true) {
+            int job;
+            synchronized (this) {
+                while (pending.isEmpty() && remaining > 0 && failure == null) {
+                    try {
+                        wait(); // another worker may still fail and hand its job back
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                job = pending.poll();
+            }
+
+            try {
+                Result result = connection.execute(job, jobs.get(job));
+                synchronized (this) {
+                    results[job] = result;
+                    remaining--;
+                    notifyAll();
+                }
+            } catch (JobFailedException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Simulation worker " + connection.name + " failed, reassigning its job: " + e);
+                connection.close();
+                synchronized (this) {
+                    connections.remove(connection);
+                    pending.addFirst(job);
+                    if (connections.isEmpty()) {
+                        failure = new IOException("All simulation workers failed", e);
+                    }
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // disconnects, and stops the workers this coordinator started
+    @Override
+    public synchronized void close() {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        for (Process process : processes) {
+            process.destroy(); // workers hold no state worth a graceful exit
+        }
+        for (Process process : processes) {
+            if (waitForExit(process) < 0) {
+                process.destroyForcibly();
+            }
+        }
+        dispatchers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int maxPieces = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        long start = System.nanoTime();
+        try (SimulationCoordinator coordinator = args.length > 3 ? connect(parseAddresses(args[3])) : startLocal(workers)) {
+            Result result = coordinator.simulate(0, games, maxPieces, 10, 20, DEFAULT_SHARD_GAMES);
+            System.out.printf("%d games on %d workers: %.1f lines/game, %d topped out, %.2f us/decision, %.1f s%n",
+                    result.games(), coordinator.getWorkerCount(), result.linesPerGame(), result.toppedOut(),
+                    result.decisionNanos() / 1e3 / Math.max(result.pieces(), 1), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static List<InetSocketAddress> parseAddresses(String list) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String entry : list.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            addresses.add(new InetSocketAddress(entry.substring(0, colon), Integer.parseInt(entry.substring(colon + 1))));
+        }
+        return addresses;
+    }
+}
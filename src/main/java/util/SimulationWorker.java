@@ -0,0 +1,85 @@
+package util;
+
+import model.AIStrategy;
+import model.PolicyAI;
+import model.TetrisAI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.stream.LongStream;
+
+// Simulation worker process: plays the seed ranges a SimulationCoordinator sends and answers with the merged totals
+// Serves one coordinator connection at a time and goes back to accepting when it closes. The listening port is
+// printed as the only line on stdout, so a coordinator that started the process can find it; logs go to stderr.
+// Usage: java util.SimulationWorker [port, 0 picks a free one]
+public class SimulationWorker {
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println(serverSocket.getLocalPort());
+            System.out.flush();
+            while (true) {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.setTcpNoDelay(true);
+                    serve(socket);
+                } catch (IOException e) {
+                    System.err.println("Coordinator connection lost: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(SimulationCoordinator.MAGIC);
+        out.writeShort(SimulationCoordinator.VERSION);
+        out.flush();
+
+        while (true) {
+            int frame;
+            try {
+                frame = in.readByte();
+            } catch (EOFException e) {
+                return; // coordinator is done
+            }
+            if (frame != SimulationCoordinator.FRAME_JOB) {
+                throw new IOException("Unexpected frame " + frame);
+            }
+            int id = in.readInt();
+            SimulationCoordinator.Job job = SimulationCoordinator.Job.read(in);
+            try {
+                SimulationCoordinator.Result result = play(job);
+                out.writeByte(SimulationCoordinator.FRAME_RESULT);
+                out.writeInt(id);
+                result.write(out);
+            } catch (RuntimeException e) {
+                // a failing job fails the same way on every worker, so it is reported instead of dropping the connection
+                out.writeByte(SimulationCoordinator.FRAME_ERROR);
+                out.writeInt(id);
+                out.writeUTF(String.valueOf(e));
+            }
+            out.flush();
+        }
+    }
+
+    // plays the job's seeds on all cores of this host
+    static SimulationCoordinator.Result play(SimulationCoordinator.Job job) {
+        return LongStream.range(job.firstSeed(), job.firstSeed() + job.games()).parallel()
+                .mapToObj(seed -> {
+                    // strategies keep scratch buffers, so every game gets its own
+                    AIStrategy ai = job.policy() != null ? new PolicyAI(job.policy()) : new TetrisAI(null);
+                    HeadlessSimulator.Result game = HeadlessSimulator.play(ai, job.width(), job.height(), seed, job.maxPieces());
+                    return new SimulationCoordinator.Result(1, game.pieces(), game.lines(), game.toppedOut() ? 1 : 0,
+                            game.decisionNanos());
+                })
+                .reduce(SimulationCoordinator.Result.EMPTY, SimulationCoordinator.Result::plus);
+    }
+}
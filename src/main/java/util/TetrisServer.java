@@ -1,58 +1,239 @@
 package util;
 
-import com.google.gson.Gson;
 import model.*;
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
-// Multithreaded server that receives game state and returns optimal moves using AI
+// Multithreaded server that receives game state and returns optimal moves using AI, over JSON lines or BinaryProtocol
+// Requests go through a RequestPipeline and a MoveCache; --mode=nio serves connections with a SelectorFrontEnd
+// Usage: java util.TetrisServer [--mode=nio|pool|virtual] [--cache=entries] [--parse-capacity=requests]
+//        [--search-queue=requests] [--shed=wait|fallback|busy] [--accept-rate=connections/s] [--quiet]
 public class TetrisServer {
     private static final int PORT = 3000;
     private static final int THREAD_POOL_SIZE = 10;
+    private static final int CONNECTION_QUEUE = 256; // accepted connections waiting for a POOL thread
+    private static final int BACKLOG = 1024; // pending connections the OS queues before refusing
+    private static final int IDLE_TIMEOUT_MILLIS = 30_000; // connections without a request for this long are closed
+    private static final int BOOK_REPORT_INTERVAL = 1000; // requests between opening book and cache hit rate reports
+    public static final int DEFAULT_CACHE_CAPACITY = 10_000; // answers kept for repeated states, about 300 bytes each
+
+    // how connections are served
+    public enum Mode {
+        NIO,     // one selector thread for all sockets, complete requests are parsed on virtual threads
+        POOL,    // each connection occupies a pool thread while it is open
+        VIRTUAL  // each connection gets a virtual thread
+    }
+
+    // what happens to work arriving while its stage is full
+    public enum ShedPolicy {
+        WAIT,     // queue for room, latency grows with the load
+        FALLBACK, // answer a search with a cheap placement, anything else with busy
+        BUSY      // answer busy, the client decides what to do
+    }
     
     private final TetrisAI tetrisAI;
-    private final Gson gson;
-    private final ExecutorService executor;
+    // reusable buffers for decoded JSON requests, borrowed for one request at a time; NIO parses every request on
+    // a fresh virtual thread, so they are pooled rather than kept per thread. The pool only ever grows to the
+    // number of requests parsed at once
+    private final Queue<MoveRequestCodec.Request> spareRequests = new ConcurrentLinkedQueue<>();
+    private final ExecutorService connectionExecutor; // runs handleClient in POOL and VIRTUAL mode, null in NIO
+    private final LongAdder rejectedConnections = new LongAdder(); // closed because the POOL queue was full
+    // parsing for NIO and searching for every mode, in bounded stages
+    private final RequestPipeline pipeline;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final int port;
+    private final Mode mode;
+    private ServerSocket serverSocket;          // POOL mode
+    private ServerSocketChannel serverChannel;  // NIO mode
+    private SelectorFrontEnd frontEnd;
+    private volatile boolean running;
+    private volatile boolean logRequests = true;
+    private boolean shutDown;
+    private int idleTimeoutMillis = IDLE_TIMEOUT_MILLIS;
+    private volatile ShedPolicy shedPolicy = ShedPolicy.FALLBACK;
+    private RateLimiter acceptLimiter = RateLimiter.unlimited();
+    private volatile MoveCache moveCache = new MoveCache(DEFAULT_CACHE_CAPACITY); // null when caching is off
+    private final SingleFlight<MoveCache.Key, OpMove> searches = new SingleFlight<>();
     
     public TetrisServer() {
+        this(PORT, Mode.NIO);
+    }
+
+    // port 0 binds a free port, see getPort
+    public TetrisServer(int port, Mode mode) {
+        this(port, mode, new RequestPipeline());
+    }
+
+    public TetrisServer(int port, Mode mode, RequestPipeline pipeline) {
+        this.pipeline = pipeline;
         this.tetrisAI = new TetrisAI();
-        this.gson = new Gson();
-        this.executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        this.connectionExecutor = switch (mode) {
+            case NIO -> null;
+            case POOL -> new ThreadPoolExecutor(THREAD_POOL_SIZE, THREAD_POOL_SIZE, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(CONNECTION_QUEUE), this::connectionQueueFull);
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+        this.port = port;
+        this.mode = mode;
     }
     
     public void start() throws IOException {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("TetrisServer started on localhost:" + PORT + " with " + THREAD_POOL_SIZE + " threads");
-            
-            while (true) {
+        bind();
+        serve();
+    }
+
+    // opens the listening socket, returns the bound port
+    public synchronized int bind() throws IOException {
+        running = true;
+        if (mode == Mode.NIO) {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+            frontEnd = new SelectorFrontEnd(serverChannel, pipeline, this::respond, this::respondBinary, idleTimeoutMillis,
+                    shedPolicy != ShedPolicy.WAIT, acceptLimiter);
+            return serverChannel.socket().getLocalPort();
+        }
+        serverSocket = new ServerSocket(port, BACKLOG);
+        return serverSocket.getLocalPort();
+    }
+
+    // serves connections on the calling thread until stop
+    public void serve() throws IOException {
+        System.out.println("TetrisServer started on localhost:" + getPort() + " in " + mode + " mode with "
+                + (mode == Mode.POOL ? THREAD_POOL_SIZE + " connection threads and " : "")
+                + pipeline.getSearchThreads() + " search threads");
+        try {
+            if (mode == Mode.NIO) {
+                frontEnd.run();
+                return;
+            }
+            while (running) {
+                acceptLimiter.acquire();
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("Client connected - submitting to thread pool");
+                if (logRequests) {
+                    System.out.println("Client connected - submitting to thread pool");
+                }
                 
                 // handle each client in separate thread
-                executor.submit(() -> handleClient(clientSocket));
+                try {
+                    connectionExecutor.execute(() -> handleClient(clientSocket));
+                } catch (RejectedExecutionException e) {
+                    rejectedConnections.increment();
+                    clientSocket.close();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SocketException e) {
+            if (running) {
+                throw e;
             }
         } finally {
             shutdown();
         }
     }
+
+    // per-request console output, on by default
+    public void setLogRequests(boolean logRequests) {
+        this.logRequests = logRequests;
+    }
+
+    // how long a connection may wait without a request before it is closed, set before bind
+    public synchronized void setIdleTimeoutMillis(int idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    // what to do with work while its stage is full, set before bind
+    public synchronized void setShedPolicy(ShedPolicy shedPolicy) {
+        this.shedPolicy = shedPolicy;
+    }
+
+    public ShedPolicy getShedPolicy() {
+        return shedPolicy;
+    }
+
+    // new connections accepted per second, 0 for no limit; the rest wait in the OS backlog. Set before bind
+    public synchronized void setMaxAcceptsPerSecond(int acceptsPerSecond) {
+        acceptLimiter = new RateLimiter(acceptsPerSecond);
+    }
+
+    // answers kept for repeated board and piece combinations, 0 turns the cache off; starts empty
+    public void setCacheCapacity(int capacity) {
+        moveCache = capacity > 0 ? new MoveCache(capacity) : null;
+    }
+
+    // null when caching is off
+    public MoveCache getMoveCache() {
+        return moveCache;
+    }
+
+    public synchronized int getPort() {
+        return mode == Mode.NIO ? serverChannel.socket().getLocalPort() : serverSocket.getLocalPort();
+    }
+
+    // closes the listening socket, serve returns once open connections are dropped
+    public synchronized void stop() {
+        running = false;
+        try {
+            if (frontEnd != null) {
+                frontEnd.stop();
+            }
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing server socket: " + e.getMessage());
+        }
+    }
     
+    // a POOL connection finding the queue full waits for room under WAIT, otherwise it is turned away
+    private void connectionQueueFull(Runnable task, ThreadPoolExecutor executor) {
+        if (shedPolicy != ShedPolicy.WAIT || executor.isShutdown()) {
+            throw new RejectedExecutionException("Connection queue full");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
     private void handleClient(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
-            
-            String requestJson = in.readLine();
-            System.out.println("Received: " + requestJson);
-            
-            if (requestJson != null) {
-                OpMove response = processRequest(requestJson);
-                String responseJson = gson.toJson(response);
-                
-                out.println(responseJson);
-                System.out.println("Sent: " + responseJson);
+        try {
+            // the connection carries requests until the client closes it or stays silent for the idle timeout
+            clientSocket.setSoTimeout(idleTimeoutMillis);
+            BufferedInputStream input = new BufferedInputStream(clientSocket.getInputStream());
+            OutputStream output = clientSocket.getOutputStream();
+
+            // the first byte picks the protocol for the whole connection
+            input.mark(1);
+            if (input.read() == BinaryProtocol.MAGIC) {
+                serveBinary(new DataInputStream(input), new DataOutputStream(new BufferedOutputStream(output)));
+            } else {
+                input.reset();
+                serveJson(new BufferedReader(new InputStreamReader(input)), new PrintWriter(output, true));
             }
             
+        } catch (SocketTimeoutException e) {
+            // idle client, closing frees its thread
         } catch (Exception e) {
             System.err.println("Error handling client: " + e.getMessage());
         } finally {
@@ -64,50 +245,271 @@ public class TetrisServer {
         }
     }
     
-    private OpMove processRequest(String requestJson) {
-        try {
-            PureGame pureGame = gson.fromJson(requestJson, PureGame.class);
-            
-            if (pureGame == null || pureGame.getCells() == null || pureGame.getCurrentShape() == null) {
-                return new OpMove(0, 0);
+    // reading, parsing and writing happen on the connection's thread, the search in the pipeline's search stage
+    private void serveJson(BufferedReader in, PrintWriter out) throws IOException {
+        String requestJson;
+        while ((requestJson = in.readLine()) != null) {
+            if (logRequests) {
+                System.out.println("Received: " + requestJson);
             }
+            String responseJson = respond(requestJson);
             
-            // create game board directly from PureGame cells
-            ui.configscreen.GameConfig config = ui.configscreen.GameConfig.getInstance();
-            GameBoard gameBoard = new GameBoard(config.getFieldWidth(), config.getFieldHeight());
-            gameBoard.setBoardState(pureGame.getCells());
-            
-            // create tetris shape with actual type and position from game
-            TetrisShape.ShapeType shapeType = TetrisShape.ShapeType.valueOf(pureGame.getCurrentShapeType());
-            TetrisShape currentShape = new TetrisShape(shapeType, pureGame.getCurrentShape(), 
-                                                     pureGame.getCurrentShapeX(), 
-                                                     pureGame.getCurrentShapeY());
-            
-            // get AI recommendation
-            TetrisAI.Move bestMove = tetrisAI.findBestMove(gameBoard, currentShape);
-            
-            if (bestMove != null) {
-                return new OpMove(bestMove.column(), bestMove.rotations());
-            } else {
+            out.println(responseJson);
+            if (logRequests) {
+                System.out.println("Sent: " + responseJson);
+            }
+        }
+    }
+
+    private void serveBinary(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            int length;
+            try {
+                length = in.readUnsignedShort();
+            } catch (EOFException e) {
+                return; // client closed the connection
+            }
+            if (length > BinaryProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("Request frame of " + length + " bytes");
+            }
+            byte[] frame = new byte[length];
+            in.readFully(frame);
+            out.write(respondBinary(frame));
+            out.flush();
+        }
+    }
+
+    // one JSON request line to one JSON response line, a batch line to an array of moves in the same order
+    private String respond(String requestJson) {
+        if (MoveRequestCodec.isBatch(requestJson)) {
+            return respondBatch(requestJson);
+        }
+        return MoveRequestCodec.OP_MOVE.toJson(processRequest(requestJson));
+    }
+
+    // the batch takes one search slot and fans out over the search pool, one task per state
+    private String respondBatch(String batchJson) {
+        List<MoveRequestCodec.Request> requests;
+        try {
+            requests = MoveRequestCodec.readBatch(batchJson);
+        } catch (Exception e) {
+            System.err.println("Error processing batch: " + e.getMessage());
+            return "[]";
+        }
+        List<OpMove> moves = pipeline.search(() -> requests.parallelStream().map(this::processRequest).toList(),
+                whenSearchFull(() -> requests.stream().map(this::fallbackMove).toList(),
+                        () -> Collections.nCopies(requests.size(), OpMove.BUSY)));
+        return MoveRequestCodec.writeMoves(moves);
+    }
+
+    // one binary request frame, without its length prefix, to the two byte move
+    private byte[] respondBinary(byte[] frame) {
+        try {
+            BinaryProtocol.Request request = BinaryProtocol.readRequest(frame, 0, frame.length);
+            TetrisShape piece = new TetrisShape(request.piece(), request.x(), request.y());
+            for (int turn = 0; turn < request.rotation() % 4; turn++) {
+                piece.rotate();
+            }
+            return BinaryProtocol.encodeMove(computeMove(request.board(), piece));
+        } catch (Exception e) {
+            System.err.println("Error processing request: " + e.getMessage());
+            return BinaryProtocol.encodeMove(new OpMove(0, 0));
+        }
+    }
+
+    private OpMove processRequest(String requestJson) {
+        MoveRequestCodec.Request request = spareRequests.poll();
+        if (request == null) {
+            request = new MoveRequestCodec.Request();
+        }
+        try {
+            // streamed straight into row masks, no PureGame with its String[][] cells
+            return processRequest(MoveRequestCodec.readRequest(requestJson, request));
+        } catch (Exception e) {
+            System.err.println("Error processing request: " + e.getMessage());
+            return new OpMove(0, 0);
+        } finally {
+            spareRequests.offer(request); // nothing holds on to its board once the move is found
+        }
+    }
+
+    private OpMove processRequest(MoveRequestCodec.Request request) {
+        try {
+            if (!request.isComplete()) {
                 return new OpMove(0, 0);
             }
-            
+            return computeMove(request.toBoard(), request.toShape());
         } catch (Exception e) {
             System.err.println("Error processing request: " + e.getMessage());
             return new OpMove(0, 0);
         }
     }
+
+    // cheap answer for a batch entry when the search stage is full
+    private OpMove fallbackMove(MoveRequestCodec.Request request) {
+        try {
+            return request.isComplete() ? fallbackMove(request.toBoard(), request.toShape()) : new OpMove(0, 0);
+        } catch (Exception e) {
+            return new OpMove(0, 0);
+        }
+    }
+
+    // the piece as it is, dropped where it lands lowest: one pass over the column tops instead of a search
+    static OpMove fallbackMove(GameBoard gameBoard, TetrisShape currentShape) {
+        int[] columnTops = new int[gameBoard.getBoardWidth()];
+        gameBoard.fillColumnTops(columnTops);
+        PieceOrientation piece = TetrisShape.getOrientation(currentShape.getType(), 0);
+        int bestColumn = 0;
+        int bestRow = Integer.MIN_VALUE;
+        for (int col = 0; col + piece.getWidth() <= columnTops.length; col++) {
+            int row = piece.landingRow(columnTops, col);
+            if (row > bestRow) {
+                bestRow = row;
+                bestColumn = col;
+            }
+        }
+        return new OpMove(bestColumn, 0);
+    }
+
+    // the answer when the search stage is full under the shed policy, null to wait for a slot
+    private <T> Supplier<T> whenSearchFull(Supplier<T> fallback, Supplier<T> busy) {
+        return switch (shedPolicy) {
+            case WAIT -> null;
+            case FALLBACK -> fallback;
+            case BUSY -> busy;
+        };
+    }
+
+    // AI recommendation for a decoded request, whichever protocol it came in
+    private OpMove computeMove(GameBoard gameBoard, TetrisShape currentShape) {
+        if (requestCount.incrementAndGet() % BOOK_REPORT_INTERVAL == 0) {
+            reportOpeningBook();
+            reportCache();
+            reportPipeline();
+            reportAdmission();
+        }
+        MoveCache cache = moveCache;
+        MoveCache.Key key = MoveCache.keyFor(gameBoard, currentShape);
+        if (cache != null) {
+            OpMove cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // identical requests arriving while this one is searched wait for its answer instead of searching too.
+        // The search slot is taken before registering, so a leader never waits for a slot held by a batch whose
+        // workers wait for the leader; a shed answer is never registered or cached
+        Supplier<OpMove> whenFull = whenSearchFull(() -> fallbackMove(gameBoard, currentShape), () -> OpMove.BUSY);
+        return pipeline.search(() -> searches.run(key, () -> {
+            TetrisAI.Move bestMove = tetrisAI.findBestMove(gameBoard, currentShape);
+            OpMove move = bestMove != null ? new OpMove(bestMove.column(), bestMove.rotations()) : new OpMove(0, 0);
+            if (cache != null) {
+                cache.put(key, move);
+            }
+            return move;
+        }), whenFull);
+    }
+
+    // searches run and duplicate requests that shared another request's search instead
+    public SingleFlight<MoveCache.Key, OpMove> getSearches() {
+        return searches;
+    }
     
-    // graceful shutdown of thread pool
-    public void shutdown() {
-        if (executor != null && !executor.isShutdown()) {
-            System.out.println("Shutting down thread pool...");
-            executor.shutdown();
+    // POOL connections closed unserved because the connection queue was full
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    // accepts delayed by the accept rate limit
+    public synchronized long getThrottledAccepts() {
+        return acceptLimiter.getThrottled();
+    }
+
+    // stage depths and throughput, for tuning
+    public RequestPipeline getPipeline() {
+        return pipeline;
+    }
+
+    // graceful shutdown of thread pools
+    public synchronized void shutdown() {
+        if (!shutDown) {
+            shutDown = true;
+            System.out.println("Shutting down thread pools...");
+            if (connectionExecutor != null) {
+                connectionExecutor.shutdown();
+            }
+            pipeline.shutdown();
+            reportOpeningBook();
+            reportCache();
+            reportPipeline();
+            reportAdmission();
         }
     }
     
+    private void reportOpeningBook() {
+        OpeningBook book = OpeningBook.getDefault();
+        if (book == null) {
+            System.out.println("Opening book: not loaded, every move is searched");
+        } else {
+            System.out.printf("Opening book: %d/%d lookups answered (%.1f%% hit rate)%n",
+                    book.getHits(), book.getLookups(), book.getHitRate() * 100);
+        }
+    }
+    
+    private void reportCache() {
+        MoveCache cache = moveCache;
+        if (cache == null) {
+            System.out.println("Move cache: off");
+        } else {
+            System.out.printf("Move cache: %d/%d lookups answered (%.1f%% hit rate), %d of %d entries, %d evicted%n",
+                    cache.getHits(), cache.getHits() + cache.getMisses(), cache.getHitRate() * 100,
+                    cache.size(), cache.getCapacity(), cache.getEvictions());
+        }
+        System.out.printf("Searches: %d run, %d duplicate requests coalesced onto a running search%n",
+                searches.getComputed(), searches.getCoalesced());
+    }
+    
+    private void reportPipeline() {
+        String stalled = frontEnd != null ? ", " + frontEnd.getStalledConnections() + " connections stalled" : "";
+        System.out.println("Pipeline: " + pipeline + stalled);
+    }
+    
+    private void reportAdmission() {
+        System.out.printf("Admission: %s policy, %d parses and %d searches shed, %d connections rejected, "
+                        + "%d accepts throttled%n", shedPolicy, pipeline.getParseStage().getShed(),
+                pipeline.getSearchStage().getShed(), getRejectedConnections(), getThrottledAccepts());
+    }
+    
     public static void main(String[] args) {
-        TetrisServer server = new TetrisServer();
+        Mode mode = Mode.NIO;
+        int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        int parseCapacity = RequestPipeline.DEFAULT_PARSE_CAPACITY;
+        int searchQueue = RequestPipeline.DEFAULT_SEARCH_QUEUE;
+        ShedPolicy shedPolicy = ShedPolicy.FALLBACK;
+        int acceptRate = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--mode=")) {
+                mode = Mode.valueOf(arg.substring("--mode=".length()).toUpperCase());
+            } else if (arg.startsWith("--cache=")) {
+                cacheCapacity = Integer.parseInt(arg.substring("--cache=".length()));
+            } else if (arg.startsWith("--parse-capacity=")) {
+                parseCapacity = Integer.parseInt(arg.substring("--parse-capacity=".length()));
+            } else if (arg.startsWith("--search-queue=")) {
+                searchQueue = Integer.parseInt(arg.substring("--search-queue=".length()));
+            } else if (arg.startsWith("--shed=")) {
+                shedPolicy = ShedPolicy.valueOf(arg.substring("--shed=".length()).toUpperCase());
+            } else if (arg.startsWith("--accept-rate=")) {
+                acceptRate = Integer.parseInt(arg.substring("--accept-rate=".length()));
+            }
+        }
+        RequestPipeline pipeline = new RequestPipeline(parseCapacity, Runtime.getRuntime().availableProcessors(),
+                searchQueue);
+        TetrisServer server = new TetrisServer(PORT, mode, pipeline);
+        server.setCacheCapacity(cacheCapacity);
+        server.setShedPolicy(shedPolicy);
+        server.setMaxAcceptsPerSecond(acceptRate);
+        server.setLogRequests(!List.of(args).contains("--quiet"));
         
         // shutdown hook for graceful cleanup
         Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
@@ -0,0 +1,231 @@
+package util;
+
+import model.AIStrategy;
+import model.GameEngine;
+import model.LookaheadAI;
+import model.PolicyAI;
+import model.RolloutAI;
+import model.TetrisAI;
+import model.TetrisShape;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Round robin between AI strategies: every pair plays the same seeds as two-player games on identical piece sequences
+// Like GameplayScreen, both engines get a SeededRandom with the game's seed and the higher score wins once both
+// games are over, equal scores tie. Games run on all cores, each with fresh strategy instances, and a decision is
+// timed with the playing thread's CPU clock so results do not depend on how busy the other cores are.
+// Usage: java util.Tournament [seeds] [max pieces] [strategies, comma separated] [threads]
+public class Tournament {
+    private static final int DEFAULT_SEEDS = 20;
+    private static final int DEFAULT_MAX_PIECES = 500;
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+    private static final double Z_95 = 1.96;
+
+    // available strategies by name, each call creates an instance for one game
+    public static final Map<String, Supplier<AIStrategy>> STRATEGIES = new LinkedHashMap<>();
+
+    static {
+        STRATEGIES.put("greedy", TetrisAI::new);
+        STRATEGIES.put("lookahead", LookaheadAI::new);
+        STRATEGIES.put("beam", () -> LookaheadAI.withBeam(4));
+        STRATEGIES.put("rollout", () -> RolloutAI.withRolloutCount(100, 4, 1, 1L));
+        STRATEGIES.put("policy", PolicyAI::new);
+    }
+
+    // score fraction with its 95% Wilson interval
+    public record Interval(double estimate, double low, double high) {}
+
+    // results of one pairing from the first strategy's side
+    public record PairResult(String first, String second, int wins, int losses, int ties) {
+        public int games() {
+            return wins + losses + ties;
+        }
+
+        // wins plus half the ties over the games played
+        public Interval scoreInterval() {
+            return wilson(wins + ties / 2.0, games());
+        }
+    }
+
+    // totals of one strategy over all its games
+    public record StrategyStats(String name, int games, double points, long decisions, long cpuNanos) {
+        public double microsPerDecision() {
+            return decisions == 0 ? 0 : cpuNanos / 1e3 / decisions;
+        }
+
+        public Interval scoreInterval() {
+            return wilson(points, games);
+        }
+    }
+
+    public record Report(List<PairResult> pairs, List<StrategyStats> strategies) {}
+
+    // one side of a finished game
+    private record Side(int score, long decisions, long cpuNanos) {}
+
+    private record Game(int pair, Side first, Side second) {}
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SEEDS;
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_PIECES;
+        List<String> names = args.length > 2 ? List.of(args[2].split(",")) : List.of("greedy", "lookahead", "beam", "rollout");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        Report report = run(names, seeds, maxPieces, BOARD_WIDTH, BOARD_HEIGHT, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (PairResult pair : report.pairs()) {
+            Interval score = pair.scoreInterval();
+            System.out.printf("%-10s vs %-10s %3d-%3d-%3d   score %.3f [%.3f, %.3f]%n", pair.first(), pair.second(),
+                    pair.wins(), pair.losses(), pair.ties(), score.estimate(), score.low(), score.high());
+        }
+        System.out.println();
+        for (StrategyStats stats : report.strategies()) {
+            Interval score = stats.scoreInterval();
+            System.out.printf("%-10s score %.3f [%.3f, %.3f] over %d games, %9.2f us CPU/decision%n", stats.name(),
+                    score.estimate(), score.low(), score.high(), stats.games(), stats.microsPerDecision());
+        }
+        System.out.printf("%n%d games in %.1f s on %d threads%n", report.pairs().size() * seeds, seconds, threads);
+    }
+
+    // plays every pair of the named strategies on seeds 0..seeds-1, standings are sorted best first
+    public static Report run(List<String> names, int seeds, int maxPieces, int width, int height, int threads)
+            throws InterruptedException, ExecutionException {
+        for (String name : names) {
+            if (!STRATEGIES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown strategy: " + name + ", expected one of " + STRATEGIES.keySet());
+            }
+        }
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                pairs.add(new String[] {names.get(i), names.get(j)});
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Game>> games = new ArrayList<>(pairs.size() * seeds);
+        try {
+            for (int seed = 0; seed < seeds; seed++) {
+                for (int p = 0; p < pairs.size(); p++) {
+                    int pair = p;
+                    long gameSeed = seed;
+                    games.add(pool.submit(() -> play(pair, pairs.get(pair), gameSeed, maxPieces, width, height)));
+                }
+            }
+
+            int[][] records = new int[pairs.size()][3]; // wins, losses, ties of the pair's first strategy
+            Map<String, long[]> totals = new LinkedHashMap<>(); // games, half points, decisions, CPU nanos
+            for (String name : names) {
+                totals.put(name, new long[4]);
+            }
+            for (Future<Game> future : games) {
+                Game game = future.get();
+                int outcome = Integer.compare(game.first().score(), game.second().score());
+                records[game.pair()][outcome > 0 ? 0 : outcome < 0 ? 1 : 2]++;
+                addSide(totals.get(pairs.get(game.pair())[0]), game.first(), 1 + outcome);
+                addSide(totals.get(pairs.get(game.pair())[1]), game.second(), 1 - outcome);
+            }
+
+            List<PairResult> pairResults = new ArrayList<>(pairs.size());
+            for (int p = 0; p < pairs.size(); p++) {
+                pairResults.add(new PairResult(pairs.get(p)[0], pairs.get(p)[1], records[p][0], records[p][1], records[p][2]));
+            }
+            List<StrategyStats> standings = new ArrayList<>(names.size());
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                long[] t = entry.getValue();
+                standings.add(new StrategyStats(entry.getKey(), (int) t[0], t[1] / 2.0, t[2], t[3]));
+            }
+            standings.sort((a, b) -> Double.compare(b.scoreInterval().estimate(), a.scoreInterval().estimate()));
+            return new Report(pairResults, standings);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Wilson score interval at 95%, which stays inside [0, 1] and behaves for small samples and lopsided results
+    public static Interval wilson(double successes, int n) {
+        if (n == 0) {
+            return new Interval(0, 0, 1);
+        }
+        double p = successes / n;
+        double z2 = Z_95 * Z_95;
+        double denominator = 1 + z2 / n;
+        double center = (p + z2 / (2.0 * n)) / denominator;
+        double half = Z_95 * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / denominator;
+        return new Interval(p, Math.max(0, center - half), Math.min(1, center + half));
+    }
+
+    private static void addSide(long[] totals, Side side, int halfPoints) {
+        totals[0]++;
+        totals[1] += halfPoints;
+        totals[2] += side.decisions();
+        totals[3] += side.cpuNanos();
+    }
+
+    // one two-player game: the players alternate placements until both have topped out or placed maxPieces
+    private static Game play(int pair, String[] names, long seed, int maxPieces, int width, int height) {
+        GameEngine[] engines = new GameEngine[2];
+        AIStrategy[] players = new AIStrategy[2];
+        long[] decisions = new long[2];
+        long[] cpuNanos = new long[2];
+        for (int i = 0; i < 2; i++) {
+            engines[i] = new GameEngine(new SeededRandom(seed), width, height, false, false);
+            players[i] = STRATEGIES.get(names[i]).get();
+            engines[i].startGame();
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean cpuClock = threadBean.isCurrentThreadCpuTimeSupported();
+        try {
+            boolean playing = true;
+            while (playing) {
+                playing = false;
+                for (int i = 0; i < 2; i++) {
+                    GameEngine engine = engines[i];
+                    if (!engine.isGameRunning() || decisions[i] >= maxPieces) {
+                        continue;
+                    }
+                    TetrisShape.ShapeType next = engine.getNextShapeType();
+                    List<TetrisShape.ShapeType> preview = next != null ? List.of(next) : List.of();
+
+                    long start = cpuClock ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+                    TetrisAI.Move move = players[i].findBestMove(engine.getBoard(), engine.getCurrentShape(), preview);
+                    cpuNanos[i] += (cpuClock ? threadBean.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+                    decisions[i]++;
+
+                    if (move == null) {
+                        engine.stopGame(); // nothing fits, same as topping out
+                    } else {
+                        playing |= engine.playMove(move) && decisions[i] < maxPieces;
+                    }
+                }
+            }
+        } finally {
+            for (AIStrategy player : players) {
+                if (player instanceof RolloutAI rollout) {
+                    rollout.shutdown();
+                }
+            }
+        }
+        return new Game(pair,
+                new Side(engines[0].getScore(), decisions[0], cpuNanos[0]),
+                new Side(engines[1].getScore(), decisions[1], cpuNanos[1]));
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardEvaluatorTest {
+    private final BoardEvaluator evaluator = new BoardEvaluator();
+
+    @Test
+    public void testMaskEvaluationMatchesCellEvaluation() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 100; trial++) {
+            GameBoard board = TestBoards.raggedStack(random, 10, 20, 4, 0);
+            assertEquals(evaluator.evaluateBoard(toCells(board)), evaluator.evaluateBoard(board));
+        }
+    }
+
+    @Test
+    public void testDeltaEvaluationMatchesFullEvaluation() {
+        Random random = new Random(3);
+        for (int width : new int[] {10, 40, 64}) {
+            for (int trial = 0; trial < 30; trial++) {
+                GameBoard board = TestBoards.raggedStack(random, width, 24, 4, 0);
+                BoardEvaluator.Features parent = evaluator.computeFeatures(board);
+                assertEquals(evaluator.evaluateBoard(board), parent.score());
+
+                int[] columnTops = new int[width];
+                board.fillColumnTops(columnTops);
+                for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                    for (int rotation = 0; rotation < TetrisShape.getUniqueRotations(type); rotation++) {
+                        PieceOrientation piece = TetrisShape.getOrientation(type, rotation);
+                        for (int col = 0; col + piece.getWidth() <= width; col++) {
+                            int row = piece.landingRow(columnTops, col);
+                            long undo = board.makeMove(piece, col, row);
+                            assertEquals(evaluator.evaluateBoard(toCells(board)),
+                                    evaluator.evaluatePlacement(board, parent, piece, col, row, undo),
+                                    type + " rotation " + rotation + " column " + col);
+                            board.unmakeMove(undo);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String[][] toCells(GameBoard board) {
+        String[][] cells = new String[board.getBoardHeight()][board.getBoardWidth()];
+        for (int row = 0; row < cells.length; row++) {
+            for (int col = 0; col < cells[row].length; col++) {
+                cells[row][col] = board.getCellColor(row, col);
+            }
+        }
+        return cells;
+    }
+}
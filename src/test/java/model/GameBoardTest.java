@@ -26,4 +26,31 @@ public class GameBoardTest {
         board.setBoardState(cells);
         assertEquals("blue", board.getCellColor(0, 0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMakeUnmakeRestoresClearedRows() {
+        GameBoard board = new GameBoard(4, 4);
+        String[][] cells = new String[4][4];
+        cells[1][0] = "green";
+        for (int col = 0; col < 3; col++) {
+            cells[2][col] = "red";
+            cells[3][col] = "blue";
+        }
+        board.setBoardState(cells);
+
+        long undo = board.makeMove(new TetrisShape(TetrisShape.ShapeType.I, 3, 0), 3, 0);
+        assertEquals(2, GameBoard.getRowsCleared(undo));
+        assertEquals("green", board.getCellColor(3, 0));
+        assertEquals("cyan", board.getCellColor(3, 3));
+        assertNull(board.getCellColor(0, 0));
+
+        board.unmakeMove(undo);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                assertEquals(cells[row][col], board.getCellColor(row, col));
+            }
+        }
+        assertEquals(0b0111L, board.getRowMask(3));
+        assertEquals(0L, board.getRowMask(0));
+    }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import util.SeededRandom;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEngineSnapshotTest {
+
+    @Test
+    public void testSeededRandomMatchesJavaUtilRandom() {
+        Random expected = new Random(1234L);
+        SeededRandom actual = new SeededRandom(1234L);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(7), actual.nextInt(7));
+        }
+    }
+
+    @Test
+    public void testForkContinuesIdentically() {
+        GameEngine engine = new GameEngine(new SeededRandom(99L), 10, 20, false, false);
+        engine.startGame();
+        dropPieces(engine, 3);
+        engine.rotatePiece();
+
+        GameEngine copy = engine.fork();
+        assertBoardsEqual(engine, copy);
+        assertEquals(engine.getCurrentShape().getRotation(), copy.getCurrentShape().getRotation());
+
+        dropPieces(engine, 4);
+        dropPieces(copy, 4);
+        assertBoardsEqual(engine, copy);
+        assertEquals(engine.getNextShapeType(), copy.getNextShapeType());
+        assertEquals(engine.getScore(), copy.getScore());
+    }
+
+    @Test
+    public void testSnapshotAfterSwitchingPieceSetsMidGame() {
+        GameEngine engine = new GameEngine(new SeededRandom(36L), 10, 20, false, false);
+        engine.startGame();
+        dropPieces(engine, 2);
+        // the current and next pieces are still tetrominoes, the set only applies from the next spawn on
+        engine.setPieceSet(PieceSet.byName(PieceSet.PENTOMINOES));
+        TetrisShape.ShapeType current = engine.getCurrentShape().getType();
+        TetrisShape.ShapeType next = engine.getNextShapeType();
+
+        GameEngine restored = new GameEngine(new SeededRandom(0L), 10, 20, false, false);
+        restored.restore(engine.snapshot());
+        assertSame(current, restored.getCurrentShape().getType());
+        assertSame(next, restored.getNextShapeType());
+        assertEquals(PieceSet.PENTOMINOES, restored.getPieceSet().getName());
+
+        GameEngine copy = engine.fork();
+        dropPieces(engine, 3);
+        dropPieces(copy, 3);
+        assertBoardsEqual(engine, copy);
+        assertTrue(PieceSet.byName(PieceSet.PENTOMINOES).indexOf(engine.getNextShapeType()) >= 0);
+    }
+
+    @Test
+    public void testRestoreRejectsGarbage() {
+        GameEngine engine = new GameEngine(new SeededRandom(1L), 10, 20, false, false);
+        assertThrows(IllegalArgumentException.class, () -> engine.restore(new byte[] {1, 2, 3}));
+    }
+
+    private static void dropPieces(GameEngine engine, int pieces) {
+        for (int i = 0; i < pieces && engine.isGameRunning(); i++) {
+            while (engine.movePieceDown()) {
+                // fall until the piece locks
+            }
+        }
+    }
+
+    private static void assertBoardsEqual(GameEngine expected, GameEngine actual) {
+        GameBoard a = expected.getBoard();
+        GameBoard b = actual.getBoard();
+        for (int row = 0; row < a.getBoardHeight(); row++) {
+            for (int col = 0; col < a.getBoardWidth(); col++) {
+                assertEquals(a.getCellColor(row, col), b.getCellColor(row, col));
+            }
+        }
+        assertEquals(expected.getCurrentShape().getType(), actual.getCurrentShape().getType());
+        assertEquals(expected.getCurrentShape().getX(), actual.getCurrentShape().getX());
+        assertEquals(expected.getCurrentShape().getY(), actual.getCurrentShape().getY());
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import util.SeededRandom;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameTimelineTest {
+
+    @Test
+    public void testUnchangedRowsAreShared() {
+        GameBoard board = new GameBoard(4, 4);
+        String[][] cells = new String[4][4];
+        cells[3][0] = "red";
+        cells[2][0] = "blue";
+        board.setBoardState(cells);
+
+        GameTimeline timeline = new GameTimeline(10);
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        board.placePiece(new TetrisShape(TetrisShape.ShapeType.O, 2, 2));
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        GameTimeline.Snapshot first = timeline.get(0);
+        GameTimeline.Snapshot second = timeline.get(1);
+        assertSame(first.getRow(0), second.getRow(0));
+        assertNotSame(first.getRow(3), second.getRow(3));
+        assertEquals(0b1101L, second.getRow(3).getMask());
+    }
+
+    @Test
+    public void testRowsShiftedByLineClearAreShared() {
+        GameBoard board = new GameBoard(3, 4);
+        String[][] cells = new String[4][3];
+        cells[1][0] = "green";
+        cells[2][0] = "blue";
+        cells[3][0] = "red";
+        board.setBoardState(cells);
+
+        GameTimeline timeline = new GameTimeline(10);
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        board.placePiece(new TetrisShape(TetrisShape.ShapeType.O, 1, 2)); // completes the bottom two rows
+        int cleared = board.clearFullRows();
+        timeline.record(board, cleared, 300, 1, cleared, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        assertEquals(2, cleared);
+        assertSame(timeline.get(0).getRow(1), timeline.get(1).getRow(3));
+        assertSame(GameTimeline.Row.EMPTY, timeline.get(1).getRow(1));
+    }
+
+    @Test
+    public void testRestoreAndCapacity() {
+        GameBoard board = new GameBoard(3, 3);
+        GameTimeline timeline = new GameTimeline(2);
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        board.placePiece(new TetrisShape(TetrisShape.ShapeType.O, 0, 1));
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+        board.placePiece(new TetrisShape(TetrisShape.ShapeType.I, 2, -1));
+        timeline.record(board, 0, 0, 1, 0, null, null, GameTimeline.NO_RANDOM_STATE);
+
+        assertEquals(2, timeline.size());
+
+        timeline.restore(0, board);
+        assertEquals("yellow", board.getCellColor(2, 0));
+        assertNull(board.getCellColor(2, 2));
+        assertEquals(0b011L, board.getRowMask(2));
+    }
+
+    @Test
+    public void testRewindReplaysTheSamePieces() {
+        GameEngine engine = new GameEngine(new SeededRandom(27L), 10, 20, false, false);
+        engine.startGame();
+        dropPieces(engine, 3);
+        int index = engine.getTimeline().size() - 1;
+
+        List<TetrisShape.ShapeType> original = dropAndCollectTypes(engine, 5);
+        engine.rewindTo(index);
+        assertEquals(original, dropAndCollectTypes(engine, 5));
+    }
+
+    private static void dropPieces(GameEngine engine, int pieces) {
+        for (int i = 0; i < pieces && engine.isGameRunning(); i++) {
+            while (engine.movePieceDown()) {
+                // fall until the piece locks
+            }
+        }
+    }
+
+    // types of the pieces spawned while dropping, in order
+    private static List<TetrisShape.ShapeType> dropAndCollectTypes(GameEngine engine, int pieces) {
+        List<TetrisShape.ShapeType> types = new ArrayList<>();
+        for (int i = 0; i < pieces && engine.isGameRunning(); i++) {
+            dropPieces(engine, 1);
+            types.add(engine.getNextShapeType());
+        }
+        return types;
+    }
+}
@@ -0,0 +1,150 @@
+package model;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveRequestCodecTest {
+    private static final Gson GSON = new Gson();
+
+    private static GameBoard sampleBoard() {
+        GameBoard board = new GameBoard(10, 20);
+        board.setRowMask(19, 0b01_1111_1111L, "red");
+        board.setRowMask(18, 0b00_0000_0011L, "blue");
+        board.setRowMask(12, 0b10_0000_0000L, "green");
+        return board;
+    }
+
+    @Test
+    public void testWritesTheSameJsonAsGson() {
+        GameBoard board = sampleBoard();
+        TetrisShape current = new TetrisShape(TetrisShape.ShapeType.T, 3, 1);
+        TetrisShape next = new TetrisShape(TetrisShape.ShapeType.S, 0, 0);
+
+        String[][] cells = new String[20][10];
+        for (int row = 0; row < 20; row++) {
+            for (int col = 0; col < 10; col++) {
+                cells[row][col] = board.getCellColor(row, col);
+            }
+        }
+        PureGame state = new PureGame(10, 20, cells, pattern(current), pattern(next), 3, 1, "T");
+        assertEquals(GSON.toJson(state), MoveRequestCodec.writeRequest(board, current, next));
+
+        // without a next piece the field is left out, as Gson leaves out nulls
+        PureGame withoutNext = new PureGame(10, 20, cells, pattern(current), null, 3, 1, "T");
+        assertEquals(GSON.toJson(withoutNext), MoveRequestCodec.writeRequest(board, current, null));
+    }
+
+    @Test
+    public void testReadsRowMasksAndPiece() throws Exception {
+        GameBoard board = sampleBoard();
+        String json = MoveRequestCodec.writeRequest(board, new TetrisShape(TetrisShape.ShapeType.L, 4, 2), null);
+
+        MoveRequestCodec.Request request = MoveRequestCodec.readRequest(json, new MoveRequestCodec.Request());
+        assertTrue(request.isComplete());
+        assertEquals(10, request.getWidth());
+        assertEquals(20, request.getHeight());
+        GameBoard decoded = request.toBoard();
+        for (int row = 0; row < 20; row++) {
+            assertEquals(board.getRowMask(row), decoded.getRowMask(row));
+        }
+        TetrisShape shape = request.toShape();
+        assertEquals(TetrisShape.ShapeType.L, shape.getType());
+        assertEquals(4, shape.getX());
+        assertEquals(2, shape.getY());
+
+        // the buffer is reused, a second request replaces the first completely
+        GameBoard empty = new GameBoard(10, 20);
+        MoveRequestCodec.readRequest(MoveRequestCodec.writeRequest(empty, shape, null), request);
+        assertSame(decoded, request.toBoard());
+        for (int row = 0; row < 20; row++) {
+            assertEquals(0L, request.toBoard().getRowMask(row));
+        }
+    }
+
+    @Test
+    public void testIncompleteRequests() throws Exception {
+        MoveRequestCodec.Request request = new MoveRequestCodec.Request();
+        assertFalse(MoveRequestCodec.readRequest("{\"width\":10,\"height\":20}", request).isComplete());
+        assertFalse(MoveRequestCodec.readRequest("null", request).isComplete());
+        // unknown fields are skipped
+        String json = "{\"cells\":[[null,\"red\"]],\"currentShape\":[[true]],\"currentShapeType\":\"O\",\"extra\":[1]}";
+        assertTrue(MoveRequestCodec.readRequest(json, request).isComplete());
+        assertEquals(0b10L, request.getRowMask(0));
+        assertEquals(2, request.getWidth());
+        assertEquals(1, request.getHeight());
+    }
+
+    @Test
+    public void testBoardSizeIsCheckedBeforeAllocating() throws Exception {
+        MoveRequestCodec.Request request = new MoveRequestCodec.Request();
+        String huge = "{\"width\":64,\"height\":30000000,\"cells\":[[]],\"currentShape\":[],\"currentShapeType\":\"T\"}";
+        assertThrows(IllegalArgumentException.class, () -> MoveRequestCodec.readRequest(huge, request).toBoard());
+        // the declared height must match the rows sent, the width must fit a row mask
+        String mismatched = "{\"width\":10,\"height\":3,\"cells\":[[],[]],\"currentShape\":[],\"currentShapeType\":\"T\"}";
+        assertThrows(IllegalArgumentException.class, () -> MoveRequestCodec.readRequest(mismatched, request).toBoard());
+        String wide = "{\"width\":65,\"height\":1,\"cells\":[[]],\"currentShape\":[],\"currentShapeType\":\"T\"}";
+        assertThrows(IllegalArgumentException.class, () -> MoveRequestCodec.readRequest(wide, request).toBoard());
+
+        // rows past the limit are counted, not kept, so the reused buffer stays small
+        String tall = "{\"cells\":[" + "[],".repeat(1000) + "[]],\"currentShape\":[],\"currentShapeType\":\"T\"}";
+        assertThrows(IllegalArgumentException.class, () -> MoveRequestCodec.readRequest(tall, request).toBoard());
+        assertEquals(1001, request.getHeight());
+
+        String fits = "{\"width\":10,\"height\":2,\"cells\":[[],[]],\"currentShape\":[],\"currentShapeType\":\"T\"}";
+        assertEquals(2, MoveRequestCodec.readRequest(fits, request).toBoard().getBoardHeight());
+    }
+
+    @Test
+    public void testOpMoveAdapterMatchesGson() throws Exception {
+        OpMove move = new OpMove(-1, 3);
+        String json = MoveRequestCodec.OP_MOVE.toJson(move);
+        assertEquals(GSON.toJson(move), json);
+        assertEquals(move, MoveRequestCodec.OP_MOVE.fromJson(json));
+        assertEquals(move, MoveRequestCodec.OP_MOVE.fromJson("{\"opRotate\":3,\"opX\":-1,\"note\":\"x\"}"));
+    }
+
+    @Test
+    public void testBusyAnswer() throws Exception {
+        String json = MoveRequestCodec.OP_MOVE.toJson(OpMove.BUSY);
+        assertEquals("{\"opX\":0,\"opRotate\":0,\"busy\":true}", json);
+        assertTrue(MoveRequestCodec.OP_MOVE.fromJson(json).isBusy());
+        assertFalse(MoveRequestCodec.OP_MOVE.fromJson("{\"opX\":0,\"opRotate\":0}").isBusy());
+        // a batch shed before it was read is answered with a single busy object
+        assertEquals(List.of(OpMove.BUSY), MoveRequestCodec.readMoves(json));
+    }
+
+    @Test
+    public void testBatchRoundTrip() throws Exception {
+        GameBoard board = sampleBoard();
+        GameBoard empty = new GameBoard(10, 20);
+        TetrisShape first = new TetrisShape(TetrisShape.ShapeType.Z, 1, 0);
+        TetrisShape second = new TetrisShape(TetrisShape.ShapeType.O, 5, 0);
+        String batch = MoveRequestCodec.writeBatch(List.of(board, empty), List.of(first, second));
+        assertTrue(MoveRequestCodec.isBatch(" " + batch));
+        assertFalse(MoveRequestCodec.isBatch(MoveRequestCodec.writeRequest(board, first, null)));
+
+        List<MoveRequestCodec.Request> requests = MoveRequestCodec.readBatch(batch);
+        assertEquals(2, requests.size());
+        assertEquals("Z", requests.get(0).getShapeType());
+        assertEquals(board.getRowMask(19), requests.get(0).getRowMask(19));
+        assertEquals("O", requests.get(1).getShapeType());
+        assertEquals(0L, requests.get(1).getRowMask(19));
+
+        List<OpMove> moves = List.of(new OpMove(1, 2), new OpMove(7, 0));
+        assertEquals(moves, MoveRequestCodec.readMoves(MoveRequestCodec.writeMoves(moves)));
+    }
+
+    private static boolean[][] pattern(TetrisShape shape) {
+        boolean[][] pattern = new boolean[shape.getHeight()][shape.getWidth()];
+        for (int row = 0; row < pattern.length; row++) {
+            for (int col = 0; col < pattern[row].length; col++) {
+                pattern[row][col] = shape.isCellFilled(row, col);
+            }
+        }
+        return pattern;
+    }
+}
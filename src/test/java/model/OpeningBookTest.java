@@ -0,0 +1,75 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import util.OpeningBookBuilder;
+
+import java.nio.file.Path;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testLookupMatchesSearchOnCleanStacks() throws Exception {
+        Path file = tempDir.resolve("book.bin");
+        OpeningBookBuilder.build(file, 6, 4);
+
+        TetrisAI search = new TetrisAI(null);
+        Random random = new Random(11);
+        try (OpeningBook book = OpeningBook.open(file)) {
+            for (int trial = 0; trial < 300; trial++) {
+                GameBoard board = TestBoards.cleanStack(random, 6, 20, 3);
+                for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                    TetrisAI.Move expected = search.findBestMove(board, new TetrisShape(type, 0, 0));
+                    TetrisAI.Move stored = book.lookup(board, type);
+                    if (stored != null) {
+                        assertEquals(expected, stored, type + " on trial " + trial);
+                    }
+                }
+            }
+            assertTrue(book.getHits() > 0);
+        }
+    }
+
+    @Test
+    public void testLookupMissesBoardsOutsideTheBook() throws Exception {
+        Path file = tempDir.resolve("book.bin");
+        OpeningBookBuilder.build(file, 5, 3);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            GameBoard board = new GameBoard(5, 20);
+            assertNotNull(book.lookup(board, TetrisShape.ShapeType.T));
+
+            board.setRowMask(19, 0b00101, "red");
+            board.setRowMask(18, 0b00010, "red"); // overhang over an empty cell
+            assertNull(book.lookup(board, TetrisShape.ShapeType.T));
+
+            GameBoard tall = new GameBoard(5, 20);
+            tall.setRowMask(17, 0b00001, "red"); // three cells high, the book stops at two
+            tall.setRowMask(18, 0b00001, "red");
+            tall.setRowMask(19, 0b00001, "red");
+            assertNull(book.lookup(tall, TetrisShape.ShapeType.T));
+
+            assertNull(book.lookup(new GameBoard(6, 20), TetrisShape.ShapeType.T));
+            assertEquals(1.0 / 4, book.getHitRate(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testTetrisAIUsesBook() throws Exception {
+        Path file = tempDir.resolve("book.bin");
+        OpeningBookBuilder.build(file, 5, 3);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            GameBoard board = new GameBoard(5, 20);
+            board.setRowMask(19, 0b10011, "red");
+            TetrisShape piece = new TetrisShape(TetrisShape.ShapeType.O, 0, 0);
+            assertEquals(new TetrisAI(null).findBestMove(board, piece), new TetrisAI(book).findBestMove(board, piece));
+            assertEquals(1, book.getHits());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerfectClearSolverTest {
+    private final PerfectClearSolver solver = new PerfectClearSolver(10, 4);
+
+    @Test
+    public void testSolvesStraightPiecesOnEmptyBoard() {
+        GameBoard board = new GameBoard(10, 20);
+        List<TetrisShape.ShapeType> queue = Collections.nCopies(10, TetrisShape.ShapeType.I);
+
+        List<PerfectClearSolver.Placement> plan = solver.solve(board, queue);
+        assertNotNull(plan);
+        assertTrue(replayClears(board, plan));
+    }
+
+    @Test
+    public void testEveryPlanFoundClearsTheBoard() {
+        Random random = new Random(8);
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        int solved = 0;
+        for (int trial = 0; trial < 40; trial++) {
+            // a two row stack with a gap count that 4-cell pieces can fill
+            GameBoard board = new GameBoard(10, 20);
+            board.setRowMask(19, 0b0011111100L, "gray");
+            board.setRowMask(18, 0b0001111000L, "gray");
+
+            // pieces that can fill the gaps in some order, shuffled, plus a few random spares
+            List<TetrisShape.ShapeType> queue = new ArrayList<>(List.of(TetrisShape.ShapeType.O, TetrisShape.ShapeType.O,
+                    TetrisShape.ShapeType.J, TetrisShape.ShapeType.L, TetrisShape.ShapeType.I));
+            Collections.shuffle(queue, random);
+            for (int i = 0; i < 3; i++) {
+                queue.add(types[random.nextInt(types.length)]);
+            }
+            List<PerfectClearSolver.Placement> plan = solver.solve(board, queue);
+            if (plan != null) {
+                solved++;
+                assertTrue(replayClears(board, plan), "plan for " + queue);
+                for (int i = 0; i < plan.size(); i++) {
+                    assertEquals(queue.get(i), plan.get(i).type());
+                }
+            }
+        }
+        assertTrue(solved > 0);
+    }
+
+    @Test
+    public void testRejectsImpossibleQueues() {
+        GameBoard board = new GameBoard(10, 20);
+        assertNull(solver.solve(board, Collections.nCopies(10, TetrisShape.ShapeType.S)));
+        assertNull(solver.solve(board, Collections.nCopies(9, TetrisShape.ShapeType.I))); // 36 cells never fill 4 rows
+
+        board.setRowMask(15, 0b1L, "gray"); // block above the four row window
+        assertNull(solver.solve(board, Collections.nCopies(10, TetrisShape.ShapeType.I)));
+    }
+
+    @Test
+    public void testPerfectClearAIFallsBackWithoutPlan() {
+        GameBoard board = new GameBoard(10, 20);
+        TetrisShape piece = new TetrisShape(TetrisShape.ShapeType.T, 0, 0);
+        PerfectClearAI ai = new PerfectClearAI((b, p) -> new TetrisAI.Move(3, 1), 4);
+
+        assertEquals(new TetrisAI.Move(3, 1), ai.findBestMove(board, piece, List.of(TetrisShape.ShapeType.O)));
+        assertEquals(0, ai.getPerfectClearMoves());
+
+        board.setRowMask(19, 0b1111110000L, "gray");
+        TetrisAI.Move move = ai.findBestMove(board, new TetrisShape(TetrisShape.ShapeType.I, 0, 0),
+                List.of(TetrisShape.ShapeType.J));
+        assertEquals(1, ai.getPerfectClearMoves());
+        assertEquals(new TetrisAI.Move(0, 1), move); // flat I into the four cell gap
+    }
+
+    // hard drops the plan onto a copy of the board, true when nothing is left
+    private static boolean replayClears(GameBoard start, List<PerfectClearSolver.Placement> plan) {
+        GameBoard board = start.copy();
+        int[] columnTops = new int[board.getBoardWidth()];
+        for (PerfectClearSolver.Placement placement : plan) {
+            PieceOrientation piece = TetrisShape.getOrientation(placement.type(), placement.rotation());
+            board.fillColumnTops(columnTops);
+            board.makeMove(piece, placement.column(), piece.landingRow(columnTops, placement.column()));
+        }
+        for (int row = 0; row < board.getBoardHeight(); row++) {
+            if (board.getRowMask(row) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
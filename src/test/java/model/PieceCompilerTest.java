@@ -0,0 +1,86 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.io.StringReader;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PieceCompilerTest {
+
+    @Test
+    public void testStandardPiecesKeepOrderAndSymmetry() {
+        TetrisShape.ShapeType[] types = TetrisShape.ShapeType.values();
+        String[] names = {"I", "O", "T", "L", "J", "Z", "S"};
+        int[] rotations = {2, 1, 4, 4, 4, 2, 2};
+        assertEquals(names.length, types.length);
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(names[i], types[i].name());
+            assertEquals(i, types[i].ordinal());
+            assertEquals(rotations[i], types[i].getUniqueRotations());
+            assertEquals(4, types[i].getCellCount());
+        }
+        assertSame(TetrisShape.ShapeType.T, TetrisShape.ShapeType.valueOf("T"));
+    }
+
+    @Test
+    public void testStandardSpawnPatterns() {
+        assertPattern(TetrisShape.ShapeType.T, ".#.", "###");
+        assertPattern(TetrisShape.ShapeType.L, "#.", "#.", "##");
+        assertPattern(TetrisShape.ShapeType.S, ".##", "##.");
+        assertEquals("purple", new TetrisShape(TetrisShape.ShapeType.T, 0, 0).getColor());
+    }
+
+    @Test
+    public void testPentominoesCompileToOneSidedSet() {
+        PieceSet pentominoes = PieceSet.byName(PieceSet.PENTOMINOES);
+        assertEquals(18, pentominoes.size());
+        assertEquals(1, TetrisShape.ShapeType.valueOf("X5").getUniqueRotations());
+        assertEquals(2, TetrisShape.ShapeType.valueOf("I5").getUniqueRotations());
+        assertEquals(4, TetrisShape.ShapeType.valueOf("F5'").getUniqueRotations());
+        for (TetrisShape.ShapeType type : pentominoes.getTypes()) {
+            assertEquals(5, type.getCellCount());
+        }
+        assertSame(pentominoes, PieceSet.byName(PieceSet.PENTOMINOES));
+    }
+
+    @Test
+    public void testRejectsInvalidDefinitions() {
+        assertThrows(IllegalArgumentException.class, () -> compile("A red\n#.\n.#\n"));     // not connected
+        assertThrows(IllegalArgumentException.class, () -> compile("B red\n######\n"));     // wider than 5
+        assertThrows(IllegalArgumentException.class, () -> compile("C red\n#x\n"));         // bad cell
+        assertThrows(IllegalArgumentException.class, () -> compile("D red\n##\n\nE blue\n#\n#\n")); // same domino
+        assertThrows(IllegalArgumentException.class, () -> PieceSet.byName("no-such-set"));
+    }
+
+    @Test
+    public void testEnginePlaysCustomSet() {
+        GameEngine engine = new GameEngine(new util.SeededRandom(5L), 12, 24, false, false);
+        engine.setPieceSet(PieceSet.byName(PieceSet.PENTOMINOES));
+        engine.startGame();
+        for (int piece = 0; piece < 20 && engine.isGameRunning(); piece++) {
+            assertEquals(5, engine.getCurrentShape().getType().getCellCount());
+            while (engine.movePieceDown()) {
+                // fall until the piece locks
+            }
+        }
+
+        GameEngine copy = engine.fork();
+        assertSame(engine.getPieceSet(), copy.getPieceSet());
+        assertEquals(engine.getNextShapeType(), copy.getNextShapeType());
+    }
+
+    private static List<TetrisShape.ShapeType> compile(String source) throws Exception {
+        return PieceCompiler.compile(PieceCompiler.parse(new StringReader(source)));
+    }
+
+    private static void assertPattern(TetrisShape.ShapeType type, String... rows) {
+        TetrisShape shape = new TetrisShape(type, 0, 0);
+        assertEquals(rows.length, shape.getHeight());
+        for (int row = 0; row < rows.length; row++) {
+            assertEquals(rows[row].length(), shape.getWidth());
+            for (int col = 0; col < rows[row].length(); col++) {
+                assertEquals(rows[row].charAt(col) == '#', shape.isCellFilled(row, col));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolicyAITest {
+
+    @Test
+    public void testFeaturesMatchTransitionEvaluator() {
+        Random random = new Random(37);
+        for (int width : new int[] {4, 10, 16}) {
+            TransitionEvaluator evaluator = TransitionEvaluator.forWidth(width);
+            float[] features = new float[PolicyAI.FEATURE_COUNT];
+            for (int trial = 0; trial < 30; trial++) {
+                GameBoard board = TestBoards.raggedStack(random, width, 20, 6, 3);
+                int[] columnTops = new int[width];
+                board.fillColumnTops(columnTops);
+                TransitionEvaluator.Surface surface = evaluator.scan(board);
+                long[] masks = new long[20];
+                for (int row = 0; row < 20; row++) {
+                    masks[row] = board.getRowMask(row);
+                }
+
+                for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                    for (int rotation = 0; rotation < type.getUniqueRotations(); rotation++) {
+                        PieceOrientation piece = type.getOrientation(rotation);
+                        for (int col = 0; col + piece.getWidth() <= width; col++) {
+                            int row = piece.landingRow(columnTops, col);
+                            if (row < 0) {
+                                continue;
+                            }
+                            PolicyAI.extractFeatures(masks, width, piece, col, row, features, 0, new int[width], new int[width]);
+                            int score = TransitionEvaluator.score((int) (2 * features[PolicyAI.LANDING_HEIGHT]),
+                                    (int) features[PolicyAI.ERODED_CELLS], (int) features[PolicyAI.ROW_TRANSITIONS],
+                                    (int) features[PolicyAI.COLUMN_TRANSITIONS], (int) features[PolicyAI.HOLES],
+                                    (int) features[PolicyAI.WELL_SUMS]);
+                            assertEquals(evaluator.evaluatePlacement(surface, piece, col, row), score,
+                                    "width " + width + " " + type + " rotation " + rotation + " column " + col);
+                            assertHeights(board, piece, col, row, features);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchScoresMatchPerCandidateMath() throws Exception {
+        int features = 3;
+        float[] batch = {1, 2, 3, -1, 0, 4};
+        float[] scores = new float[2];
+
+        PlacementPolicy linear = PlacementPolicy.linear(new float[] {0.5f, -1f, 2f}, 1f);
+        linear.score(batch, 2, null, scores);
+        assertArrayEquals(new float[] {5.5f, 8.5f}, scores, 1e-6f);
+
+        // two hidden units: the second is clipped to zero by the ReLU for the first candidate
+        PlacementPolicy mlp = PlacementPolicy.mlp(features, new float[] {1, 0, 0, 0, -1, 0}, new float[] {0, 1},
+                new float[] {2, 3}, -1f);
+        mlp.score(batch, 2, new float[4], scores);
+        assertArrayEquals(new float[] {1f, 2f}, scores, 1e-6f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mlp.write(bytes);
+        PlacementPolicy copy = PlacementPolicy.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(2, copy.getHiddenUnits());
+        assertArrayEquals(mlp.getParameters(), copy.getParameters());
+        assertThrows(IllegalArgumentException.class, () -> PlacementPolicy.read(new ByteArrayInputStream(new byte[8])));
+    }
+
+    @Test
+    public void testDefaultPolicyCompletesLines() {
+        GameBoard board = new GameBoard(10, 20);
+        String[] almostFull = new String[10];
+        for (int col = 0; col < 9; col++) {
+            almostFull[col] = "red";
+        }
+        for (int row = 16; row < 20; row++) {
+            board.setRow(row, almostFull);
+        }
+
+        TetrisAI.Move move = new PolicyAI().findBestMove(board, new TetrisShape(TetrisShape.ShapeType.I, 0, 0));
+        assertEquals(new TetrisAI.Move(9, 0), move);
+    }
+
+    // column heights after the move, from the cells of a board copy
+    private static void assertHeights(GameBoard parent, PieceOrientation piece, int x, int y, float[] features) {
+        GameBoard board = parent.copy();
+        board.makeMove(piece, x, y);
+        int width = board.getBoardWidth();
+        int height = board.getBoardHeight();
+        int aggregate = 0;
+        int max = 0;
+        int bumpiness = 0;
+        int previous = 0;
+        for (int col = 0; col < width; col++) {
+            int columnHeight = 0;
+            for (int row = 0; row < height; row++) {
+                if (board.getCellColor(row, col) != null) {
+                    columnHeight = height - row;
+                    break;
+                }
+            }
+            aggregate += columnHeight;
+            max = Math.max(max, columnHeight);
+            if (col > 0) {
+                bumpiness += Math.abs(columnHeight - previous);
+            }
+            previous = columnHeight;
+        }
+        assertEquals(aggregate, features[PolicyAI.AGGREGATE_HEIGHT]);
+        assertEquals(max, features[PolicyAI.MAX_HEIGHT]);
+        assertEquals(bumpiness, features[PolicyAI.BUMPINESS]);
+    }
+}
@@ -0,0 +1,29 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RolloutAITest {
+
+    @Test
+    public void testRolloutCountIsDeterministicAcrossThreads() {
+        // same seed and thread count: the same moves however the workers get scheduled
+        RolloutAI first = RolloutAI.withRolloutCount(301, 3, 4, 30);
+        RolloutAI second = RolloutAI.withRolloutCount(301, 3, 4, 30);
+        try {
+            Random random = new Random(30);
+            for (int i = 0; i < 10; i++) {
+                GameBoard board = TestBoards.cleanStack(random, 10, 20, 20);
+                TetrisShape piece = new TetrisShape(
+                        TetrisShape.ShapeType.values()[random.nextInt(TetrisShape.ShapeType.values().length)], 3, 0);
+                assertEquals(first.findBestMove(board, piece), second.findBestMove(board, piece), "board " + i);
+            }
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+}
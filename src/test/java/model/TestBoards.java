@@ -0,0 +1,54 @@
+package model;
+
+import java.util.Random;
+
+// Random boards shared by the evaluator and AI tests
+final class TestBoards {
+
+    private TestBoards() {
+    }
+
+    // hole-free stack, every column 0 to maxHeight cells high
+    static GameBoard cleanStack(Random random, int width, int height, int maxHeight) {
+        int[] heights = new int[width];
+        for (int col = 0; col < width; col++) {
+            heights[col] = random.nextInt(maxHeight + 1);
+        }
+        GameBoard board = new GameBoard(width, height);
+        for (int level = 1; level <= maxHeight; level++) {
+            long mask = 0;
+            for (int col = 0; col < width; col++) {
+                if (heights[col] >= level) {
+                    mask |= 1L << col;
+                }
+            }
+            board.setRowMask(height - level, mask, "red");
+        }
+        return board;
+    }
+
+    // columns below half the height with a hole in one of every emptyOneIn cells, the bottom fullRows rows
+    // filled, then one gap per row so no row starts full but many placements clear
+    static GameBoard raggedStack(Random random, int width, int height, int emptyOneIn, int fullRows) {
+        String[][] cells = new String[height][width];
+        for (int col = 0; col < width; col++) {
+            int columnHeight = random.nextInt(height / 2);
+            for (int row = height - columnHeight; row < height; row++) {
+                if (random.nextInt(emptyOneIn) > 0) {
+                    cells[row][col] = "red";
+                }
+            }
+        }
+        for (int row = height - fullRows; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                cells[row][col] = "red";
+            }
+        }
+        for (int row = 0; row < height; row++) {
+            cells[row][random.nextInt(width)] = null;
+        }
+        GameBoard board = new GameBoard(width, height);
+        board.setBoardState(cells);
+        return board;
+    }
+}
@@ -0,0 +1,59 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TetrisAITest {
+
+    @Test
+    public void testLandingRowMatchesRowByRowDrop() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 200; trial++) {
+            GameBoard board = TestBoards.cleanStack(random, 10, 20, 20);
+            int[] columnTops = new int[10];
+            board.fillColumnTops(columnTops);
+
+            for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                TetrisShape shape = new TetrisShape(type, 0, 0);
+                for (int rotation = 0; rotation < TetrisShape.getUniqueRotations(type); rotation++) {
+                    PieceOrientation orientation = TetrisShape.getOrientation(type, rotation);
+                    for (int col = 0; col + orientation.getWidth() <= 10; col++) {
+                        assertEquals(TetrisAI.findDropRow(board, shape, col), orientation.landingRow(columnTops, col),
+                                type + " rotation " + rotation + " column " + col);
+                    }
+                    shape.rotate();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLandingRowDoesNotTunnelIntoHoles() {
+        GameBoard board = new GameBoard(4, 6);
+        String[][] cells = new String[6][4];
+        cells[1][1] = "red"; // overhang near the top with empty cells below it
+        cells[5][0] = "red";
+        board.setBoardState(cells);
+
+        int[] columnTops = new int[4];
+        board.fillColumnTops(columnTops);
+        PieceOrientation l = TetrisShape.getOrientation(TetrisShape.ShapeType.L, 0);
+        assertEquals(-1, l.landingRow(columnTops, 0));
+    }
+
+    @Test
+    public void testFindBestMoveCompletesLines() {
+        GameBoard board = new GameBoard(10, 20);
+        String[][] cells = new String[20][10];
+        for (int row = 16; row < 20; row++) {
+            for (int col = 0; col < 9; col++) {
+                cells[row][col] = "red";
+            }
+        }
+        board.setBoardState(cells);
+
+        TetrisAI.Move move = new TetrisAI().findBestMove(board, new TetrisShape(TetrisShape.ShapeType.I, 0, 0));
+        assertEquals(new TetrisAI.Move(9, 0), move);
+    }
+}
@@ -36,6 +36,16 @@ public class TetrisShapeTest {
         assertEquals(originalWidth, shape.getHeight());
     }
 
+    @Test
+    public void testRotationWrapsAtUniqueOrientations() {
+        TetrisShape shape = new TetrisShape(TetrisShape.ShapeType.S, 0, 0);
+        assertSame(shape.getRotatedOrientation(), TetrisShape.ShapeType.S.getOrientation(1));
+        shape.rotate();
+        shape.rotate();
+        assertEquals(0, shape.getRotation());
+        assertSame(TetrisShape.ShapeType.S.getOrientation(0), shape.getCurrentOrientation());
+    }
+
     @Test
     public void testSetAndGetPosition() {
         TetrisShape shape = new TetrisShape(TetrisShape.ShapeType.L, 3, 4);
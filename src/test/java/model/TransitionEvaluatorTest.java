@@ -0,0 +1,140 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransitionEvaluatorTest {
+
+    @Test
+    public void testPlacementScoreMatchesCellScan() {
+        Random random = new Random(21);
+        for (int width : new int[] {4, 10, 16}) {
+            TransitionEvaluator evaluator = TransitionEvaluator.forWidth(width);
+            for (int trial = 0; trial < 40; trial++) {
+                GameBoard board = TestBoards.raggedStack(random, width, 20, 8, 4);
+                int[] columnTops = new int[width];
+                board.fillColumnTops(columnTops);
+                TransitionEvaluator.Surface surface = evaluator.scan(board);
+
+                for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                    for (int rotation = 0; rotation < TetrisShape.getUniqueRotations(type); rotation++) {
+                        PieceOrientation piece = TetrisShape.getOrientation(type, rotation);
+                        for (int col = 0; col + piece.getWidth() <= width; col++) {
+                            int row = piece.landingRow(columnTops, col);
+                            assertEquals(cellScanScore(board, piece, col, row),
+                                    evaluator.evaluatePlacement(surface, piece, col, row),
+                                    "width " + width + " " + type + " rotation " + rotation + " column " + col);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeepWellsOnTallBoards() {
+        // a one column well deeper than 31 rows, next to random stacks on boards up to the height limit
+        Random random = new Random(34);
+        for (int height : new int[] {40, 100, TransitionEvaluator.MAX_HEIGHT}) {
+            int width = 5;
+            TransitionEvaluator evaluator = TransitionEvaluator.forWidth(width);
+            GameBoard board = TestBoards.raggedStack(random, width, height, 8, 4);
+            for (int row = height / 8; row < height; row++) {
+                board.setRowMask(row, board.getRowMask(row) & ~1L | 0b10L, "red");
+            }
+            int[] columnTops = new int[width];
+            board.fillColumnTops(columnTops);
+            TransitionEvaluator.Surface surface = evaluator.scan(board);
+            for (TetrisShape.ShapeType type : TetrisShape.ShapeType.values()) {
+                for (int rotation = 0; rotation < TetrisShape.getUniqueRotations(type); rotation++) {
+                    PieceOrientation piece = TetrisShape.getOrientation(type, rotation);
+                    for (int col = 0; col + piece.getWidth() <= width; col++) {
+                        int row = piece.landingRow(columnTops, col);
+                        assertEquals(cellScanScore(board, piece, col, row),
+                                evaluator.evaluatePlacement(surface, piece, col, row),
+                                "height " + height + " " + type + " rotation " + rotation + " column " + col);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSizeLimits() {
+        assertTrue(TransitionEvaluator.supports(16, 20));
+        assertFalse(TransitionEvaluator.supports(17, 20));
+        assertTrue(TransitionEvaluator.supports(10, TransitionEvaluator.MAX_HEIGHT));
+        assertFalse(TransitionEvaluator.supports(10, TransitionEvaluator.MAX_HEIGHT + 1));
+        assertThrows(IllegalArgumentException.class, () -> TransitionEvaluator.forWidth(17));
+        assertThrows(IllegalArgumentException.class,
+                () -> TransitionEvaluator.forWidth(10).scan(new GameBoard(10, TransitionEvaluator.MAX_HEIGHT + 1)));
+    }
+
+    // reference Dellacherie features from the cells of the board after the move
+    private static int cellScanScore(GameBoard parent, PieceOrientation piece, int x, int y) {
+        int width = parent.getBoardWidth();
+        int height = parent.getBoardHeight();
+
+        int pieceCellsCleared = 0;
+        for (int r = Math.max(0, -y); r < piece.getHeight(); r++) {
+            long row = parent.getRowMask(y + r) | (piece.getRowMask(r) << x);
+            if (row == (1L << width) - 1) {
+                pieceCellsCleared += Long.bitCount(piece.getRowMask(r));
+            }
+        }
+
+        GameBoard board = parent.copy();
+        long undo = board.makeMove(piece, x, y);
+        int cleared = GameBoard.getRowsCleared(undo);
+
+        int rowTransitions = 0;
+        for (int row = 0; row < height; row++) {
+            boolean last = true; // left wall
+            for (int col = 0; col <= width; col++) {
+                boolean filled = col == width || board.getCellColor(row, col) != null; // right wall
+                if (filled != last) {
+                    rowTransitions++;
+                }
+                last = filled;
+            }
+        }
+
+        int columnTransitions = 0;
+        int holes = 0;
+        int wellSums = 0;
+        for (int col = 0; col < width; col++) {
+            boolean last = false; // above the board
+            boolean covered = false;
+            int wellDepth = 0;
+            for (int row = 0; row <= height; row++) {
+                boolean filled = row == height || board.getCellColor(row, col) != null; // floor
+                if (filled != last) {
+                    columnTransitions++;
+                }
+                last = filled;
+                if (row == height) {
+                    break;
+                }
+
+                boolean leftFilled = col == 0 || board.getCellColor(row, col - 1) != null;
+                boolean rightFilled = col == width - 1 || board.getCellColor(row, col + 1) != null;
+                if (!filled && !covered && leftFilled && rightFilled) {
+                    wellDepth++;
+                    wellSums += wellDepth;
+                } else {
+                    wellDepth = 0;
+                }
+                if (filled) {
+                    covered = true;
+                } else if (covered) {
+                    holes++;
+                }
+            }
+        }
+
+        int landingHeight = 2 * (height - y) - piece.getHeight() + 1;
+        return TransitionEvaluator.score(landingHeight, cleared * pieceCellsCleared,
+                rowTransitions, columnTransitions, holes, wellSums);
+    }
+}
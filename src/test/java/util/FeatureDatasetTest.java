@@ -0,0 +1,79 @@
+package util;
+
+import model.PolicyAI;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureDatasetTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRecordsSpanningBlocksReadBack() throws Exception {
+        Path file = tempDir.resolve("dataset.tfds");
+        int records = 2 * FeatureDataset.BLOCK_RECORDS + 5;
+        float[] features = new float[PolicyAI.FEATURE_COUNT];
+        try (FeatureDatasetWriter writer = new FeatureDatasetWriter(file)) {
+            for (int i = 0; i < records; i++) {
+                for (int f = 0; f < features.length; f++) {
+                    features[f] = i + f * 0.5f;
+                }
+                writer.add(i / 100, i % 100, i % 7, i % 4, i % 10, -1 + i % 20, features, 0, i % 5, i % 40, i, i % 2 == 0);
+                if (i % 100 == 99) {
+                    writer.endGame();
+                }
+            }
+        }
+
+        try (FeatureDataset dataset = FeatureDataset.open(file)) {
+            assertEquals(records, dataset.getRecordCount());
+            assertEquals(records / 100, dataset.getGameCount());
+            for (int i : new int[] {0, 1, FeatureDataset.BLOCK_RECORDS - 1, FeatureDataset.BLOCK_RECORDS, records - 1}) {
+                assertEquals(i / 100, dataset.getInt(FeatureDataset.Column.GAME, i));
+                assertEquals(i % 7, dataset.getInt(FeatureDataset.Column.PIECE_TYPE, i));
+                assertEquals(-1 + i % 20, dataset.getInt(FeatureDataset.Column.Y, i));
+                assertEquals(i % 40, dataset.getInt(FeatureDataset.Column.FUTURE_LINES, i));
+                assertEquals(i, dataset.getInt(FeatureDataset.Column.PIECES_LEFT, i));
+                assertEquals(i % 2 == 0 ? 1 : 0, dataset.getInt(FeatureDataset.Column.TOPPED_OUT, i));
+                assertEquals(i + 1f, dataset.getFloat(FeatureDataset.Column.ROW_TRANSITIONS, i));
+                dataset.readFeatures(i, features, 0);
+                assertEquals(i + 4f, features[PolicyAI.FEATURE_COUNT - 1]);
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> dataset.getInt(FeatureDataset.Column.GAME, records));
+            assertThrows(IllegalArgumentException.class, () -> dataset.getFloat(FeatureDataset.Column.GAME, 0));
+        }
+    }
+
+    @Test
+    public void testSelfPlayOutcomesAreConsistent() throws Exception {
+        Path file = tempDir.resolve("selfplay.tfds");
+        long written = SelfPlayGenerator.generate(file, 4, 2, 150, 10, 20);
+
+        try (FeatureDataset dataset = FeatureDataset.open(file)) {
+            assertEquals(written, dataset.getRecordCount());
+            assertEquals(4, dataset.getGameCount());
+
+            // games arrive in completion order but each one is contiguous, with pieces 0..n-1 and outcomes from its own rows
+            for (long start = 0; start < written; ) {
+                int game = dataset.getInt(FeatureDataset.Column.GAME, start);
+                int length = dataset.getInt(FeatureDataset.Column.PIECES_LEFT, start) + 1;
+                for (int i = 0; i < length; i++) {
+                    long record = start + i;
+                    assertEquals(game, dataset.getInt(FeatureDataset.Column.GAME, record));
+                    assertEquals(i, dataset.getInt(FeatureDataset.Column.PIECE, record));
+                    assertTrue(dataset.getInt(FeatureDataset.Column.Y, record) >= 0);
+                    int expectedFuture = 0;
+                    for (int j = i; j < Math.min(i + SelfPlayGenerator.HORIZON, length); j++) {
+                        expectedFuture += dataset.getInt(FeatureDataset.Column.ROWS_CLEARED, start + j);
+                    }
+                    assertEquals(expectedFuture, dataset.getInt(FeatureDataset.Column.FUTURE_LINES, record));
+                    assertTrue(dataset.getFloat(FeatureDataset.Column.MAX_HEIGHT, record) <= 20);
+                }
+                start += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package util;
+
+import model.GameBoard;
+import model.OpMove;
+import model.TetrisShape;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveCacheTest {
+
+    private static GameBoard board(long bottomRow, String color) {
+        GameBoard board = new GameBoard(10, 20);
+        board.setRowMask(19, bottomRow, color);
+        return board;
+    }
+
+    @Test
+    public void testKeyIgnoresColorsAndPosition() {
+        MoveCache cache = new MoveCache(8);
+        TetrisShape piece = new TetrisShape(TetrisShape.ShapeType.T, 3, 0);
+        cache.put(MoveCache.keyFor(board(0b111L, "red"), piece), new OpMove(5, 1));
+
+        TetrisShape moved = new TetrisShape(TetrisShape.ShapeType.T, 6, 2);
+        assertEquals(new OpMove(5, 1), cache.get(MoveCache.keyFor(board(0b111L, "blue"), moved)));
+
+        // occupancy, type and orientation all matter
+        assertNull(cache.get(MoveCache.keyFor(board(0b1011L, "red"), piece)));
+        assertNull(cache.get(MoveCache.keyFor(board(0b111L, "red"), new TetrisShape(TetrisShape.ShapeType.S, 3, 0))));
+        TetrisShape rotated = new TetrisShape(TetrisShape.ShapeType.T, 3, 0);
+        rotated.rotate();
+        assertNull(cache.get(MoveCache.keyFor(board(0b111L, "red"), rotated)));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(0.25, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        MoveCache cache = new MoveCache(1);
+        TetrisShape piece = new TetrisShape(TetrisShape.ShapeType.I, 0, 0);
+        MoveCache.Key first = MoveCache.keyFor(board(0b1L, "red"), piece);
+        MoveCache.Key second = MoveCache.keyFor(board(0b11L, "red"), piece);
+        cache.put(first, new OpMove(1, 0));
+        cache.put(second, new OpMove(2, 0));
+        assertNull(cache.get(first));
+        assertEquals(new OpMove(2, 0), cache.get(second));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.size());
+
+        // with room for many, the capacity is spread over segments but never exceeded
+        MoveCache large = new MoveCache(100);
+        for (int i = 0; i < 1000; i++) {
+            large.put(MoveCache.keyFor(board(i, "red"), piece), new OpMove(i % 10, 0));
+        }
+        assertEquals(100, large.size());
+        assertEquals(900, large.getEvictions());
+        assertThrows(IllegalArgumentException.class, () -> new MoveCache(0));
+    }
+}
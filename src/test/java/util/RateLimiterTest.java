@@ -0,0 +1,28 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testPacesEventsAtTheRate() {
+        // 10 per second allows a burst of one, the next permit comes 100 ms later
+        RateLimiter limiter = new RateLimiter(10);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getThrottled());
+        long wait = limiter.nanosUntilAvailable();
+        assertTrue(wait > 0 && wait <= 100_000_000L, "wait " + wait);
+
+        limiter.refund();
+        assertTrue(limiter.tryAcquire());
+
+        RateLimiter unlimited = RateLimiter.unlimited();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(unlimited.tryAcquire());
+        }
+        assertEquals(0, unlimited.nanosUntilAvailable());
+    }
+}
@@ -0,0 +1,68 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayCorpusTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRandomAccessAfterWrite() throws Exception {
+        Path file = tempDir.resolve("corpus.bin");
+        try (ReplayCorpusWriter writer = new ReplayCorpusWriter(file)) {
+            writer.beginGame(42L, 10, 20);
+            writer.addTick(2, 1, 4, 18, 0);
+            writer.addTick(0, 0, -1, 16, 2);
+            writer.endGame(300);
+
+            writer.beginGame(7L, 12, 24);
+            for (int i = 0; i < 20_000; i++) {
+                writer.addTick(i % 7, i % 4, i % 10, 20, i % 5);
+            }
+            writer.endGame(1000);
+        }
+
+        try (ReplayCorpus corpus = ReplayCorpus.open(file)) {
+            assertEquals(2, corpus.getGameCount());
+            assertEquals(42L, corpus.getSeed(0));
+            assertEquals(10, corpus.getBoardWidth(0));
+            assertEquals(2, corpus.getTickCount(0));
+            assertEquals(300, corpus.getFinalScore(0));
+            assertEquals(-1, corpus.getX(0, 1));
+            assertEquals(2, corpus.getLinesCleared(0, 1));
+
+            assertEquals(24, corpus.getBoardHeight(1));
+            assertEquals(20_000, corpus.getTickCount(1));
+            assertEquals(12_345 % 7, corpus.getPieceType(1, 12_345));
+            assertEquals(12_345 % 4, corpus.getRotation(1, 12_345));
+        }
+    }
+
+    @Test
+    public void testForEachTickVisitsAllTicksInOrder() throws Exception {
+        Path file = tempDir.resolve("stream.bin");
+        try (ReplayCorpusWriter writer = new ReplayCorpusWriter(file)) {
+            for (int game = 0; game < 3; game++) {
+                writer.beginGame(game, 10, 20);
+                for (int tick = 0; tick <= game; tick++) {
+                    writer.addTick(tick, 0, game, 0, 0);
+                }
+                writer.endGame(0);
+            }
+        }
+
+        int[] visited = new int[1];
+        try (ReplayCorpus corpus = ReplayCorpus.open(file)) {
+            corpus.forEachTick((game, tick, pieceType, rotation, x, y, lines) -> {
+                assertEquals(game, x);
+                assertEquals(tick, pieceType);
+                visited[0]++;
+            });
+        }
+        assertEquals(6, visited[0]);
+    }
+}
@@ -0,0 +1,130 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestPipelineTest {
+
+    @Test
+    public void testParseStageIsEnteredWithoutBlocking() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(2, 1, 0);
+        try {
+            assertTrue(pipeline.tryEnterParse());
+            assertTrue(pipeline.tryEnterParse());
+            assertFalse(pipeline.tryEnterParse());
+            assertEquals(2, pipeline.getParseStage().getInFlight());
+
+            pipeline.cancelParse();
+            CountDownLatch done = new CountDownLatch(1);
+            byte[][] answer = new byte[1][];
+            pipeline.parse(() -> new byte[] {7}, response -> {
+                answer[0] = response;
+                done.countDown();
+            });
+            done.await();
+            assertArrayEquals(new byte[] {7}, answer[0]);
+            assertEquals(0, pipeline.getParseStage().getInFlight());
+            assertEquals(1, pipeline.getParseStage().getCompleted());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedParseStillCompletes() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(1, 1, 0);
+        try {
+            assertTrue(pipeline.tryEnterParse());
+            CountDownLatch done = new CountDownLatch(1);
+            byte[][] answer = {{1}};
+            pipeline.parse(() -> {
+                throw new OutOfMemoryError("request too large");
+            }, response -> {
+                answer[0] = response;
+                done.countDown();
+            });
+            done.await();
+            // null tells the caller there is no answer, and the slot is free for the next request
+            assertNull(answer[0]);
+            assertTrue(pipeline.tryEnterParse());
+            pipeline.cancelParse();
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchStageQueuesBeyondItsCapacity() throws Exception {
+        // one search thread and one queued search, a third caller has to wait
+        RequestPipeline pipeline = new RequestPipeline(8, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        Thread[] callers = new Thread[3];
+        try {
+            for (int i = 0; i < callers.length; i++) {
+                callers[i] = Thread.ofVirtual().start(() -> {
+                    pipeline.search(() -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return null;
+                    });
+                    finished.incrementAndGet();
+                });
+            }
+            while (pipeline.getSearchStage().getWaiting() < 1) {
+                Thread.sleep(1);
+            }
+            assertEquals(2, pipeline.getSearchStage().getInFlight());
+            assertEquals(1, pipeline.getSearchStage().getWaiting());
+
+            release.countDown();
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            assertEquals(3, finished.get());
+            assertEquals(3, pipeline.getSearchStage().getCompleted());
+            assertEquals(0, pipeline.getSearchStage().getInFlight());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testFullSearchStageIsShed() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(8, 1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Thread holder = Thread.ofVirtual().start(() -> pipeline.search(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "searched";
+            }, () -> "shed"));
+            started.await();
+
+            // the only slot is taken, the caller gets the shed answer at once instead of waiting
+            assertEquals("shed", pipeline.search(() -> "searched", () -> "shed"));
+            assertEquals(1, pipeline.getSearchStage().getShed());
+            assertEquals(0, pipeline.getSearchStage().getWaiting());
+
+            release.countDown();
+            holder.join();
+            assertEquals("searched", pipeline.search(() -> "searched", () -> "shed"));
+            assertEquals(1, pipeline.getSearchStage().getShed());
+            assertEquals(2, pipeline.getSearchStage().getCompleted());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+}
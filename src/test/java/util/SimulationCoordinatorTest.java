@@ -0,0 +1,53 @@
+package util;
+
+import model.PlacementPolicy;
+import model.PolicyAI;
+import model.TetrisAI;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationCoordinatorTest {
+
+    private static SimulationCoordinator.Result playLocally(long firstSeed, int games, int maxPieces) {
+        SimulationCoordinator.Result total = SimulationCoordinator.Result.EMPTY;
+        for (long seed = firstSeed; seed < firstSeed + games; seed++) {
+            HeadlessSimulator.Result game = HeadlessSimulator.play(new TetrisAI(null), 10, 20, seed, maxPieces);
+            total = total.plus(new SimulationCoordinator.Result(1, game.pieces(), game.lines(), game.toppedOut() ? 1 : 0, 0));
+        }
+        return total;
+    }
+
+    @Test
+    public void testShardedRunMatchesLocalGames() throws Exception {
+        try (SimulationCoordinator coordinator = SimulationCoordinator.startLocal(2)) {
+            SimulationCoordinator.Result result = coordinator.simulate(3, 7, 60, 10, 20, 2);
+            SimulationCoordinator.Result expected = playLocally(3, 7, 60);
+            assertEquals(expected.games(), result.games());
+            assertEquals(expected.pieces(), result.pieces());
+            assertEquals(expected.lines(), result.lines());
+            assertEquals(expected.toppedOut(), result.toppedOut());
+
+            // candidate policies travel as parameters and score like in-process games
+            PlacementPolicy policy = PlacementPolicy.getDefault();
+            double[] fitness = coordinator.evaluate(List.of(policy, policy), 0, 2, 80, 10, 10);
+            double local = (HeadlessSimulator.play(new PolicyAI(policy), 10, 10, 0, 80).lines()
+                    + HeadlessSimulator.play(new PolicyAI(policy), 10, 10, 1, 80).lines()) / 2.0;
+            assertArrayEquals(new double[] {local, local}, fitness, 1e-9);
+        }
+    }
+
+    @Test
+    public void testCrashedWorkerShardIsReassigned() throws Exception {
+        try (SimulationCoordinator coordinator = SimulationCoordinator.startLocal(2)) {
+            Process crashed = coordinator.getLocalProcesses().get(0);
+            crashed.destroyForcibly();
+            crashed.waitFor();
+
+            SimulationCoordinator.Result result = coordinator.simulate(0, 5, 40, 10, 20, 1);
+            assertEquals(playLocally(0, 5, 40).lines(), result.lines());
+            assertEquals(5, result.games());
+            assertEquals(1, coordinator.getWorkerCount());
+        }
+    }
+}
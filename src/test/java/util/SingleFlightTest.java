@@ -0,0 +1,67 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentDuplicatesShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        int[] results = new int[5];
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(Thread.ofPlatform().start(() -> results[0] = flight.run("board", () -> {
+            computations.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 42;
+        })));
+        while (flight.getInFlight() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 1; i < results.length; i++) {
+            int slot = i;
+            threads.add(Thread.ofPlatform().start(() -> results[slot] = flight.run("board", () -> {
+                computations.incrementAndGet();
+                return -1;
+            })));
+        }
+        while (flight.getCoalesced() < results.length - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertArrayEquals(new int[] {42, 42, 42, 42, 42}, results);
+        assertEquals(1, computations.get());
+        assertEquals(1, flight.getComputed());
+        assertEquals(0, flight.getInFlight());
+
+        // nothing is remembered once done
+        assertEquals(7, (int) flight.run("board", () -> 7));
+    }
+
+    @Test
+    public void testFailureReachesEveryWaiterAndIsNotKept() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        assertThrows(IllegalArgumentException.class, () -> flight.run("bad", () -> {
+            throw new IllegalArgumentException("no move");
+        }));
+        assertEquals(0, flight.getInFlight());
+        assertEquals(3, (int) flight.run("bad", () -> 3));
+    }
+}
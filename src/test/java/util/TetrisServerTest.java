@@ -0,0 +1,524 @@
+package util;
+
+import com.google.gson.Gson;
+import model.GameBoard;
+import model.MoveRequestCodec;
+import model.OpMove;
+import model.PieceSet;
+import model.PureGame;
+import model.ServerConnectionPool;
+import model.TetrisAI;
+import model.TetrisShape;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TetrisServerTest {
+    private static final Gson GSON = new Gson();
+
+    // bottom row filled except the right column, an I piece to drop
+    static PureGame wellState() {
+        String[][] cells = new String[20][10];
+        for (int col = 0; col < 9; col++) {
+            cells[19][col] = "red";
+        }
+        boolean[][] shape = {{true, true, true, true}};
+        return new PureGame(10, 20, cells, shape, shape, 3, 0, "I");
+    }
+
+    static OpMove expectedMove(PureGame state) {
+        GameBoard board = new GameBoard(10, 20);
+        board.setBoardState(state.getCells());
+        TetrisAI.Move move = new TetrisAI().findBestMove(board, new TetrisShape(TetrisShape.ShapeType.I, 0, 0));
+        return new OpMove(move.column(), move.rotations());
+    }
+
+    // the AI's move for any state, searched directly
+    static OpMove searchedMove(PureGame state) {
+        GameBoard board = new GameBoard(state.getWidth(), state.getHeight());
+        board.setBoardState(state.getCells());
+        TetrisShape piece = new TetrisShape(TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 0, 0);
+        TetrisAI.Move move = new TetrisAI().findBestMove(board, piece);
+        return new OpMove(move.column(), move.rotations());
+    }
+
+    static TetrisServer startServer(TetrisServer.Mode mode) throws Exception {
+        return startServer(mode, 30_000);
+    }
+
+    static TetrisServer startServer(TetrisServer.Mode mode, int idleTimeoutMillis) throws Exception {
+        TetrisServer server = new TetrisServer(0, mode);
+        server.setIdleTimeoutMillis(idleTimeoutMillis);
+        server.setLogRequests(false);
+        server.bind();
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    static OpMove request(int port, PureGame state) throws Exception {
+        try (Socket socket = new Socket("localhost", port);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            out.println(GSON.toJson(state));
+            return GSON.fromJson(in.readLine(), OpMove.class);
+        }
+    }
+
+    @Test
+    public void testIdleConnectionsDoNotStarveRequests() throws Exception {
+        assertServesBehindIdleClients(TetrisServer.Mode.NIO);
+    }
+
+    @Test
+    public void testVirtualThreadModeServesBehindIdleClients() throws Exception {
+        assertServesBehindIdleClients(TetrisServer.Mode.VIRTUAL);
+    }
+
+    private static void assertServesBehindIdleClients(TetrisServer.Mode mode) throws Exception {
+        TetrisServer server = startServer(mode);
+        List<Socket> idle = new ArrayList<>();
+        try {
+            // far more silent clients than pool threads, each would pin a thread in POOL mode
+            for (int i = 0; i < 200; i++) {
+                idle.add(new Socket("localhost", server.getPort()));
+            }
+            // connect and leave without a request, as the UI's availability check does
+            new Socket("localhost", server.getPort()).close();
+
+            PureGame state = wellState();
+            OpMove expected = expectedMove(state);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(expected, request(server.getPort(), state));
+            }
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testOversizedBoardIsRefused() throws Exception {
+        String oversized = "{\"width\":64,\"height\":30000000,\"cells\":[[]],\"currentShape\":[],"
+                + "\"currentShapeType\":\"T\"}";
+        PureGame state = wellState();
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode);
+            try (Socket socket = new Socket("localhost", server.getPort());
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                // answered with no move, and the connection goes on serving
+                out.println(oversized);
+                assertEquals(new OpMove(0, 0), GSON.fromJson(in.readLine(), OpMove.class), mode.name());
+                out.println(GSON.toJson(state));
+                assertEquals(expectedMove(state), GSON.fromJson(in.readLine(), OpMove.class), mode.name());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testPentominoRequests() throws Exception {
+        GameBoard board = new GameBoard(10, 20);
+        board.setRowMask(19, 0b01_1111_1111L, "red");
+        TetrisShape piece = new TetrisShape(PieceSet.pieceNamed("I5"), 3, 0);
+        TetrisAI.Move move = new TetrisAI().findBestMove(board, piece);
+        TetrisServer server = startServer(TetrisServer.Mode.NIO);
+        try (Socket socket = new Socket("localhost", server.getPort());
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            // JSON names the piece, so any shipped set works
+            out.println(MoveRequestCodec.writeRequest(board, piece, null));
+            assertEquals(new OpMove(move.column(), move.rotations()), GSON.fromJson(in.readLine(), OpMove.class));
+        } finally {
+            server.stop();
+        }
+        // the binary protocol numbers pieces within the standard set and refuses the rest up front
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.writeRequest(
+                new DataOutputStream(new ByteArrayOutputStream()), board, piece.getType(), 0, 3, 0, null));
+    }
+
+    @Test
+    public void testRequestSplitAcrossWrites() throws Exception {
+        TetrisServer server = startServer(TetrisServer.Mode.NIO);
+        try (Socket socket = new Socket("localhost", server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+            PureGame state = wellState();
+            byte[] json = (GSON.toJson(state) + "\r\n").getBytes();
+            int half = json.length / 2;
+            socket.getOutputStream().write(json, 0, half);
+            socket.getOutputStream().flush();
+            Thread.sleep(50);
+            socket.getOutputStream().write(json, half, json.length - half);
+            socket.getOutputStream().flush();
+
+            assertEquals(expectedMove(state), GSON.fromJson(in.readLine(), OpMove.class));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testConnectionCarriesPipelinedRequests() throws Exception {
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode);
+            try (Socket socket = new Socket("localhost", server.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                PureGame state = wellState();
+                String json = GSON.toJson(state);
+                // three requests in one write, answered in order on the same connection
+                socket.getOutputStream().write((json + "\n" + json + "\n" + json + "\n").getBytes());
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(expectedMove(state), GSON.fromJson(in.readLine(), OpMove.class), mode.name());
+                }
+                // half close: still answered, then closed
+                socket.getOutputStream().write((json + "\n").getBytes());
+                socket.shutdownOutput();
+                assertEquals(expectedMove(state), GSON.fromJson(in.readLine(), OpMove.class), mode.name());
+                assertNull(in.readLine());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testIdleConnectionsAreClosed() throws Exception {
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode, 200);
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(5000);
+                assertEquals(-1, socket.getInputStream().read(), mode.name()); // closed by the server, not timed out
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionPoolReusesAndReconnects() throws Exception {
+        TetrisServer server = startServer(TetrisServer.Mode.NIO, 300);
+
+        ServerConnectionPool pool = new ServerConnectionPool("localhost", server.getPort());
+        try {
+            PureGame state = wellState();
+            OpMove expected = expectedMove(state);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected, GSON.fromJson(pool.exchange(GSON.toJson(state)), OpMove.class));
+            }
+            assertEquals(1, pool.getOpenedConnections());
+
+            // the server drops the idle connection, the next exchange retries on a new one
+            Thread.sleep(800);
+            assertEquals(expected, GSON.fromJson(pool.exchange(GSON.toJson(state)), OpMove.class));
+            assertEquals(2, pool.getOpenedConnections());
+        } finally {
+            pool.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testRepeatedStatesAreAnsweredFromCache() throws Exception {
+        TetrisServer server = startServer(TetrisServer.Mode.NIO);
+        try {
+            PureGame state = wellState();
+            OpMove expected = expectedMove(state);
+            assertEquals(expected, request(server.getPort(), state));
+            // same occupancy in another color is the same state
+            for (String[] row : state.getCells()) {
+                for (int col = 0; col < row.length; col++) {
+                    if (row[col] != null) {
+                        row[col] = "cyan";
+                    }
+                }
+            }
+            assertEquals(expected, request(server.getPort(), state));
+            assertEquals(expected, request(server.getPort(), state));
+
+            MoveCache cache = server.getMoveCache();
+            assertEquals(2, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.size());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBinaryRequestRoundTrip() throws Exception {
+        GameBoard board = new GameBoard(12, 6);
+        board.setRowMask(5, 0b1011_1111_1101L, "red");
+        board.setRowMask(3, 0b1L, "red");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryProtocol.writeRequest(new DataOutputStream(bytes), board, TetrisShape.ShapeType.J, 2, -1, 4,
+                TetrisShape.ShapeType.S);
+        byte[] frame = bytes.toByteArray();
+        assertEquals(2 + 7 + 6 * 2, frame.length);
+
+        BinaryProtocol.Request request = BinaryProtocol.readRequest(frame, 2, frame.length - 2);
+        for (int row = 0; row < 6; row++) {
+            assertEquals(board.getRowMask(row), request.board().getRowMask(row));
+        }
+        assertEquals(TetrisShape.ShapeType.J, request.piece());
+        assertEquals(2, request.rotation());
+        assertEquals(-1, request.x());
+        assertEquals(4, request.y());
+        assertEquals(TetrisShape.ShapeType.S, request.next());
+        assertThrows(IOException.class, () -> BinaryProtocol.readRequest(frame, 2, frame.length - 3));
+    }
+
+    @Test
+    public void testBinaryAndJsonClientsShareAServer() throws Exception {
+        PureGame state = wellState();
+        OpMove expected = expectedMove(state);
+        GameBoard board = new GameBoard(10, 20);
+        board.setBoardState(state.getCells());
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(BinaryProtocol.MAGIC);
+        for (int i = 0; i < 2; i++) {
+            BinaryProtocol.writeRequest(new DataOutputStream(frames), board, TetrisShape.ShapeType.I, 0, 3, 0, null);
+        }
+
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode);
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                // magic byte and two pipelined frames in one write
+                socket.getOutputStream().write(frames.toByteArray());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertEquals(expected, BinaryProtocol.readMove(in), mode.name());
+                assertEquals(expected, BinaryProtocol.readMove(in), mode.name());
+
+                assertEquals(expected, request(server.getPort(), state), mode.name());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testBatchIsAnsweredInOrder() throws Exception {
+        Random random = new SeededRandom(48);
+        List<PureGame> states = new ArrayList<>();
+        List<OpMove> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            PureGame state = ServerBenchmark.sampleState(random);
+            states.add(state);
+            expected.add(searchedMove(state));
+        }
+        String batch = GSON.toJson(states);
+
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode);
+            try (Socket socket = new Socket("localhost", server.getPort());
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                out.println(batch);
+                assertEquals(expected, MoveRequestCodec.readMoves(in.readLine()), mode.name());
+                // single requests still work on the same connection
+                out.println(GSON.toJson(states.get(3)));
+                assertEquals(expected.get(3), GSON.fromJson(in.readLine(), OpMove.class), mode.name());
+                out.println("[]");
+                assertEquals("[]", in.readLine(), mode.name());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testBatchesAndSingleRequestsForOneStateDoNotDeadlock() throws Exception {
+        // one search slot and no cache: batch workers and single requests coalesce on the same state while
+        // competing for the slot
+        PureGame state = wellState();
+        OpMove expected = expectedMove(state);
+        String batch = GSON.toJson(Collections.nCopies(16, state));
+        String single = GSON.toJson(state);
+        for (TetrisServer.Mode mode : List.of(TetrisServer.Mode.NIO, TetrisServer.Mode.VIRTUAL)) {
+            TetrisServer server = new TetrisServer(0, mode, new RequestPipeline(1024, 1, 0));
+            server.setShedPolicy(TetrisServer.ShedPolicy.WAIT);
+            server.setCacheCapacity(0);
+            server.setLogRequests(false);
+            server.bind();
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            serving.setDaemon(true);
+            serving.start();
+            try {
+                List<Thread> clients = new ArrayList<>();
+                List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+                for (int c = 0; c < 6; c++) {
+                    boolean sendsBatches = c < 2;
+                    clients.add(Thread.ofVirtual().start(() -> {
+                        try (Socket socket = new Socket("localhost", server.getPort());
+                             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                            socket.setSoTimeout(20_000); // a deadlock fails the test instead of hanging it
+                            for (int r = 0; r < 20; r++) {
+                                out.println(sendsBatches ? batch : single);
+                                List<OpMove> moves = MoveRequestCodec.readMoves(in.readLine());
+                                assertEquals(sendsBatches ? Collections.nCopies(16, expected) : List.of(expected),
+                                        moves);
+                            }
+                        } catch (Throwable e) {
+                            failures.add(e);
+                        }
+                    }));
+                }
+                for (Thread client : clients) {
+                    client.join();
+                }
+                assertEquals(List.of(), failures, mode.name() + ": " + server.getPipeline());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsAnsweredInOrder() throws Exception {
+        Random random = new SeededRandom(49);
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(BinaryProtocol.MAGIC);
+        List<OpMove> expected = new ArrayList<>();
+        // more than one connection may have in flight at once, so some wait for room in the pipeline
+        for (int i = 0; i < 100; i++) {
+            PureGame state = ServerBenchmark.sampleState(random);
+            expected.add(searchedMove(state));
+            GameBoard board = new GameBoard(10, 20);
+            board.setBoardState(state.getCells());
+            BinaryProtocol.writeRequest(new DataOutputStream(frames), board,
+                    TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 0, 3, 0, null);
+        }
+
+        for (TetrisServer.Mode mode : TetrisServer.Mode.values()) {
+            TetrisServer server = startServer(mode);
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.getOutputStream().write(frames.toByteArray());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                for (OpMove move : expected) {
+                    assertEquals(move, BinaryProtocol.readMove(in), mode.name());
+                }
+            } finally {
+                server.stop();
+            }
+        }
+
+        // a parse stage of one slot: connections wait their turn instead of being read further
+        TetrisServer server = new TetrisServer(0, TetrisServer.Mode.NIO, new RequestPipeline(1, 1, 0));
+        server.setShedPolicy(TetrisServer.ShedPolicy.WAIT);
+        server.setLogRequests(false);
+        server.bind();
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+        try (Socket first = new Socket("localhost", server.getPort());
+             Socket second = new Socket("localhost", server.getPort())) {
+            first.getOutputStream().write(frames.toByteArray());
+            second.getOutputStream().write(frames.toByteArray());
+            DataInputStream firstIn = new DataInputStream(first.getInputStream());
+            DataInputStream secondIn = new DataInputStream(second.getInputStream());
+            for (OpMove move : expected) {
+                assertEquals(move, BinaryProtocol.readMove(firstIn));
+                assertEquals(move, BinaryProtocol.readMove(secondIn));
+            }
+            assertEquals(1, server.getPipeline().getParseStage().getCapacity());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testOverloadIsAnsweredBusy() throws Exception {
+        Random random = new SeededRandom(50);
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(BinaryProtocol.MAGIC);
+        List<OpMove> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            PureGame state = ServerBenchmark.sampleState(random);
+            expected.add(searchedMove(state));
+            GameBoard board = new GameBoard(10, 20);
+            board.setBoardState(state.getCells());
+            BinaryProtocol.writeRequest(new DataOutputStream(frames), board,
+                    TetrisShape.ShapeType.valueOf(state.getCurrentShapeType()), 0, 3, 0, null);
+        }
+
+        // one parse slot: pipelined requests beyond it are answered busy straight away, in order
+        TetrisServer server = new TetrisServer(0, TetrisServer.Mode.NIO, new RequestPipeline(1, 1, 0));
+        server.setShedPolicy(TetrisServer.ShedPolicy.BUSY);
+        server.setLogRequests(false);
+        server.bind();
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write(frames.toByteArray());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int busy = 0;
+            for (OpMove move : expected) {
+                OpMove answer = BinaryProtocol.readMove(in);
+                if (answer.isBusy()) {
+                    busy++;
+                } else {
+                    assertEquals(move, answer);
+                }
+            }
+            assertTrue(busy > 0);
+            assertEquals(busy, server.getPipeline().getParseStage().getShed()
+                    + server.getPipeline().getSearchStage().getShed());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testFallbackDropsThePieceWhereItLandsLowest() {
+        GameBoard board = new GameBoard(10, 20);
+        board.setRowMask(19, 0b00_0011_1111L, "red");
+        board.setRowMask(18, 0b00_0000_1111L, "red");
+        // the flat I piece fits the four empty bottom cells on the right
+        assertEquals(new OpMove(6, 0),
+                TetrisServer.fallbackMove(board, new TetrisShape(TetrisShape.ShapeType.I, 0, 0)));
+        // on an empty board every column is equally low, the leftmost is kept
+        assertEquals(new OpMove(0, 0),
+                TetrisServer.fallbackMove(new GameBoard(10, 20), new TetrisShape(TetrisShape.ShapeType.O, 4, 0)));
+    }
+}
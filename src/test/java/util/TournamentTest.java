@@ -0,0 +1,46 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TournamentTest {
+
+    @Test
+    public void testWilsonInterval() {
+        Tournament.Interval interval = Tournament.wilson(8, 10);
+        assertEquals(0.8, interval.estimate(), 1e-9);
+        assertEquals(0.4902, interval.low(), 1e-4);
+        assertEquals(0.9433, interval.high(), 1e-4);
+
+        // stays inside [0, 1] for one-sided results
+        Tournament.Interval shutout = Tournament.wilson(0, 5);
+        assertEquals(0.0, shutout.low(), 1e-9);
+        assertTrue(shutout.high() > 0 && shutout.high() < 1);
+        assertEquals(1.0, Tournament.wilson(5, 5).high(), 1e-9);
+    }
+
+    @Test
+    public void testSmallTournamentCountsEveryGame() throws Exception {
+        List<String> names = List.of("greedy", "beam", "policy");
+        Tournament.Report report = Tournament.run(names, 2, 40, 10, 20, 2);
+
+        assertEquals(3, report.pairs().size());
+        for (Tournament.PairResult pair : report.pairs()) {
+            assertEquals(2, pair.games());
+        }
+        double points = 0;
+        for (Tournament.StrategyStats stats : report.strategies()) {
+            assertEquals(4, stats.games());
+            assertTrue(stats.decisions() > 0 && stats.decisions() <= 4 * 40);
+            points += stats.points();
+        }
+        assertEquals(6.0, points, 1e-9); // one point per game
+    }
+
+    @Test
+    public void testUnknownStrategyIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Tournament.run(List.of("greedy", "oracle"), 1, 10, 10, 20, 1));
+    }
+}